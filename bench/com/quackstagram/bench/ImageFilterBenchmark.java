@@ -0,0 +1,195 @@
+package com.quackstagram.bench;
+
+import com.quackstagram.util.ColorFilter;
+import com.quackstagram.util.ColorFilterBackend;
+import com.quackstagram.util.ImageFilterUtil;
+
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.Random;
+import java.util.function.Function;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * Times the per-pixel filters of ImageFilterUtil against the original
+ * getRGB/setRGB loops on a synthetic 12 megapixel photo, and checks that both
+ * produce identical pixels. Also times Blur and Sharpen at growing radii, whose
+ * cost should stay flat, and the scalar and Vector API colour filter backends
+ * on the same buffer. Lives outside the application sources; run with
+ * 
+ * javac -d bin -cp bin bench/com/quackstagram/bench/ImageFilterBenchmark.java
+ * java --add-modules jdk.incubator.vector -cp bin com.quackstagram.bench.ImageFilterBenchmark [width height]
+ * 
+ * Only the scalar backend is measured unless the vector source root was compiled
+ * into bin and --add-modules is given at run time.
+ */
+public class ImageFilterBenchmark {
+    private static final int WARMUP_ROUNDS = 3;
+    private static final int MEASURED_ROUNDS = 5;
+    
+    public static void main(String[] args) {
+        int width = args.length >= 2 ? Integer.parseInt(args[0]) : 4000;
+        int height = args.length >= 2 ? Integer.parseInt(args[1]) : 3000;
+        
+        System.out.printf("%dx%d pixels, %d processors%n", width, height, Runtime.getRuntime().availableProcessors());
+        for (int type : new int[] { BufferedImage.TYPE_3BYTE_BGR, BufferedImage.TYPE_INT_ARGB }) {
+            BufferedImage source = createPhoto(width, height, type);
+            System.out.println(type == BufferedImage.TYPE_3BYTE_BGR ? "TYPE_3BYTE_BGR (JPEG)" : "TYPE_INT_ARGB");
+            run(source, "Grayscale", ImageFilterBenchmark::legacyGrayscale);
+            run(source, "Sepia", ImageFilterBenchmark::legacySepia);
+            run(source, "Invert", ImageFilterBenchmark::legacyInvert);
+            run(source, "Warm", ImageFilterBenchmark::legacyWarm);
+            run(source, "Cool", ImageFilterBenchmark::legacyCool);
+        }
+        
+        BufferedImage photo = createPhoto(width, height, BufferedImage.TYPE_3BYTE_BGR);
+        System.out.println("Radius");
+        for (int radius : new int[] { 1, 4, 16, 64 }) {
+            double blurMillis = time(() -> ImageFilterUtil.getFilter("Blur", radius).apply(photo));
+            double sharpenMillis = time(() -> ImageFilterUtil.getFilter("Sharpen", radius).apply(photo));
+            System.out.printf("  %-10d Blur   %8.1f ms   Sharpen %6.1f ms%n", radius, blurMillis, sharpenMillis);
+        }
+        
+        int[] pixels = photo.getRGB(0, 0, width, height, null, 0, width);
+        int[] gray = pixels.clone();
+        ColorFilterBackend.scalar().grayscale().applyTo(gray, 0, gray.length);
+        
+        ColorFilterBackend scalar = ColorFilterBackend.scalar();
+        Optional<ColorFilterBackend> vector = ColorFilterBackend.vector();
+        System.out.println("Colour backends, " + vector.map(ColorFilterBackend::getName).orElse("Vector API unavailable")
+                + " (each round includes copying the buffer)");
+        runBackends(pixels, "Grayscale", scalar, vector, ColorFilterBackend::grayscale);
+        runBackends(gray, "Gray input", scalar, vector, ColorFilterBackend::grayscale);
+        runBackends(pixels, "Sepia", scalar, vector, ColorFilterBackend::sepia);
+        runBackends(pixels, "Invert", scalar, vector, ColorFilterBackend::invert);
+        runBackends(pixels, "Warm", scalar, vector, ColorFilterBackend::warm);
+        runBackends(pixels, "Cool", scalar, vector, ColorFilterBackend::cool);
+    }
+    
+    private static void runBackends(int[] pixels, String filter, ColorFilterBackend scalar,
+                                    Optional<ColorFilterBackend> vector, Function<ColorFilterBackend, ColorFilter> select) {
+        int[] scalarResult = new int[pixels.length];
+        double scalarMillis = time(() -> applyCopy(pixels, scalarResult, select.apply(scalar)));
+        if (vector.isEmpty()) {
+            System.out.printf("  %-10s scalar %8.1f ms%n", filter, scalarMillis);
+            return;
+        }
+        
+        int[] vectorResult = new int[pixels.length];
+        double vectorMillis = time(() -> applyCopy(pixels, vectorResult, select.apply(vector.get())));
+        System.out.printf("  %-10s scalar %8.1f ms   vector %7.1f ms   %5.1fx   %s%n",
+                filter, scalarMillis, vectorMillis, scalarMillis / vectorMillis,
+                Arrays.equals(scalarResult, vectorResult) ? "identical" : "MISMATCH");
+    }
+    
+    private static void applyCopy(int[] source, int[] target, ColorFilter filter) {
+        System.arraycopy(source, 0, target, 0, source.length);
+        filter.applyTo(target, 0, target.length);
+    }
+    
+    private static void run(BufferedImage source, String filter, IntUnaryOperator legacy) {
+        double legacyMillis = time(() -> legacyFilter(source, legacy));
+        double rasterMillis = time(() -> ImageFilterUtil.applyFilter(source, filter));
+        
+        boolean identical = samePixels(legacyFilter(source, legacy), ImageFilterUtil.applyFilter(source, filter));
+        System.out.printf("  %-10s getRGB %8.1f ms   raster %7.1f ms   %5.1fx   %s%n",
+                filter, legacyMillis, rasterMillis, legacyMillis / rasterMillis,
+                identical ? "identical" : "MISMATCH");
+    }
+    
+    private static double time(Runnable filter) {
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            filter.run();
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < MEASURED_ROUNDS; i++) {
+            filter.run();
+        }
+        return (System.nanoTime() - start) / 1e6 / MEASURED_ROUNDS;
+    }
+    
+    private static BufferedImage createPhoto(int width, int height, int type) {
+        BufferedImage image = new BufferedImage(width, height, type);
+        Random random = new Random(42);
+        int[] row = new int[width];
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                // Smooth gradients with some noise, roughly like a photo
+                int r = (x * 255 / width + random.nextInt(16)) & 0xff;
+                int g = (y * 255 / height + random.nextInt(16)) & 0xff;
+                int b = ((x + y) * 255 / (width + height) + random.nextInt(16)) & 0xff;
+                row[x] = (0xc0 + random.nextInt(64)) << 24 | r << 16 | g << 8 | b;
+            }
+            image.setRGB(0, y, width, 1, row, 0, width);
+        }
+        return image;
+    }
+    
+    private static boolean samePixels(BufferedImage a, BufferedImage b) {
+        for (int y = 0; y < a.getHeight(); y++) {
+            for (int x = 0; x < a.getWidth(); x++) {
+                if (a.getRGB(x, y) != b.getRGB(x, y)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+    
+    // The implementation ImageFilterUtil used before filters worked on raster rows
+    private static BufferedImage legacyFilter(BufferedImage source, IntUnaryOperator op) {
+        BufferedImage result = new BufferedImage(
+                source.getWidth(), source.getHeight(), BufferedImage.TYPE_INT_ARGB);
+        for (int y = 0; y < source.getHeight(); y++) {
+            for (int x = 0; x < source.getWidth(); x++) {
+                result.setRGB(x, y, op.applyAsInt(source.getRGB(x, y)));
+            }
+        }
+        return result;
+    }
+    
+    private static int legacyGrayscale(int rgb) {
+        int alpha = (rgb >> 24) & 0xff;
+        int r = (rgb >> 16) & 0xff;
+        int g = (rgb >> 8) & 0xff;
+        int b = rgb & 0xff;
+        int gray = (int)(0.299 * r + 0.587 * g + 0.114 * b);
+        return (alpha << 24) | (gray << 16) | (gray << 8) | gray;
+    }
+    
+    private static int legacySepia(int rgb) {
+        int alpha = (rgb >> 24) & 0xff;
+        int r = (rgb >> 16) & 0xff;
+        int g = (rgb >> 8) & 0xff;
+        int b = rgb & 0xff;
+        int newR = Math.min(255, (int)(0.393 * r + 0.769 * g + 0.189 * b));
+        int newG = Math.min(255, (int)(0.349 * r + 0.686 * g + 0.168 * b));
+        int newB = Math.min(255, (int)(0.272 * r + 0.534 * g + 0.131 * b));
+        return (alpha << 24) | (newR << 16) | (newG << 8) | newB;
+    }
+    
+    private static int legacyInvert(int rgb) {
+        int alpha = (rgb >> 24) & 0xff;
+        int r = 255 - ((rgb >> 16) & 0xff);
+        int g = 255 - ((rgb >> 8) & 0xff);
+        int b = 255 - (rgb & 0xff);
+        return (alpha << 24) | (r << 16) | (g << 8) | b;
+    }
+    
+    private static int legacyWarm(int rgb) {
+        int alpha = (rgb >> 24) & 0xff;
+        int r = Math.min(255, ((rgb >> 16) & 0xff) + 30);
+        int g = (rgb >> 8) & 0xff;
+        int b = Math.max(0, (rgb & 0xff) - 20);
+        return (alpha << 24) | (r << 16) | (g << 8) | b;
+    }
+    
+    private static int legacyCool(int rgb) {
+        int alpha = (rgb >> 24) & 0xff;
+        int r = Math.max(0, ((rgb >> 16) & 0xff) - 20);
+        int g = (rgb >> 8) & 0xff;
+        int b = Math.min(255, (rgb & 0xff) + 30);
+        return (alpha << 24) | (r << 16) | (g << 8) | b;
+    }
+}
\ No newline at end of file
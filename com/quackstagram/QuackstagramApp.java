@@ -1,8 +1,13 @@
 package com.quackstagram;
 
 import com.quackstagram.controller.*;
+import com.quackstagram.dao.async.*;
 import com.quackstagram.dao.impl.*;
 import com.quackstagram.dao.interfaces.*;
+import com.quackstagram.util.BlobStore;
+import com.quackstagram.util.DaoExecutor;
+import com.quackstagram.util.DatabaseConnectionManager;
+import com.quackstagram.util.FeedCache;
 import com.quackstagram.view.*;
 
 import javax.swing.*;
@@ -14,6 +19,14 @@ import java.nio.file.Paths;
  * Main application class for Quackstagram
  */
 public class QuackstagramApp {
+    private static final int FEED_CACHE_SIZE = 256;
+    private static final long FEED_CACHE_TTL_MS = 60_000;
+    private static final int NOTIFICATION_QUEUE_CAPACITY = 1024;
+    private static final int NOTIFICATION_BATCH_SIZE = 100;
+    private static final long NOTIFICATION_BATCH_WINDOW_MS = 250;
+    private static final long NOTIFICATION_OFFER_TIMEOUT_MS = 2_000;
+    // Pooled connections background DAO calls leave to the notification writer and the EDT
+    private static final int RESERVED_CONNECTIONS = 2;
     
     /**
      * Entry point for the application
@@ -37,17 +50,40 @@ public class QuackstagramApp {
      */
     public static void initializeApplication() {
         // Initialize DAOs with database implementations
-        UserDAO userDAO = new DatabaseUserDAO();
         PictureDAO pictureDAO = new DatabasePictureDAO();
-        NotificationDAO notificationDAO = new DatabaseNotificationDAO();
+        // Notifications are written in batches by a background thread, flushed before the pool closes
+        WriteBehindNotificationDAO notificationDAO = new WriteBehindNotificationDAO(new DatabaseNotificationDAO(),
+                NOTIFICATION_QUEUE_CAPACITY, NOTIFICATION_BATCH_SIZE, NOTIFICATION_BATCH_WINDOW_MS,
+                NOTIFICATION_OFFER_TIMEOUT_MS);
+        DatabaseConnectionManager.getInstance().beforeShutdown(notificationDAO::close);
         FollowDAO followDAO = new DatabaseFollowDAO();
+        TimelineDAO timelineDAO = new DatabaseTimelineDAO();
+        ImageIdDAO imageIdDAO = new DatabaseImageIdDAO();
+        BlobDAO blobDAO = new DatabaseBlobDAO();
+        BlobStore blobStore = new BlobStore(blobDAO);
+        // Deleting a user releases the blobs of the pictures that go with it
+        UserDAO userDAO = new DatabaseUserDAO(blobStore);
         
-        UserController userController = new UserController(userDAO, followDAO);
-        NotificationController notificationController = new NotificationController(notificationDAO);
-        PictureController pictureController = new PictureController(pictureDAO, userDAO, notificationController);
+        // Background DAO calls never take the last connections of the pool
+        DaoExecutor daoExecutor = new DaoExecutor(Math.max(1,
+                DatabaseConnectionManager.getInstance().getMaxPoolSize() - RESERVED_CONNECTIONS));
+        AsyncUserDAO asyncUserDAO = new AsyncUserDAO(userDAO, daoExecutor);
+        AsyncPictureDAO asyncPictureDAO = new AsyncPictureDAO(pictureDAO, daoExecutor);
+        AsyncFollowDAO asyncFollowDAO = new AsyncFollowDAO(followDAO, daoExecutor);
+        AsyncNotificationDAO asyncNotificationDAO = new AsyncNotificationDAO(notificationDAO, daoExecutor);
+        
+        // Feed pages are kept for a minute so switching between views does not re-query
+        FeedCache feedCache = new FeedCache(FEED_CACHE_SIZE, FEED_CACHE_TTL_MS);
+        
+        UserController userController = new UserController(userDAO, followDAO, timelineDAO, feedCache,
+                                                             asyncUserDAO, asyncFollowDAO, daoExecutor);
+        NotificationController notificationController = new NotificationController(notificationDAO, asyncNotificationDAO);
+        PictureController pictureController = new PictureController(pictureDAO, followDAO, timelineDAO,
+                                                                    imageIdDAO, blobStore, notificationController, feedCache,
+                                                                    asyncPictureDAO, daoExecutor);
         SessionController sessionController = new SessionController();
         
-        NavigationController navigationController = new NavigationController();
+        NavigationController navigationController = new NavigationController(sessionController, notificationController);
         
         // Register views as before
         AuthView authView = new AuthView(sessionController, navigationController, userController);
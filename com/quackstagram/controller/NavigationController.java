@@ -2,6 +2,7 @@ package com.quackstagram.controller;
 
 import com.quackstagram.view.BaseView;
 
+import javax.swing.*;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -9,25 +10,101 @@ import java.util.Map;
  * Controller for navigating between views
  */
 public class NavigationController {
+    private final SessionController sessionController;
+    private final NotificationController notificationController;
     private final Map<String, BaseView> views = new HashMap<>();
     private BaseView currentView;
     
     /**
-     * Navigates to a view by name
+     * Constructor for NavigationController
+     * 
+     * @param sessionController controller for user session management
+     * @param notificationController controller the unread notification count is read from
+     */
+    public NavigationController(SessionController sessionController, NotificationController notificationController) {
+        this.sessionController = sessionController;
+        this.notificationController = notificationController;
+    }
+    
+    /**
+     * Navigates to a view by name. Views decide in onShow whether their
+     * content must be reloaded, updated or can be shown as it is.
+     * The unread notification count is read again on the way, except for the
+     * notifications view, which reports it after marking what it shows as read.
      * 
      * @param viewName the name of the view to navigate to
      */
     public void navigateTo(String viewName) {
         if (currentView != null) {
             currentView.setVisible(false);
+            currentView.onHide();
         }
         
         BaseView view = views.get(viewName);
         if (view != null) {
-            view.refreshView();
+            view.onShow();
             view.setVisible(true);
             currentView = view;
         }
+        
+        if (!"notifications".equals(viewName)) {
+            refreshUnreadCount();
+        }
+    }
+    
+    /**
+     * Shows the number of unread notifications in every view
+     * 
+     * @param count the number of unread notifications
+     */
+    public void showUnreadCount(int count) {
+        for (BaseView view : views.values()) {
+            view.showUnreadCount(count);
+        }
+    }
+    
+    private void refreshUnreadCount() {
+        if (!sessionController.isLoggedIn()) {
+            showUnreadCount(0);
+            return;
+        }
+        
+        notificationController.getUnreadCountAsync(sessionController.getCurrentUser().getUsername())
+                .whenComplete((count, error) -> {
+                    if (error == null) {
+                        SwingUtilities.invokeLater(() -> {
+                            showUnreadCount(count);
+                            // So the notifications view fetches them even if it was shown just now
+                            if (count > 0) {
+                                markStale("notifications");
+                            }
+                        });
+                    }
+                });
+    }
+    
+    /**
+     * Makes a view apply updates the next time it is shown
+     * 
+     * @param viewName the name of the view
+     */
+    public void markStale(String viewName) {
+        BaseView view = views.get(viewName);
+        if (view != null) {
+            view.markStale();
+        }
+    }
+    
+    /**
+     * Makes a view rebuild its content the next time it is shown
+     * 
+     * @param viewName the name of the view
+     */
+    public void invalidate(String viewName) {
+        BaseView view = views.get(viewName);
+        if (view != null) {
+            view.requireReload();
+        }
     }
     
     /**
@@ -1,35 +1,77 @@
 package com.quackstagram.controller;
 
+import com.quackstagram.dao.async.AsyncNotificationDAO;
 import com.quackstagram.dao.interfaces.NotificationDAO;
+import com.quackstagram.model.FeedCursor;
 import com.quackstagram.model.Notification;
 import com.quackstagram.model.NotificationType;
+import com.quackstagram.model.Page;
 
 import java.time.LocalDateTime;
-import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Controller for notification-related operations
  */
 public class NotificationController {
     private final NotificationDAO notificationDAO;
+    private final AsyncNotificationDAO asyncNotificationDAO;
     
     /**
      * Constructor for NotificationController
      * 
      * @param notificationDAO DAO for notification operations
+     * @param asyncNotificationDAO the notification DAO calls that run off the Event Dispatch Thread
      */
-    public NotificationController(NotificationDAO notificationDAO) {
+    public NotificationController(NotificationDAO notificationDAO, AsyncNotificationDAO asyncNotificationDAO) {
         this.notificationDAO = notificationDAO;
+        this.asyncNotificationDAO = asyncNotificationDAO;
     }
     
     /**
-     * Retrieves all notifications for a specific user
+     * Retrieves a page of the notifications for a specific user, newest first
      * 
      * @param username the username of the user
-     * @return a list of notifications for the user
+     * @param cursor the position after the previous page, or null for the first page
+     * @param limit the maximum number of notifications to return
+     * @return the page of notifications and the cursor for the next page
      */
-    public List<Notification> getNotifications(String username) {
-        return notificationDAO.findByReceiver(username);
+    public Page<Notification> getNotifications(String username, FeedCursor cursor, int limit) {
+        return notificationDAO.findByReceiver(username, cursor, limit);
+    }
+    
+    /**
+     * Retrieves a page of the notifications for a specific user in the background
+     * 
+     * @param username the username of the user
+     * @param cursor the position after the previous page, or null for the first page
+     * @param limit the maximum number of notifications to return
+     * @return a future completed with the page of notifications
+     */
+    public CompletableFuture<Page<Notification>> getNotificationsAsync(String username, FeedCursor cursor, int limit) {
+        return asyncNotificationDAO.findByReceiver(username, cursor, limit);
+    }
+    
+    /**
+     * Counts in the background the notifications a user has not seen yet
+     * 
+     * @param username the username of the user
+     * @return a future completed with the number of unread notifications
+     */
+    public CompletableFuture<Integer> getUnreadCountAsync(String username) {
+        return asyncNotificationDAO.countUnread(username);
+    }
+    
+    /**
+     * Marks in the background the notifications a user got up to a point in time as seen
+     * 
+     * @param username the username of the user
+     * @param upTo the timestamp of the newest notification seen
+     * @return a future completed with the number of notifications still unread
+     */
+    public CompletableFuture<Integer> markReadAsync(String username, LocalDateTime upTo) {
+        return asyncNotificationDAO.markRead(username, upTo)
+                .thenCompose(ignored -> asyncNotificationDAO.countUnread(username));
     }
     
     /**
@@ -1,39 +1,81 @@
 package com.quackstagram.controller;
 
+import com.quackstagram.dao.async.AsyncPictureDAO;
+import com.quackstagram.dao.interfaces.FollowDAO;
+import com.quackstagram.dao.interfaces.ImageIdDAO;
 import com.quackstagram.dao.interfaces.PictureDAO;
-import com.quackstagram.dao.interfaces.UserDAO;
+import com.quackstagram.dao.interfaces.TimelineDAO;
+import com.quackstagram.model.FeedCursor;
+import com.quackstagram.model.Page;
 import com.quackstagram.model.Picture;
-import com.quackstagram.model.User;
+import com.quackstagram.util.BlobStore;
+import com.quackstagram.util.DaoExecutor;
+import com.quackstagram.util.FeedCache;
+import com.quackstagram.util.ThumbnailStore;
 
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
-import java.nio.file.StandardCopyOption;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Controller for picture-related operations
  */
 public class PictureController {
+    /** Maximum number of entries kept in each user's materialized timeline */
+    public static final int TIMELINE_CAP = 500;
+    /** Authors with more followers than this are merged into home feeds at read time instead of fanned out */
+    public static final int FANOUT_FOLLOWER_LIMIT = 1000;
+    
+    private static final Comparator<Picture> NEWEST_FIRST = Comparator.comparing(Picture::getTimestamp)
+            .thenComparing(Picture::getImageId)
+            .reversed();
+    
     private final PictureDAO pictureDAO;
-    private final UserDAO userDAO;
+    private final FollowDAO followDAO;
+    private final TimelineDAO timelineDAO;
+    private final ImageIdDAO imageIdDAO;
+    private final BlobStore blobStore;
     private final NotificationController notificationController;
-    private final String uploadedImagesPath = "img/uploaded/";
+    private final FeedCache feedCache;
+    private final AsyncPictureDAO asyncPictureDAO;
+    private final DaoExecutor daoExecutor;
 
     /**
      * Constructor for PictureController
      * 
      * @param pictureDAO DAO for picture operations
-     * @param userDAO DAO for user operations
+     * @param followDAO DAO for following relationships
+     * @param timelineDAO DAO for the materialized home timelines
+     * @param imageIdDAO DAO that allocates the IDs of new pictures
+     * @param blobStore content-addressed storage for the image files
      * @param notificationController controller for notification operations
+     * @param feedCache cache for feed pages, shared with the user controller
+     * @param asyncPictureDAO the picture DAO calls that run off the Event Dispatch Thread
+     * @param daoExecutor the executor that operations made of several DAO calls run on
      */
-    public PictureController(PictureDAO pictureDAO, UserDAO userDAO, NotificationController notificationController) {
+    public PictureController(PictureDAO pictureDAO, FollowDAO followDAO, TimelineDAO timelineDAO,
+                             ImageIdDAO imageIdDAO, BlobStore blobStore, NotificationController notificationController,
+                             FeedCache feedCache, AsyncPictureDAO asyncPictureDAO, DaoExecutor daoExecutor) {
         this.pictureDAO = pictureDAO;
-        this.userDAO = userDAO;
+        this.followDAO = followDAO;
+        this.timelineDAO = timelineDAO;
+        this.imageIdDAO = imageIdDAO;
+        this.blobStore = blobStore;
         this.notificationController = notificationController;
+        this.feedCache = feedCache;
+        this.asyncPictureDAO = asyncPictureDAO;
+        this.daoExecutor = daoExecutor;
     }
     
     /**
@@ -46,6 +88,16 @@ public class PictureController {
         return pictureDAO.findByUsername(username);
     }
     
+    /**
+     * Retrieves the pictures of a specific user in the background
+     * 
+     * @param username the username of the user
+     * @return a future completed with a list of pictures from the user
+     */
+    public CompletableFuture<List<Picture>> getUserPicturesAsync(String username) {
+        return asyncPictureDAO.findByUsername(username);
+    }
+    
     /**
      * Retrieves pictures for the user's home feed from followed users
      * 
@@ -65,6 +117,132 @@ public class PictureController {
         return pictureDAO.getAllPictures();
     }
     
+    /**
+     * Retrieves one page of the user's home feed from followed users.
+     * Pages are read from the user's materialized timeline and merged with the
+     * pictures of followed accounts that are too popular to fan out. A timeline
+     * only keeps the newest TIMELINE_CAP entries, so once a trimmed timeline runs
+     * out the feed continues with the join over Follows and Pictures.
+     * 
+     * @param username the username of the user
+     * @param cursor the cursor returned with the previous page, or null for the first page
+     * @param limit the maximum number of pictures to return
+     * @return a page of pictures from followed users
+     */
+    public Page<Picture> getHomeFeedPage(String username, FeedCursor cursor, int limit) {
+        String feed = FeedCache.homeFeed(username);
+        Page<Picture> page = feedCache.get(feed, cursor, limit);
+        if (page == null) {
+            page = loadHomeFeedPage(username, cursor, limit);
+            feedCache.put(feed, cursor, limit, page);
+        }
+        return page;
+    }
+    
+    /**
+     * Retrieves one page of the user's home feed in the background
+     * 
+     * @param username the username of the user
+     * @param cursor the cursor returned with the previous page, or null for the first page
+     * @param limit the maximum number of pictures to return
+     * @return a future completed with a page of pictures from followed users
+     */
+    public CompletableFuture<Page<Picture>> getHomeFeedPageAsync(String username, FeedCursor cursor, int limit) {
+        return daoExecutor.supply(() -> getHomeFeedPage(username, cursor, limit));
+    }
+    
+    /**
+     * Reads one page of the home feed, bypassing the feed cache
+     * 
+     * @param username the username of the user
+     * @param cursor the cursor returned with the previous page, or null for the first page
+     * @param limit the maximum number of pictures to return
+     * @return a page of pictures from followed users
+     */
+    private Page<Picture> loadHomeFeedPage(String username, FeedCursor cursor, int limit) {
+        Page<Picture> timeline = timelineDAO.getTimeline(username, cursor, limit);
+        // Only a timeline trimmed at the cap is missing older pictures
+        if (!timeline.hasMore() && timelineDAO.isTrimmed(username)) {
+            return pictureDAO.getFollowedUsersPictures(username, cursor, limit);
+        }
+        
+        try {
+            List<String> popular = followDAO.getFollowingWithFollowersAbove(username, FANOUT_FOLLOWER_LIMIT);
+            if (popular.isEmpty()) {
+                return timeline;
+            }
+            return merge(timeline, pictureDAO.findByUsernames(popular, cursor, limit), limit);
+        } catch (IOException e) {
+            e.printStackTrace();
+            return timeline;
+        }
+    }
+    
+    /**
+     * Merges a timeline page with pictures read directly from popular authors
+     * 
+     * @param timeline a page of the timeline
+     * @param direct a page of pictures from popular authors after the same cursor
+     * @param limit the maximum number of pictures to return
+     * @return the newest pictures of both pages
+     */
+    private Page<Picture> merge(Page<Picture> timeline, Page<Picture> direct, int limit) {
+        // An author may have been fanned out before becoming popular
+        Map<String, Picture> byId = new LinkedHashMap<>();
+        for (Picture picture : timeline.getItems()) {
+            byId.putIfAbsent(picture.getImageId(), picture);
+        }
+        for (Picture picture : direct.getItems()) {
+            byId.putIfAbsent(picture.getImageId(), picture);
+        }
+        
+        List<Picture> merged = new ArrayList<>(byId.values());
+        merged.sort(NEWEST_FIRST);
+        List<Picture> items = new ArrayList<>(merged.subList(0, Math.min(limit, merged.size())));
+        if (!timeline.hasMore() && !direct.hasMore() && merged.size() <= limit) {
+            return new Page<>(items, null);
+        }
+        return new Page<>(items, FeedCursor.after(items.get(items.size() - 1)));
+    }
+    
+    /**
+     * Retrieves one page of all pictures for the explore view
+     * 
+     * @param cursor the cursor returned with the previous page, or null for the first page
+     * @param limit the maximum number of pictures to return
+     * @return a page of pictures
+     */
+    public Page<Picture> getExplorePage(FeedCursor cursor, int limit) {
+        Page<Picture> page = feedCache.get(FeedCache.EXPLORE_FEED, cursor, limit);
+        if (page == null) {
+            page = pictureDAO.getAllPictures(cursor, limit);
+            feedCache.put(FeedCache.EXPLORE_FEED, cursor, limit, page);
+        }
+        return page;
+    }
+    
+    /**
+     * Retrieves one page of all pictures for the explore view in the background
+     * 
+     * @param cursor the cursor returned with the previous page, or null for the first page
+     * @param limit the maximum number of pictures to return
+     * @return a future completed with a page of pictures
+     */
+    public CompletableFuture<Page<Picture>> getExplorePageAsync(FeedCursor cursor, int limit) {
+        return daoExecutor.supply(() -> getExplorePage(cursor, limit));
+    }
+    
+    /**
+     * Retrieves the current likes count of pictures already on screen, so a view can
+     * update them without reloading its pages. The query runs in the background.
+     * 
+     * @param imageIds the IDs of the pictures
+     * @return a future completed with the likes count by image ID; deleted pictures are left out
+     */
+    public CompletableFuture<Map<String, Integer>> getLikesCountsAsync(Collection<String> imageIds) {
+        return asyncPictureDAO.getLikesCounts(List.copyOf(imageIds));
+    }
+    
     /**
      * Saves a new picture
      * 
@@ -74,23 +252,71 @@ public class PictureController {
      * @return true if save successful, false otherwise
      */
     public boolean savePicture(String username, File imageFile, String caption) {
+        try (InputStream in = Files.newInputStream(imageFile.toPath())) {
+            return savePicture(username, in, caption);
+        } catch (IOException e) {
+            e.printStackTrace();
+            return false;
+        }
+    }
+    
+    /**
+     * Saves a new picture from an encoded image stream
+     * 
+     * @param username the username of the user posting the picture
+     * @param imageStream the encoded image, in any format ImageIO can read; not closed
+     * @param caption the caption for the picture
+     * @return true if save successful, false otherwise
+     */
+    public boolean savePicture(String username, InputStream imageStream, String caption) {
         try {
-            String imageId = username + "_" + getNextImageId(username);
-            
-            Picture picture = new Picture(imageId, username, uploadedImagesPath + imageId + ".png", 
-                                        caption, LocalDateTime.now());
+            BufferedImage image = ImageIO.read(imageStream);
+            if (image == null) {
+                throw new IOException("Unsupported image format");
+            }
+            return savePicture(username, image, caption);
+        } catch (IOException e) {
+            e.printStackTrace();
+            return false;
+        }
+    }
+    
+    /**
+     * Saves a new picture. The image is encoded and hashed once and stored in the
+     * blob store; content that is already stored is not written again. Thumbnails
+     * of new content are scaled from the decoded pixels while the picture's rows
+     * are written.
+     * 
+     * @param username the username of the user posting the picture
+     * @param image the decoded image
+     * @param caption the caption for the picture
+     * @return true if save successful, false otherwise
+     */
+    public boolean savePicture(String username, BufferedImage image, String caption) {
+        try {
+            String imageId = username + "_" + imageIdDAO.nextImageId(username);
             
-            Path destPath = Paths.get(uploadedImagesPath, imageId + ".png");
-            Files.copy(imageFile.toPath(), destPath, StandardCopyOption.REPLACE_EXISTING);
+            BlobStore.Blob blob = blobStore.put(image);
+            Picture picture = new Picture(imageId, username, blob.getPath(), caption, LocalDateTime.now());
             
-            pictureDAO.save(picture);
+            // Duplicates already have their thumbnails
+            CompletableFuture<Void> variants = CompletableFuture.completedFuture(null);
+            if (blob.isCreated()) {
+                ThumbnailStore thumbnails = ThumbnailStore.getInstance();
+                variants = CompletableFuture.runAsync(() ->
+                        thumbnails.storeVariants(blob.getPath(), blob.getHash(), thumbnails.scaleVariants(image)));
+            }
             
-            User user = userDAO.findByUsername(username);
-            if (user != null) {
-                user.setPostCount(pictureDAO.findByUsername(username).size());
-                userDAO.update(user);
+            if (!pictureDAO.save(picture)) {
+                // Drop the reference taken above; new content is removed again
+                variants.join();
+                blobStore.release(blob.getPath());
+                return false;
             }
+            fanOut(picture);
+            invalidateFeedsShowing(username);
             
+            variants.join();
             return true;
         } catch (IOException e) {
             e.printStackTrace();
@@ -98,6 +324,56 @@ public class PictureController {
         }
     }
     
+    /**
+     * Saves a new picture in the background
+     * 
+     * @param username the username of the user posting the picture
+     * @param image the decoded image
+     * @param caption the caption for the picture
+     * @return a future completed with true if save successful, false otherwise
+     */
+    public CompletableFuture<Boolean> savePictureAsync(String username, BufferedImage image, String caption) {
+        return daoExecutor.supply(() -> savePicture(username, image, caption));
+    }
+    
+    /**
+     * Writes a new picture into the timelines of the author's followers,
+     * unless the author has too many followers to fan out
+     * 
+     * @param picture the picture that was posted
+     */
+    private void fanOut(Picture picture) {
+        try {
+            String author = picture.getUsername();
+            if (followDAO.countFollowers(author) > FANOUT_FOLLOWER_LIMIT) {
+                return;
+            }
+            timelineDAO.fanOut(picture, followDAO.getFollowers(author), TIMELINE_CAP);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+    
+    /**
+     * Drops the cached feed pages that a new picture by an author should appear in
+     * 
+     * @param author the username of the author
+     */
+    private void invalidateFeedsShowing(String author) {
+        feedCache.invalidateFeed(FeedCache.EXPLORE_FEED);
+        // Only cached feeds matter, so check those owners rather than every follower
+        for (String owner : feedCache.getCachedHomeFeedOwners()) {
+            try {
+                if (followDAO.isFollowing(owner, author)) {
+                    feedCache.invalidateFeed(FeedCache.homeFeed(owner));
+                }
+            } catch (IOException e) {
+                e.printStackTrace();
+                feedCache.invalidateFeed(FeedCache.homeFeed(owner));
+            }
+        }
+    }
+    
     /**
      * Adds a like to a picture and creates a notification
      * 
@@ -109,41 +385,42 @@ public class PictureController {
         if (picture != null) {
             picture.like();
             pictureDAO.update(picture);
+            feedCache.invalidateImage(imageId);
             
             notificationController.createLikeNotification(username, picture.getUsername(), imageId);
         }
     }
     
     /**
-     * Generates the next available image ID for a user
+     * Adds a like to a picture and creates a notification in the background
      * 
-     * @param username the username of the user
-     * @return the next available ID
-     * @throws IOException if an I/O error occurs
+     * @param username the username of the user liking the picture
+     * @param imageId the ID of the picture being liked
+     * @return a future completed once the like is stored
+     */
+    public CompletableFuture<Void> likePictureAsync(String username, String imageId) {
+        return daoExecutor.run(() -> likePicture(username, imageId));
+    }
+    
+    /**
+     * Deletes a picture, and its image file if no other picture shows the same content
+     * 
+     * @param imageId the ID of the picture to delete
+     * @return true if the picture was deleted, false otherwise
      */
-    private int getNextImageId(String username) throws IOException {
-        Path storageDir = Paths.get(uploadedImagesPath);
-        if (!Files.exists(storageDir)) {
-            Files.createDirectories(storageDir);
+    public boolean deletePicture(String imageId) {
+        Picture picture = pictureDAO.findById(imageId);
+        if (picture == null || !pictureDAO.delete(imageId)) {
+            return false;
         }
+        feedCache.invalidateImage(imageId);
         
-        int maxId = 0;
-        try (var stream = Files.newDirectoryStream(storageDir, username + "_*")) {
-            for (Path path : stream) {
-                String fileName = path.getFileName().toString();
-                int idEndIndex = fileName.lastIndexOf('.');
-                if (idEndIndex != -1) {
-                    String idStr = fileName.substring(username.length() + 1, idEndIndex);
-                    try {
-                        int id = Integer.parseInt(idStr);
-                        if (id > maxId) {
-                            maxId = id;
-                        }
-                    } catch (NumberFormatException ex) {
-                    }
-                }
-            }
+        // Only once the row is gone, so the file is never removed while a picture points at it
+        try {
+            blobStore.release(picture.getImagePath());
+        } catch (IOException e) {
+            e.printStackTrace();
         }
-        return maxId + 1;
+        return true;
     }
 }
\ No newline at end of file
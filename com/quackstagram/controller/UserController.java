@@ -1,11 +1,17 @@
 package com.quackstagram.controller;
 
+import com.quackstagram.dao.async.AsyncFollowDAO;
+import com.quackstagram.dao.async.AsyncUserDAO;
 import com.quackstagram.dao.interfaces.FollowDAO;
+import com.quackstagram.dao.interfaces.TimelineDAO;
 import com.quackstagram.dao.interfaces.UserDAO;
 import com.quackstagram.model.User;
+import com.quackstagram.util.DaoExecutor;
+import com.quackstagram.util.FeedCache;
 
 import java.io.IOException;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Controller for user-related operations
@@ -13,16 +19,32 @@ import java.util.List;
 public class UserController {
     private final UserDAO userDAO;
     private final FollowDAO followDAO;
+    private final TimelineDAO timelineDAO;
+    private final FeedCache feedCache;
+    private final AsyncUserDAO asyncUserDAO;
+    private final AsyncFollowDAO asyncFollowDAO;
+    private final DaoExecutor daoExecutor;
 
     /**
      * Constructor for UserController
      * 
      * @param userDAO DAO for user operations
      * @param followDAO DAO for following relationships
+     * @param timelineDAO DAO for the materialized home timelines
+     * @param feedCache cache for feed pages, shared with the picture controller
+     * @param asyncUserDAO the user DAO calls that run off the Event Dispatch Thread
+     * @param asyncFollowDAO the follow DAO calls that run off the Event Dispatch Thread
+     * @param daoExecutor the executor that operations made of several DAO calls run on
      */
-    public UserController(UserDAO userDAO, FollowDAO followDAO) {
+    public UserController(UserDAO userDAO, FollowDAO followDAO, TimelineDAO timelineDAO, FeedCache feedCache,
+                          AsyncUserDAO asyncUserDAO, AsyncFollowDAO asyncFollowDAO, DaoExecutor daoExecutor) {
         this.userDAO = userDAO;
         this.followDAO = followDAO;
+        this.timelineDAO = timelineDAO;
+        this.feedCache = feedCache;
+        this.asyncUserDAO = asyncUserDAO;
+        this.asyncFollowDAO = asyncFollowDAO;
+        this.daoExecutor = daoExecutor;
     }
     
     /**
@@ -32,11 +54,17 @@ public class UserController {
      * @return the User if found, null otherwise
      */
     public User getUser(String username) {
-        User user = userDAO.findByUsername(username);
-        if (user != null) {
-            updateUserStats(user);
-        }
-        return user;
+        return userDAO.findProfile(username);
+    }
+    
+    /**
+     * Retrieves a user by username, with their counters, in the background
+     * 
+     * @param username the username to search for
+     * @return a future completed with the User if found, null otherwise
+     */
+    public CompletableFuture<User> getUserAsync(String username) {
+        return asyncUserDAO.findProfile(username);
     }
     
     /**
@@ -77,18 +105,29 @@ public class UserController {
             if (!followDAO.isFollowing(follower, followed)) {
                 followDAO.follow(follower, followed);
                 
-                User followerUser = userDAO.findByUsername(follower);
-                User followedUser = userDAO.findByUsername(followed);
-                
-                if (followerUser != null) {
-                    followerUser.setFollowingCount(followDAO.getFollowing(follower).size());
-                    userDAO.update(followerUser);
-                }
-                
-                if (followedUser != null) {
-                    followedUser.setFollowersCount(followDAO.getFollowers(followed).size());
-                    userDAO.update(followedUser);
+                // Popular accounts are merged into the feed at read time
+                if (followDAO.countFollowers(followed) <= PictureController.FANOUT_FOLLOWER_LIMIT) {
+                    timelineDAO.backfill(follower, followed, PictureController.TIMELINE_CAP);
                 }
+                feedCache.invalidateFeed(FeedCache.homeFeed(follower));
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+    
+    /**
+     * Removes a following relationship between users
+     * 
+     * @param follower the username of the follower
+     * @param followed the username of the followed user
+     */
+    public void unfollowUser(String follower, String followed) {
+        try {
+            if (followDAO.isFollowing(follower, followed)) {
+                followDAO.unfollow(follower, followed);
+                timelineDAO.prune(follower, followed);
+                feedCache.invalidateFeed(FeedCache.homeFeed(follower));
             }
         } catch (IOException e) {
             e.printStackTrace();
@@ -134,29 +173,53 @@ public class UserController {
      */
     public User authenticate(String username, String password) {
         if (userDAO.verifyCredentials(username, password)) {
-            User user = userDAO.findByUsername(username);
-            if (user != null) {
-                updateUserStats(user);
-            }
-            return user;
+            return userDAO.findProfile(username);
         }
         return null;
     }
     
     /**
-     * Updates user statistics (post count, followers, following)
+     * Checks if a user is following another user
      * 
-     * @param user the user to update stats for
+     * @param follower the username of the follower
+     * @param followed the username of the followed user
+     * @return true if follower is following followed, false otherwise
      */
-    private void updateUserStats(User user) {
+    public boolean isFollowing(String follower, String followed) {
         try {
-            int followersCount = followDAO.getFollowers(user.getUsername()).size();
-            int followingCount = followDAO.getFollowing(user.getUsername()).size();
-            
-            user.setFollowersCount(followersCount);
-            user.setFollowingCount(followingCount);
+            return followDAO.isFollowing(follower, followed);
         } catch (IOException e) {
             e.printStackTrace();
+            return false;
         }
     }
+    
+    /**
+     * Checks in the background if a user is following another user
+     * 
+     * @param follower the username of the potential follower
+     * @param followed the username of the potentially followed user
+     * @return a future completed with true if follower is following followed
+     */
+    public CompletableFuture<Boolean> isFollowingAsync(String follower, String followed) {
+        return asyncFollowDAO.isFollowing(follower, followed);
+    }
+    
+    /**
+     * Follows a user who is not followed yet, or unfollows one who is, in the background
+     * 
+     * @param follower the username of the follower
+     * @param followed the username of the followed user
+     * @return a future completed with true if follower now follows followed
+     */
+    public CompletableFuture<Boolean> toggleFollowAsync(String follower, String followed) {
+        return daoExecutor.supply(() -> {
+            if (isFollowing(follower, followed)) {
+                unfollowUser(follower, followed);
+                return false;
+            }
+            followUser(follower, followed);
+            return true;
+        });
+    }
 }
\ No newline at end of file
@@ -0,0 +1,111 @@
+package com.quackstagram.dao.async;
+
+import com.quackstagram.dao.interfaces.FollowDAO;
+import com.quackstagram.util.DaoExecutor;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Asynchronous facade over a FollowDAO. Each operation runs on the DaoExecutor and
+ * returns at once; the future fails with the IOException it throws.
+ */
+public class AsyncFollowDAO {
+    private final FollowDAO followDAO;
+    private final DaoExecutor executor;
+    
+    /**
+     * Constructor for AsyncFollowDAO
+     * 
+     * @param followDAO the DAO the calls are delegated to
+     * @param executor the executor the calls run on
+     */
+    public AsyncFollowDAO(FollowDAO followDAO, DaoExecutor executor) {
+        this.followDAO = followDAO;
+        this.executor = executor;
+    }
+    
+    /**
+     * Creates a following relationship between users
+     * 
+     * @param follower the username of the follower
+     * @param followed the username of the followed user
+     * @return a future completed once the call is done
+     */
+    public CompletableFuture<Void> follow(String follower, String followed) {
+        return executor.run(() -> followDAO.follow(follower, followed));
+    }
+    
+    /**
+     * Removes a following relationship between users
+     * 
+     * @param follower the username of the follower
+     * @param followed the username of the followed user
+     * @return a future completed once the call is done
+     */
+    public CompletableFuture<Void> unfollow(String follower, String followed) {
+        return executor.run(() -> followDAO.unfollow(follower, followed));
+    }
+    
+    /**
+     * Retrieves all followers of a user
+     * 
+     * @param username the username of the user
+     * @return a future completed with a list of usernames of followers
+     */
+    public CompletableFuture<List<String>> getFollowers(String username) {
+        return executor.supply(() -> followDAO.getFollowers(username));
+    }
+    
+    /**
+     * Retrieves all users that a user is following
+     * 
+     * @param username the username of the user
+     * @return a future completed with a list of usernames of followed users
+     */
+    public CompletableFuture<List<String>> getFollowing(String username) {
+        return executor.supply(() -> followDAO.getFollowing(username));
+    }
+    
+    /**
+     * Counts the followers of a user without loading them
+     * 
+     * @param username the username of the user
+     * @return a future completed with the number of followers
+     */
+    public CompletableFuture<Integer> countFollowers(String username) {
+        return executor.supply(() -> followDAO.countFollowers(username));
+    }
+    
+    /**
+     * Counts the users that a user is following without loading them
+     * 
+     * @param username the username of the user
+     * @return a future completed with the number of followed users
+     */
+    public CompletableFuture<Integer> countFollowing(String username) {
+        return executor.supply(() -> followDAO.countFollowing(username));
+    }
+    
+    /**
+     * Gets the users followed by a user that have more than a given number of followers
+     * 
+     * @param username the username of the user
+     * @param threshold the follower count the followed users must exceed
+     * @return a future completed with a list of usernames
+     */
+    public CompletableFuture<List<String>> getFollowingWithFollowersAbove(String username, int threshold) {
+        return executor.supply(() -> followDAO.getFollowingWithFollowersAbove(username, threshold));
+    }
+    
+    /**
+     * Checks if a user is following another user
+     * 
+     * @param follower the username of the follower
+     * @param followed the username of the followed user
+     * @return a future completed with true if follower is following followed, false otherwise
+     */
+    public CompletableFuture<Boolean> isFollowing(String follower, String followed) {
+        return executor.supply(() -> followDAO.isFollowing(follower, followed));
+    }
+}
\ No newline at end of file
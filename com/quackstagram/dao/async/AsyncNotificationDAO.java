@@ -0,0 +1,83 @@
+package com.quackstagram.dao.async;
+
+import com.quackstagram.dao.interfaces.NotificationDAO;
+import com.quackstagram.model.FeedCursor;
+import com.quackstagram.model.Notification;
+import com.quackstagram.model.Page;
+import com.quackstagram.util.DaoExecutor;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Asynchronous facade over a NotificationDAO. Each operation runs on the DaoExecutor and
+ * returns at once; the future fails with any exception it throws.
+ */
+public class AsyncNotificationDAO {
+    private final NotificationDAO notificationDAO;
+    private final DaoExecutor executor;
+    
+    /**
+     * Constructor for AsyncNotificationDAO
+     * 
+     * @param notificationDAO the DAO the calls are delegated to
+     * @param executor the executor the calls run on
+     */
+    public AsyncNotificationDAO(NotificationDAO notificationDAO, DaoExecutor executor) {
+        this.notificationDAO = notificationDAO;
+        this.executor = executor;
+    }
+    
+    /**
+     * Retrieves a page of the notifications for a receiver, newest first
+     * 
+     * @param username the username of the receiver
+     * @param cursor the position after the previous page, or null for the first page
+     * @param limit the maximum number of notifications to return
+     * @return a future completed with the page of notifications and the cursor for the next page
+     */
+    public CompletableFuture<Page<Notification>> findByReceiver(String username, FeedCursor cursor, int limit) {
+        return executor.supply(() -> notificationDAO.findByReceiver(username, cursor, limit));
+    }
+    
+    /**
+     * Counts the notifications a receiver has not seen yet
+     * 
+     * @param username the username of the receiver
+     * @return a future completed with the number of unread notifications
+     */
+    public CompletableFuture<Integer> countUnread(String username) {
+        return executor.supply(() -> notificationDAO.countUnread(username));
+    }
+    
+    /**
+     * Marks the notifications a receiver got up to a point in time as seen
+     * 
+     * @param username the username of the receiver
+     * @param upTo the timestamp of the newest notification seen
+     * @return a future completed once the call is done
+     */
+    public CompletableFuture<Void> markRead(String username, LocalDateTime upTo) {
+        return executor.run(() -> notificationDAO.markRead(username, upTo));
+    }
+    
+    /**
+     * Saves a new notification
+     * 
+     * @param notification the notification to save
+     * @return a future completed once the call is done
+     */
+    public CompletableFuture<Void> save(Notification notification) {
+        return executor.run(() -> notificationDAO.save(notification));
+    }
+    
+    /**
+     * Deletes a notification by ID
+     * 
+     * @param id the ID of the notification to delete
+     * @return a future completed once the call is done
+     */
+    public CompletableFuture<Void> delete(String id) {
+        return executor.run(() -> notificationDAO.delete(id));
+    }
+}
\ No newline at end of file
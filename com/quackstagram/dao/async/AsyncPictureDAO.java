@@ -0,0 +1,157 @@
+package com.quackstagram.dao.async;
+
+import com.quackstagram.dao.interfaces.PictureDAO;
+import com.quackstagram.model.FeedCursor;
+import com.quackstagram.model.Page;
+import com.quackstagram.model.Picture;
+import com.quackstagram.util.DaoExecutor;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Asynchronous facade over a PictureDAO. Each operation runs on the DaoExecutor and
+ * returns at once; the future fails with any exception it throws.
+ */
+public class AsyncPictureDAO {
+    private final PictureDAO pictureDAO;
+    private final DaoExecutor executor;
+    
+    /**
+     * Constructor for AsyncPictureDAO
+     * 
+     * @param pictureDAO the DAO the calls are delegated to
+     * @param executor the executor the calls run on
+     */
+    public AsyncPictureDAO(PictureDAO pictureDAO, DaoExecutor executor) {
+        this.pictureDAO = pictureDAO;
+        this.executor = executor;
+    }
+    
+    /**
+     * Finds a picture by ID
+     * 
+     * @param imageId the ID of the picture
+     * @return a future completed with the Picture if found, null otherwise
+     */
+    public CompletableFuture<Picture> findById(String imageId) {
+        return executor.supply(() -> pictureDAO.findById(imageId));
+    }
+    
+    /**
+     * Finds all pictures by a user
+     * 
+     * @param username the username of the user
+     * @return a future completed with a list of pictures from the user
+     */
+    public CompletableFuture<List<Picture>> findByUsername(String username) {
+        return executor.supply(() -> pictureDAO.findByUsername(username));
+    }
+    
+    /**
+     * Counts the pictures posted by a user without loading them
+     * 
+     * @param username the username of the user
+     * @return a future completed with the number of pictures the user has posted
+     */
+    public CompletableFuture<Integer> countByUsername(String username) {
+        return executor.supply(() -> pictureDAO.countByUsername(username));
+    }
+    
+    /**
+     * Saves a new picture
+     * 
+     * @param picture the picture to save
+     * @return a future completed with true if the picture was stored, false otherwise
+     */
+    public CompletableFuture<Boolean> save(Picture picture) {
+        return executor.supply(() -> pictureDAO.save(picture));
+    }
+    
+    /**
+     * Updates an existing picture
+     * 
+     * @param picture the picture to update
+     * @return a future completed once the call is done
+     */
+    public CompletableFuture<Void> update(Picture picture) {
+        return executor.run(() -> pictureDAO.update(picture));
+    }
+    
+    /**
+     * Deletes a picture by ID
+     * 
+     * @param imageId the ID of the picture to delete
+     * @return a future completed with true if the picture existed and was deleted, false otherwise
+     */
+    public CompletableFuture<Boolean> delete(String imageId) {
+        return executor.supply(() -> pictureDAO.delete(imageId));
+    }
+    
+    /**
+     * Retrieves pictures from users that a user follows
+     * 
+     * @param username the username of the user
+     * @return a future completed with a list of pictures from followed users
+     */
+    public CompletableFuture<List<Picture>> getFollowedUsersPictures(String username) {
+        return executor.supply(() -> pictureDAO.getFollowedUsersPictures(username));
+    }
+    
+    /**
+     * Retrieves all pictures
+     * 
+     * @return a future completed with a list of all pictures
+     */
+    public CompletableFuture<List<Picture>> getAllPictures() {
+        return executor.supply(() -> pictureDAO.getAllPictures());
+    }
+    
+    /**
+     * Retrieves one page of pictures from users that a user follows, newest first
+     * 
+     * @param username the username of the user
+     * @param cursor the position after the previous page, or null for the first page
+     * @param limit the maximum number of pictures to return
+     * @return a future completed with the page of pictures and the cursor for the next page
+     */
+    public CompletableFuture<Page<Picture>> getFollowedUsersPictures(String username, FeedCursor cursor, int limit) {
+        return executor.supply(() -> pictureDAO.getFollowedUsersPictures(username, cursor, limit));
+    }
+    
+    /**
+     * Retrieves one page of all pictures, newest first
+     * 
+     * @param cursor the position after the previous page, or null for the first page
+     * @param limit the maximum number of pictures to return
+     * @return a future completed with the page of pictures and the cursor for the next page
+     */
+    public CompletableFuture<Page<Picture>> getAllPictures(FeedCursor cursor, int limit) {
+        return executor.supply(() -> pictureDAO.getAllPictures(cursor, limit));
+    }
+    
+    /**
+     * Retrieves one page of pictures posted by any of the given users, newest first
+     * 
+     * @param usernames the usernames of the authors
+     * @param cursor the position after the previous page, or null for the first page
+     * @param limit the maximum number of pictures to return
+     * @return a future completed with the page of pictures and the cursor for the next page
+     */
+    public CompletableFuture<Page<Picture>> findByUsernames(Collection<String> usernames, FeedCursor cursor, int limit) {
+        return executor.supply(() -> pictureDAO.findByUsernames(usernames, cursor, limit));
+    }
+    
+    /**
+     * Retrieves the current likes count of several pictures
+     * 
+     * @param imageIds the IDs of the pictures
+     * @return a future completed with the likes count by image ID; pictures that no longer exist are left out,
+     *         and the map is empty if the counts could not be read
+     */
+    public CompletableFuture<Map<String, Integer>> getLikesCounts(Collection<String> imageIds) {
+        return executor.supply(() -> pictureDAO.getLikesCounts(imageIds));
+    }
+}
\ No newline at end of file
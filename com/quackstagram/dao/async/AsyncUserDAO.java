@@ -0,0 +1,98 @@
+package com.quackstagram.dao.async;
+
+import com.quackstagram.dao.interfaces.UserDAO;
+import com.quackstagram.model.User;
+import com.quackstagram.util.DaoExecutor;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Asynchronous facade over a UserDAO. Each operation runs on the DaoExecutor and
+ * returns at once; the future fails with any exception it throws.
+ */
+public class AsyncUserDAO {
+    private final UserDAO userDAO;
+    private final DaoExecutor executor;
+    
+    /**
+     * Constructor for AsyncUserDAO
+     * 
+     * @param userDAO the DAO the calls are delegated to
+     * @param executor the executor the calls run on
+     */
+    public AsyncUserDAO(UserDAO userDAO, DaoExecutor executor) {
+        this.userDAO = userDAO;
+        this.executor = executor;
+    }
+    
+    /**
+     * Finds a user by username
+     * 
+     * @param username the username to search for
+     * @return a future completed with the User if found, null otherwise
+     */
+    public CompletableFuture<User> findByUsername(String username) {
+        return executor.supply(() -> userDAO.findByUsername(username));
+    }
+    
+    /**
+     * Finds a user by username together with their post, follower and following counts
+     * 
+     * @param username the username to search for
+     * @return a future completed with the User with its counters filled in if found, null otherwise
+     */
+    public CompletableFuture<User> findProfile(String username) {
+        return executor.supply(() -> userDAO.findProfile(username));
+    }
+    
+    /**
+     * Saves a new user
+     * 
+     * @param user the user to save
+     * @return a future completed once the call is done
+     */
+    public CompletableFuture<Void> save(User user) {
+        return executor.run(() -> userDAO.save(user));
+    }
+    
+    /**
+     * Updates an existing user
+     * 
+     * @param user the user to update
+     * @return a future completed once the call is done
+     */
+    public CompletableFuture<Void> update(User user) {
+        return executor.run(() -> userDAO.update(user));
+    }
+    
+    /**
+     * Deletes a user by username
+     * 
+     * @param username the username of the user to delete
+     * @return a future completed once the call is done
+     */
+    public CompletableFuture<Void> delete(String username) {
+        return executor.run(() -> userDAO.delete(username));
+    }
+    
+    /**
+     * Retrieves all users
+     * 
+     * @return a future completed with a list of all users
+     */
+    public CompletableFuture<List<User>> getAllUsers() {
+        return executor.supply(() -> userDAO.getAllUsers());
+    }
+    
+    /**
+     * Verifies user credentials
+     * 
+     * @param username the username
+     * @param password the password
+     * @return a future completed with true if credentials are valid, false otherwise
+     */
+    public CompletableFuture<Boolean> verifyCredentials(String username, String password) {
+        return executor.supply(() -> userDAO.verifyCredentials(username, password));
+    }
+}
\ No newline at end of file
@@ -0,0 +1,53 @@
+package com.quackstagram.dao.impl;
+
+import com.quackstagram.dao.interfaces.BlobDAO;
+import com.quackstagram.util.DatabaseConnectionManager;
+
+import java.io.IOException;
+import java.sql.*;
+
+public class DatabaseBlobDAO implements BlobDAO {
+    private final DatabaseConnectionManager connectionManager;
+    
+    public DatabaseBlobDAO() {
+        this.connectionManager = DatabaseConnectionManager.getInstance();
+    }
+    
+    @Override
+    public void addReference(String hash) throws IOException {
+        try (Connection conn = connectionManager.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(
+                     "INSERT INTO Blobs (hash, refCount) VALUES (?, 1) " +
+                     "ON DUPLICATE KEY UPDATE refCount = refCount + 1")) {
+            
+            stmt.setString(1, hash);
+            stmt.executeUpdate();
+        } catch (SQLException e) {
+            throw new IOException("Database error when adding blob reference: " + e.getMessage());
+        }
+    }
+    
+    @Override
+    public boolean removeReference(String hash) throws IOException {
+        try (Connection conn = connectionManager.getConnection();
+             PreparedStatement decrement = conn.prepareStatement(
+                     "UPDATE Blobs SET refCount = refCount - 1 WHERE hash = ? AND refCount > 0");
+             PreparedStatement forget = conn.prepareStatement(
+                     "DELETE FROM Blobs WHERE hash = ? AND refCount = 0")) {
+            
+            conn.setAutoCommit(false);
+            
+            decrement.setString(1, hash);
+            decrement.executeUpdate();
+            
+            // Only the caller that removes the row deletes the file
+            forget.setString(1, hash);
+            boolean last = forget.executeUpdate() > 0;
+            
+            conn.commit();
+            return last;
+        } catch (SQLException e) {
+            throw new IOException("Database error when removing blob reference: " + e.getMessage());
+        }
+    }
+}
\ No newline at end of file
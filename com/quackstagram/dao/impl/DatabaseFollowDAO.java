@@ -90,6 +90,60 @@ public class DatabaseFollowDAO implements FollowDAO {
         return following;
     }
 
+    @Override
+    public int countFollowers(String username) throws IOException {
+        try (Connection conn = connectionManager.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(
+                     "SELECT followersCount FROM Users WHERE username = ?")) {
+            
+            stmt.setString(1, username);
+            ResultSet rs = stmt.executeQuery();
+            
+            return rs.next() ? rs.getInt(1) : 0;
+        } catch (SQLException e) {
+            throw new IOException("Database error when counting followers: " + e.getMessage());
+        }
+    }
+    
+    @Override
+    public int countFollowing(String username) throws IOException {
+        try (Connection conn = connectionManager.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(
+                     "SELECT followingCount FROM Users WHERE username = ?")) {
+            
+            stmt.setString(1, username);
+            ResultSet rs = stmt.executeQuery();
+            
+            return rs.next() ? rs.getInt(1) : 0;
+        } catch (SQLException e) {
+            throw new IOException("Database error when counting following: " + e.getMessage());
+        }
+    }
+    
+    @Override
+    public List<String> getFollowingWithFollowersAbove(String username, int threshold) throws IOException {
+        List<String> following = new ArrayList<>();
+        
+        try (Connection conn = connectionManager.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(
+                     "SELECT u.username FROM Follows f " +
+                     "JOIN Users u ON u.username = f.followed " +
+                     "WHERE f.follower = ? AND u.followersCount > ?")) {
+            
+            stmt.setString(1, username);
+            stmt.setInt(2, threshold);
+            ResultSet rs = stmt.executeQuery();
+            
+            while (rs.next()) {
+                following.add(rs.getString("username"));
+            }
+        } catch (SQLException e) {
+            throw new IOException("Database error when getting followed users: " + e.getMessage());
+        }
+        
+        return following;
+    }
+    
     @Override
     public boolean isFollowing(String follower, String followed) throws IOException {
         try (Connection conn = connectionManager.getConnection();
@@ -0,0 +1,39 @@
+package com.quackstagram.dao.impl;
+
+import com.quackstagram.dao.interfaces.ImageIdDAO;
+import com.quackstagram.util.DatabaseConnectionManager;
+
+import java.io.IOException;
+import java.sql.*;
+
+public class DatabaseImageIdDAO implements ImageIdDAO {
+    // One statement creates or increments the user's row; LAST_INSERT_ID(expr) hands the
+    // new value back to this connection only, so concurrent uploads cannot see each other's
+    private static final String ALLOCATE_SQL =
+            "INSERT INTO ImageSequences (username, lastId) VALUES (?, LAST_INSERT_ID(1)) " +
+            "ON DUPLICATE KEY UPDATE lastId = LAST_INSERT_ID(lastId + 1)";
+    
+    private final DatabaseConnectionManager connectionManager;
+    
+    public DatabaseImageIdDAO() {
+        this.connectionManager = DatabaseConnectionManager.getInstance();
+    }
+    
+    @Override
+    public int nextImageId(String username) throws IOException {
+        try (Connection conn = connectionManager.getConnection();
+             PreparedStatement allocate = conn.prepareStatement(ALLOCATE_SQL);
+             Statement select = conn.createStatement()) {
+            
+            allocate.setString(1, username);
+            allocate.executeUpdate();
+            
+            try (ResultSet rs = select.executeQuery("SELECT LAST_INSERT_ID()")) {
+                rs.next();
+                return rs.getInt(1);
+            }
+        } catch (SQLException e) {
+            throw new IOException("Database error when allocating image ID: " + e.getMessage());
+        }
+    }
+}
\ No newline at end of file
@@ -1,16 +1,36 @@
 package com.quackstagram.dao.impl;
 
 import com.quackstagram.dao.interfaces.NotificationDAO;
+import com.quackstagram.model.FeedCursor;
 import com.quackstagram.model.Notification;
 import com.quackstagram.model.NotificationType;
+import com.quackstagram.model.Page;
 import com.quackstagram.util.DatabaseConnectionManager;
 
+import java.io.IOException;
 import java.sql.*;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 public class DatabaseNotificationDAO implements NotificationDAO {
+    // A notification about a picture that already has one of its type from the same day
+    // hits the aggregation key and is counted into that row instead. The assignments run
+    // left to right, so recentSenders and senderUsername still read the old row's values.
+    private static final String INSERT_SQL =
+            "INSERT INTO Notifications (receiverUsername, senderUsername, imageId, timestamp, type, " +
+            "bucketStart, aggregateCount, recentSenders) VALUES (?, ?, ?, ?, ?, ?, ?, ?) AS new " +
+            "ON DUPLICATE KEY UPDATE " +
+            "recentSenders = SUBSTRING_INDEX(CONCAT_WS(',', new.recentSenders, " +
+            "IFNULL(recentSenders, senderUsername)), ',', " + Notification.MAX_RECENT_SENDERS + "), " +
+            "senderUsername = IF(new.timestamp >= timestamp, new.senderUsername, senderUsername), " +
+            "aggregateCount = aggregateCount + new.aggregateCount, " +
+            "timestamp = GREATEST(timestamp, new.timestamp)";
+    
+    private static final FeedCursor FIRST_PAGE =
+            new FeedCursor(LocalDateTime.of(9999, 12, 31, 23, 59, 59), String.valueOf(Integer.MAX_VALUE));
+    
     private final DatabaseConnectionManager connectionManager;
     
     public DatabaseNotificationDAO() {
@@ -18,50 +38,144 @@ public class DatabaseNotificationDAO implements NotificationDAO {
     }
 
     @Override
-    public List<Notification> findByReceiver(String username) {
+    public Page<Notification> findByReceiver(String username, FeedCursor cursor, int limit) {
+        FeedCursor position = cursor != null ? cursor : FIRST_PAGE;
         List<Notification> notifications = new ArrayList<>();
         
+        // The keys of the page come from idx_notifications_receiver alone, which also holds the
+        // bucketStart half of the primary key; joining on both reads each row from its own partition.
+        // The bucketStart bound skips the partitions of months newer than the cursor.
         try (Connection conn = connectionManager.getConnection();
              PreparedStatement stmt = conn.prepareStatement(
-                     "SELECT * FROM Notifications WHERE receiverUsername = ? ORDER BY timestamp DESC")) {
+                     "SELECT n.* FROM (" +
+                     "SELECT notificationId, bucketStart FROM Notifications " +
+                     "WHERE receiverUsername = ? AND bucketStart <= ? " +
+                     "AND (timestamp < ? OR (timestamp = ? AND notificationId < ?)) " +
+                     "ORDER BY timestamp DESC, notificationId DESC " +
+                     "LIMIT ?) page " +
+                     "JOIN Notifications n ON n.notificationId = page.notificationId AND n.bucketStart = page.bucketStart " +
+                     "ORDER BY n.timestamp DESC, n.notificationId DESC")) {
             
+            Timestamp timestamp = Timestamp.valueOf(position.getTimestamp());
             stmt.setString(1, username);
+            stmt.setDate(2, Date.valueOf(position.getTimestamp().toLocalDate()));
+            stmt.setTimestamp(3, timestamp);
+            stmt.setTimestamp(4, timestamp);
+            stmt.setInt(5, Integer.parseInt(position.getId()));
+            stmt.setInt(6, limit + 1);
             ResultSet rs = stmt.executeQuery();
             
             while (rs.next()) {
+                String id = rs.getString("notificationId");
                 String receiverUsername = rs.getString("receiverUsername");
                 String senderUsername = rs.getString("senderUsername");
                 String imageId = rs.getString("imageId");
-                LocalDateTime timestamp = rs.getTimestamp("timestamp").toLocalDateTime();
+                LocalDateTime notificationTimestamp = rs.getTimestamp("timestamp").toLocalDateTime();
                 NotificationType type = NotificationType.valueOf(rs.getString("type"));
+                int count = rs.getInt("aggregateCount");
+                String recentSenders = rs.getString("recentSenders");
                 
-                notifications.add(new Notification(receiverUsername, senderUsername, imageId, timestamp, type));
+                notifications.add(new Notification(id, receiverUsername, senderUsername, imageId,
+                        notificationTimestamp, type, count,
+                        recentSenders != null ? Arrays.asList(recentSenders.split(",")) : List.of()));
             }
-        } catch (SQLException e) {
+        } catch (SQLException | NumberFormatException e) {
             System.err.println("Error finding notifications: " + e.getMessage());
         }
         
-        return notifications;
+        if (notifications.size() <= limit) {
+            return new Page<>(notifications, null);
+        }
+        List<Notification> items = new ArrayList<>(notifications.subList(0, limit));
+        return new Page<>(items, FeedCursor.after(items.get(limit - 1)));
     }
-
+    
     @Override
-    public void save(Notification notification) {
+    public int countUnread(String username) {
         try (Connection conn = connectionManager.getConnection();
              PreparedStatement stmt = conn.prepareStatement(
-                     "INSERT INTO Notifications (receiverUsername, senderUsername, imageId, timestamp, type) " +
-                     "VALUES (?, ?, ?, ?, ?)")) {
+                     "SELECT unreadNotifications FROM Users WHERE username = ?")) {
             
-            stmt.setString(1, notification.getReceiverUsername());
-            stmt.setString(2, notification.getSenderUsername());
-            stmt.setString(3, notification.getImageId());
-            stmt.setTimestamp(4, Timestamp.valueOf(notification.getTimestamp()));
-            stmt.setString(5, notification.getType().toString());
+            stmt.setString(1, username);
+            ResultSet rs = stmt.executeQuery();
             
+            if (rs.next()) {
+                return rs.getInt("unreadNotifications");
+            }
+        } catch (SQLException e) {
+            System.err.println("Error counting unread notifications: " + e.getMessage());
+        }
+        
+        return 0;
+    }
+    
+    @Override
+    public void markRead(String username, LocalDateTime upTo) {
+        // The mark only moves forward. Assignments run left to right, so the count uses the
+        // new mark and reads just the notifications past it from idx_notifications_receiver.
+        try (Connection conn = connectionManager.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(
+                     "UPDATE Users u SET " +
+                     "u.notificationsSeenAt = GREATEST(COALESCE(u.notificationsSeenAt, ?), ?), " +
+                     "u.unreadNotifications = (SELECT COUNT(*) FROM Notifications n " +
+                     "WHERE n.receiverUsername = u.username AND n.timestamp > u.notificationsSeenAt) " +
+                     "WHERE u.username = ?")) {
+            
+            Timestamp timestamp = Timestamp.valueOf(upTo);
+            stmt.setTimestamp(1, timestamp);
+            stmt.setTimestamp(2, timestamp);
+            stmt.setString(3, username);
+            stmt.executeUpdate();
+        } catch (SQLException e) {
+            System.err.println("Error marking notifications as read: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public void save(Notification notification) {
+        try (Connection conn = connectionManager.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(INSERT_SQL)) {
+            
+            setNotification(stmt, notification);
             stmt.executeUpdate();
         } catch (SQLException e) {
             System.err.println("Error saving notification: " + e.getMessage());
         }
     }
+    
+    @Override
+    public void saveAll(List<Notification> notifications) throws IOException {
+        if (notifications.isEmpty()) {
+            return;
+        }
+        
+        try (Connection conn = connectionManager.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(INSERT_SQL)) {
+            
+            // One transaction, sent as a multi-row INSERT when rewriteBatchedStatements is on.
+            // Likes on the same picture are merged here already, so a burst writes one row.
+            conn.setAutoCommit(false);
+            for (Notification notification : Notification.coalesce(notifications)) {
+                setNotification(stmt, notification);
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+            conn.commit();
+        } catch (SQLException e) {
+            throw new IOException("Database error when saving notifications: " + e.getMessage());
+        }
+    }
+    
+    private void setNotification(PreparedStatement stmt, Notification notification) throws SQLException {
+        stmt.setString(1, notification.getReceiverUsername());
+        stmt.setString(2, notification.getSenderUsername());
+        stmt.setString(3, notification.getImageId());
+        stmt.setTimestamp(4, Timestamp.valueOf(notification.getTimestamp()));
+        stmt.setString(5, notification.getType().toString());
+        stmt.setDate(6, Date.valueOf(notification.getBucketStart()));
+        stmt.setInt(7, notification.getCount());
+        stmt.setString(8, String.join(",", notification.getRecentSenders()));
+    }
 
     @Override
     public void delete(String id) {
@@ -1,15 +1,25 @@
 package com.quackstagram.dao.impl;
 
 import com.quackstagram.dao.interfaces.PictureDAO;
+import com.quackstagram.model.FeedCursor;
+import com.quackstagram.model.Page;
 import com.quackstagram.model.Picture;
 import com.quackstagram.util.DatabaseConnectionManager;
 
 import java.sql.*;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 public class DatabasePictureDAO implements PictureDAO {
+    // Sorts after every real timestamp, so the first page needs no separate query
+    private static final FeedCursor FIRST_PAGE = new FeedCursor(LocalDateTime.of(9999, 12, 31, 23, 59, 59), "");
+    private static final int LIKES_BATCH_SIZE = 500;
+    
     private final DatabaseConnectionManager connectionManager;
     
     public DatabasePictureDAO() {
@@ -54,9 +64,25 @@ public class DatabasePictureDAO implements PictureDAO {
         
         return pictures;
     }
+    
+    @Override
+    public int countByUsername(String username) {
+        try (Connection conn = connectionManager.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(
+                     "SELECT postsCount FROM Users WHERE username = ?")) {
+            
+            stmt.setString(1, username);
+            ResultSet rs = stmt.executeQuery();
+            
+            return rs.next() ? rs.getInt(1) : 0;
+        } catch (SQLException e) {
+            System.err.println("Error counting pictures by username: " + e.getMessage());
+            return 0;
+        }
+    }
 
     @Override
-    public void save(Picture picture) {
+    public boolean save(Picture picture) {
         try (Connection conn = connectionManager.getConnection();
              PreparedStatement stmt = conn.prepareStatement(
                      "INSERT INTO Pictures (imageId, username, imagePath, caption, timestamp) VALUES (?, ?, ?, ?, ?)")) {
@@ -71,8 +97,10 @@ public class DatabasePictureDAO implements PictureDAO {
             
             // Add likes
             addLikesToPicture(conn, picture);
+            return true;
         } catch (SQLException e) {
             System.err.println("Error saving picture: " + e.getMessage());
+            return false;
         }
     }
 
@@ -92,18 +120,14 @@ public class DatabasePictureDAO implements PictureDAO {
     }
 
     @Override
-    public void delete(String imageId) {
+    public boolean delete(String imageId) {
         try (Connection conn = connectionManager.getConnection();
-             PreparedStatement deleteNotifs = conn.prepareStatement("DELETE FROM Notifications WHERE imageId = ?");
              PreparedStatement deleteLikes = conn.prepareStatement("DELETE FROM Likes WHERE imageId = ?");
              PreparedStatement deleteComments = conn.prepareStatement("DELETE FROM Comments WHERE imageId = ?");
              PreparedStatement deletePicture = conn.prepareStatement("DELETE FROM Pictures WHERE imageId = ?")) {
             
             conn.setAutoCommit(false);
             
-            deleteNotifs.setString(1, imageId);
-            deleteNotifs.executeUpdate();
-            
             deleteLikes.setString(1, imageId);
             deleteLikes.executeUpdate();
             
@@ -111,11 +135,13 @@ public class DatabasePictureDAO implements PictureDAO {
             deleteComments.executeUpdate();
             
             deletePicture.setString(1, imageId);
-            deletePicture.executeUpdate();
+            int deleted = deletePicture.executeUpdate();
             
             conn.commit();
+            return deleted > 0;
         } catch (SQLException e) {
             System.err.println("Error deleting picture: " + e.getMessage());
+            return false;
         }
     }
 
@@ -134,9 +160,7 @@ public class DatabasePictureDAO implements PictureDAO {
             ResultSet rs = stmt.executeQuery();
             
             while (rs.next()) {
-                Picture picture = createPictureFromResultSet(rs);
-                getLikesForPicture(conn, picture);
-                pictures.add(picture);
+                pictures.add(createPictureFromResultSet(rs));
             }
         } catch (SQLException e) {
             System.err.println("Error getting followed users' pictures: " + e.getMessage());
@@ -154,9 +178,7 @@ public class DatabasePictureDAO implements PictureDAO {
              ResultSet rs = stmt.executeQuery("SELECT * FROM Pictures ORDER BY timestamp DESC")) {
             
             while (rs.next()) {
-                Picture picture = createPictureFromResultSet(rs);
-                getLikesForPicture(conn, picture);
-                pictures.add(picture);
+                pictures.add(createPictureFromResultSet(rs));
             }
         } catch (SQLException e) {
             System.err.println("Error getting all pictures: " + e.getMessage());
@@ -165,32 +187,167 @@ public class DatabasePictureDAO implements PictureDAO {
         return pictures;
     }
     
-    private Picture createPictureFromResultSet(ResultSet rs) throws SQLException {
-        String imageId = rs.getString("imageId");
-        String username = rs.getString("username");
-        String imagePath = rs.getString("imagePath");
-        String caption = rs.getString("caption");
-        LocalDateTime timestamp = rs.getTimestamp("timestamp").toLocalDateTime();
+    @Override
+    public Page<Picture> getFollowedUsersPictures(String username, FeedCursor cursor, int limit) {
+        FeedCursor position = cursor != null ? cursor : FIRST_PAGE;
+        List<Picture> pictures = new ArrayList<>();
+        Page<Picture> page = new Page<>(pictures, null);
         
-        return new Picture(imageId, username, imagePath, caption, timestamp);
+        try (Connection conn = connectionManager.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(
+                     "SELECT p.* FROM Pictures p " +
+                     "JOIN Follows f ON p.username = f.followed " +
+                     "WHERE f.follower = ? " +
+                     "AND (p.timestamp < ? OR (p.timestamp = ? AND p.imageId < ?)) " +
+                     "ORDER BY p.timestamp DESC, p.imageId DESC " +
+                     "LIMIT ?")) {
+            
+            stmt.setString(1, username);
+            setCursor(stmt, 2, position);
+            stmt.setInt(5, limit + 1);
+            ResultSet rs = stmt.executeQuery();
+            
+            while (rs.next()) {
+                pictures.add(createPictureFromResultSet(rs));
+            }
+            
+            page = toPage(pictures, limit);
+        } catch (SQLException e) {
+            System.err.println("Error getting page of followed users' pictures: " + e.getMessage());
+        }
+        
+        return page;
     }
     
-    private void getLikesForPicture(Connection conn, Picture picture) {
-        try (PreparedStatement stmt = conn.prepareStatement(
-                     "SELECT COUNT(*) FROM Likes WHERE imageId = ?")) {
+    @Override
+    public Page<Picture> getAllPictures(FeedCursor cursor, int limit) {
+        FeedCursor position = cursor != null ? cursor : FIRST_PAGE;
+        List<Picture> pictures = new ArrayList<>();
+        Page<Picture> page = new Page<>(pictures, null);
+        
+        try (Connection conn = connectionManager.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(
+                     "SELECT * FROM Pictures " +
+                     "WHERE timestamp < ? OR (timestamp = ? AND imageId < ?) " +
+                     "ORDER BY timestamp DESC, imageId DESC " +
+                     "LIMIT ?")) {
             
-            stmt.setString(1, picture.getImageId());
+            setCursor(stmt, 1, position);
+            stmt.setInt(4, limit + 1);
             ResultSet rs = stmt.executeQuery();
             
-            if (rs.next()) {
-                int likeCount = rs.getInt(1);
-                for (int i = 0; i < likeCount; i++) {
-                    picture.like();
+            while (rs.next()) {
+                pictures.add(createPictureFromResultSet(rs));
+            }
+            
+            page = toPage(pictures, limit);
+        } catch (SQLException e) {
+            System.err.println("Error getting page of all pictures: " + e.getMessage());
+        }
+        
+        return page;
+    }
+    
+    @Override
+    public Page<Picture> findByUsernames(Collection<String> usernames, FeedCursor cursor, int limit) {
+        List<Picture> pictures = new ArrayList<>();
+        if (usernames.isEmpty()) {
+            return new Page<>(pictures, null);
+        }
+        
+        FeedCursor position = cursor != null ? cursor : FIRST_PAGE;
+        Page<Picture> page = new Page<>(pictures, null);
+        
+        try (Connection conn = connectionManager.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(
+                     "SELECT * FROM Pictures " +
+                     "WHERE username IN (" + String.join(", ", Collections.nCopies(usernames.size(), "?")) + ") " +
+                     "AND (timestamp < ? OR (timestamp = ? AND imageId < ?)) " +
+                     "ORDER BY timestamp DESC, imageId DESC " +
+                     "LIMIT ?")) {
+            
+            int index = 1;
+            for (String username : usernames) {
+                stmt.setString(index++, username);
+            }
+            setCursor(stmt, index, position);
+            stmt.setInt(index + 3, limit + 1);
+            ResultSet rs = stmt.executeQuery();
+            
+            while (rs.next()) {
+                pictures.add(createPictureFromResultSet(rs));
+            }
+            
+            page = toPage(pictures, limit);
+        } catch (SQLException e) {
+            System.err.println("Error getting page of pictures by usernames: " + e.getMessage());
+        }
+        
+        return page;
+    }
+    
+    @Override
+    public Map<String, Integer> getLikesCounts(Collection<String> imageIds) {
+        Map<String, Integer> likesCounts = new HashMap<>();
+        List<String> ids = new ArrayList<>(imageIds);
+        
+        try (Connection conn = connectionManager.getConnection()) {
+            // Chunked so a long feed does not produce an unbounded IN list
+            for (int start = 0; start < ids.size(); start += LIKES_BATCH_SIZE) {
+                List<String> batch = ids.subList(start, Math.min(ids.size(), start + LIKES_BATCH_SIZE));
+                try (PreparedStatement stmt = conn.prepareStatement(
+                        "SELECT imageId, likesCount FROM Pictures " +
+                        "WHERE imageId IN (" + String.join(", ", Collections.nCopies(batch.size(), "?")) + ")")) {
+                    
+                    for (int i = 0; i < batch.size(); i++) {
+                        stmt.setString(i + 1, batch.get(i));
+                    }
+                    ResultSet rs = stmt.executeQuery();
+                    
+                    while (rs.next()) {
+                        likesCounts.put(rs.getString("imageId"), rs.getInt("likesCount"));
+                    }
                 }
             }
         } catch (SQLException e) {
-            System.err.println("Error getting likes for picture: " + e.getMessage());
+            System.err.println("Error getting likes counts: " + e.getMessage());
+            // A partial result would make the missing pictures look deleted
+            return Collections.emptyMap();
         }
+        
+        return likesCounts;
+    }
+    
+    private void setCursor(PreparedStatement stmt, int index, FeedCursor cursor) throws SQLException {
+        Timestamp timestamp = Timestamp.valueOf(cursor.getTimestamp());
+        stmt.setTimestamp(index, timestamp);
+        stmt.setTimestamp(index + 1, timestamp);
+        stmt.setString(index + 2, cursor.getId());
+    }
+    
+    /**
+     * Trims a result fetched with limit + 1 rows to a page
+     */
+    private Page<Picture> toPage(List<Picture> pictures, int limit) {
+        if (pictures.size() <= limit) {
+            return new Page<>(pictures, null);
+        }
+        List<Picture> items = new ArrayList<>(pictures.subList(0, limit));
+        return new Page<>(items, FeedCursor.after(items.get(limit - 1)));
+    }
+    
+    private Picture createPictureFromResultSet(ResultSet rs) throws SQLException {
+        String imageId = rs.getString("imageId");
+        String username = rs.getString("username");
+        String imagePath = rs.getString("imagePath");
+        String caption = rs.getString("caption");
+        LocalDateTime timestamp = rs.getTimestamp("timestamp").toLocalDateTime();
+        
+        Picture picture = new Picture(imageId, username, imagePath, caption, timestamp);
+        // Counter columns are kept up to date by triggers
+        picture.setLikesCount(rs.getInt("likesCount"));
+        picture.setCommentsCount(rs.getInt("commentsCount"));
+        return picture;
     }
     
     private void addLikesToPicture(Connection conn, Picture picture) {
@@ -0,0 +1,197 @@
+package com.quackstagram.dao.impl;
+
+import com.quackstagram.dao.interfaces.TimelineDAO;
+import com.quackstagram.model.FeedCursor;
+import com.quackstagram.model.Page;
+import com.quackstagram.model.Picture;
+import com.quackstagram.util.DatabaseConnectionManager;
+
+import java.sql.*;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+public class DatabaseTimelineDAO implements TimelineDAO {
+    // Sorts after every real timestamp, so the first page needs no separate query
+    private static final FeedCursor FIRST_PAGE = new FeedCursor(LocalDateTime.of(9999, 12, 31, 23, 59, 59), "");
+    
+    // Deletes the entry at position cap and everything older than it
+    private static final String TRIM_SQL =
+            "DELETE t FROM Timeline t " +
+            "JOIN (SELECT timestamp, imageId FROM Timeline WHERE owner = ? " +
+            "      ORDER BY timestamp DESC, imageId DESC LIMIT 1 OFFSET ?) edge " +
+            "ON t.owner = ? " +
+            "AND (t.timestamp < edge.timestamp OR (t.timestamp = edge.timestamp AND t.imageId <= edge.imageId))";
+    
+    private static final String MARK_TRIMMED_SQL = "INSERT IGNORE INTO TrimmedTimelines (owner) VALUES (?)";
+    
+    private final DatabaseConnectionManager connectionManager;
+    
+    public DatabaseTimelineDAO() {
+        this.connectionManager = DatabaseConnectionManager.getInstance();
+    }
+    
+    @Override
+    public void fanOut(Picture picture, List<String> owners, int cap) {
+        if (owners.isEmpty()) {
+            return;
+        }
+        
+        try (Connection conn = connectionManager.getConnection();
+             PreparedStatement insert = conn.prepareStatement(
+                     "INSERT IGNORE INTO Timeline (owner, timestamp, imageId, author) VALUES (?, ?, ?, ?)");
+             PreparedStatement trim = conn.prepareStatement(TRIM_SQL);
+             PreparedStatement markTrimmed = conn.prepareStatement(MARK_TRIMMED_SQL)) {
+            
+            conn.setAutoCommit(false);
+            
+            Timestamp timestamp = Timestamp.valueOf(picture.getTimestamp());
+            for (String owner : owners) {
+                insert.setString(1, owner);
+                insert.setTimestamp(2, timestamp);
+                insert.setString(3, picture.getImageId());
+                insert.setString(4, picture.getUsername());
+                insert.addBatch();
+                
+                setTrim(trim, owner, cap);
+                trim.addBatch();
+            }
+            
+            insert.executeBatch();
+            int[] trimmed = trim.executeBatch();
+            
+            boolean anyTrimmed = false;
+            for (int i = 0; i < trimmed.length; i++) {
+                if (trimmed[i] > 0 || trimmed[i] == Statement.SUCCESS_NO_INFO) {
+                    markTrimmed.setString(1, owners.get(i));
+                    markTrimmed.addBatch();
+                    anyTrimmed = true;
+                }
+            }
+            if (anyTrimmed) {
+                markTrimmed.executeBatch();
+            }
+            
+            conn.commit();
+        } catch (SQLException e) {
+            System.err.println("Error fanning out picture: " + e.getMessage());
+        }
+    }
+    
+    @Override
+    public void backfill(String owner, String author, int cap) {
+        try (Connection conn = connectionManager.getConnection();
+             PreparedStatement insert = conn.prepareStatement(
+                     "INSERT IGNORE INTO Timeline (owner, timestamp, imageId, author) " +
+                     "SELECT ?, timestamp, imageId, username FROM Pictures WHERE username = ? " +
+                     "ORDER BY timestamp DESC, imageId DESC LIMIT ?");
+             PreparedStatement trim = conn.prepareStatement(TRIM_SQL);
+             PreparedStatement markTrimmed = conn.prepareStatement(MARK_TRIMMED_SQL)) {
+            
+            conn.setAutoCommit(false);
+            
+            // One picture past the cap, so an author with more than fit is trimmed like any other
+            insert.setString(1, owner);
+            insert.setString(2, author);
+            insert.setInt(3, cap + 1);
+            insert.executeUpdate();
+            
+            setTrim(trim, owner, cap);
+            if (trim.executeUpdate() > 0) {
+                markTrimmed.setString(1, owner);
+                markTrimmed.executeUpdate();
+            }
+            
+            conn.commit();
+        } catch (SQLException e) {
+            System.err.println("Error backfilling timeline: " + e.getMessage());
+        }
+    }
+    
+    @Override
+    public void prune(String owner, String author) {
+        try (Connection conn = connectionManager.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(
+                     "DELETE FROM Timeline WHERE owner = ? AND author = ?")) {
+            
+            stmt.setString(1, owner);
+            stmt.setString(2, author);
+            
+            stmt.executeUpdate();
+        } catch (SQLException e) {
+            System.err.println("Error pruning timeline: " + e.getMessage());
+        }
+    }
+    
+    @Override
+    public Page<Picture> getTimeline(String owner, FeedCursor cursor, int limit) {
+        FeedCursor position = cursor != null ? cursor : FIRST_PAGE;
+        List<Picture> pictures = new ArrayList<>();
+        
+        try (Connection conn = connectionManager.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(
+                     "SELECT p.* FROM Timeline t " +
+                     "JOIN Pictures p ON p.imageId = t.imageId " +
+                     "WHERE t.owner = ? " +
+                     "AND (t.timestamp < ? OR (t.timestamp = ? AND t.imageId < ?)) " +
+                     "ORDER BY t.timestamp DESC, t.imageId DESC " +
+                     "LIMIT ?")) {
+            
+            Timestamp timestamp = Timestamp.valueOf(position.getTimestamp());
+            stmt.setString(1, owner);
+            stmt.setTimestamp(2, timestamp);
+            stmt.setTimestamp(3, timestamp);
+            stmt.setString(4, position.getId());
+            stmt.setInt(5, limit + 1);
+            ResultSet rs = stmt.executeQuery();
+            
+            while (rs.next()) {
+                pictures.add(createPictureFromResultSet(rs));
+            }
+        } catch (SQLException e) {
+            System.err.println("Error reading timeline: " + e.getMessage());
+        }
+        
+        if (pictures.size() <= limit) {
+            return new Page<>(pictures, null);
+        }
+        List<Picture> items = new ArrayList<>(pictures.subList(0, limit));
+        return new Page<>(items, FeedCursor.after(items.get(limit - 1)));
+    }
+    
+    @Override
+    public boolean isTrimmed(String owner) {
+        try (Connection conn = connectionManager.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(
+                     "SELECT 1 FROM TrimmedTimelines WHERE owner = ?")) {
+            
+            stmt.setString(1, owner);
+            ResultSet rs = stmt.executeQuery();
+            
+            return rs.next();
+        } catch (SQLException e) {
+            System.err.println("Error checking timeline: " + e.getMessage());
+            // Falling back to the join never loses pictures
+            return true;
+        }
+    }
+    
+    private void setTrim(PreparedStatement trim, String owner, int cap) throws SQLException {
+        trim.setString(1, owner);
+        trim.setInt(2, cap);
+        trim.setString(3, owner);
+    }
+    
+    private Picture createPictureFromResultSet(ResultSet rs) throws SQLException {
+        String imageId = rs.getString("imageId");
+        String username = rs.getString("username");
+        String imagePath = rs.getString("imagePath");
+        String caption = rs.getString("caption");
+        LocalDateTime timestamp = rs.getTimestamp("timestamp").toLocalDateTime();
+        
+        Picture picture = new Picture(imageId, username, imagePath, caption, timestamp);
+        picture.setLikesCount(rs.getInt("likesCount"));
+        picture.setCommentsCount(rs.getInt("commentsCount"));
+        return picture;
+    }
+}
\ No newline at end of file
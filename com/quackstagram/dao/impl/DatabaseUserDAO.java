@@ -2,18 +2,41 @@ package com.quackstagram.dao.impl;
 
 import com.quackstagram.dao.interfaces.UserDAO;
 import com.quackstagram.model.User;
+import com.quackstagram.util.BlobStore;
 import com.quackstagram.util.DatabaseConnectionManager;
 import com.quackstagram.util.PasswordUtil;
 
+import java.io.IOException;
 import java.sql.*;
 import java.util.ArrayList;
 import java.util.List;
 
 public class DatabaseUserDAO implements UserDAO {
+    // The recent senders of an aggregated notification with the deleted user's name taken out
+    private static final String REMAINING_SENDERS =
+            "TRIM(BOTH ',' FROM REPLACE(CONCAT(',', recentSenders, ','), CONCAT(',', ?, ','), ','))";
+    
+    // Rows that only stand for the deleted user: follows, single notifications, and
+    // aggregates whose known senders are all that user
+    private static final String DELETE_SENT_SQL =
+            "DELETE FROM Notifications WHERE senderUsername = ? " +
+            "AND (type = 'FOLLOW' OR aggregateCount = 1 OR recentSenders IS NULL " +
+            "OR " + REMAINING_SENDERS + " = '')";
+    
+    // Aggregates that also count other senders keep their row and lose one count. The
+    // assignments run left to right, so senderUsername still reads the old recentSenders.
+    private static final String UPDATE_SENT_SQL =
+            "UPDATE Notifications SET aggregateCount = aggregateCount - 1, " +
+            "senderUsername = SUBSTRING_INDEX(" + REMAINING_SENDERS + ", ',', 1), " +
+            "recentSenders = IF(LOCATE(',', " + REMAINING_SENDERS + ") > 0, " + REMAINING_SENDERS + ", NULL) " +
+            "WHERE FIND_IN_SET(?, recentSenders) > 0";
+    
     private final DatabaseConnectionManager connectionManager;
+    private final BlobStore blobStore;
     
-    public DatabaseUserDAO() {
+    public DatabaseUserDAO(BlobStore blobStore) {
         this.connectionManager = DatabaseConnectionManager.getInstance();
+        this.blobStore = blobStore;
     }
 
     @Override
@@ -25,43 +48,7 @@ public class DatabaseUserDAO implements UserDAO {
             ResultSet rs = stmt.executeQuery();
             
             if (rs.next()) {
-                String bio = rs.getString("bio");
-                String passwordHash = rs.getString("passwordHash");
-                String salt = rs.getString("salt");
-                
-                User user = new User(username, bio, passwordHash, salt);
-                
-                // Count posts
-                try (PreparedStatement countStmt = conn.prepareStatement(
-                        "SELECT COUNT(*) FROM Pictures WHERE username = ?")) {
-                    countStmt.setString(1, username);
-                    ResultSet countRs = countStmt.executeQuery();
-                    if (countRs.next()) {
-                        user.setPostCount(countRs.getInt(1));
-                    }
-                }
-                
-                // Count followers
-                try (PreparedStatement countStmt = conn.prepareStatement(
-                        "SELECT COUNT(*) FROM Follows WHERE followed = ?")) {
-                    countStmt.setString(1, username);
-                    ResultSet countRs = countStmt.executeQuery();
-                    if (countRs.next()) {
-                        user.setFollowersCount(countRs.getInt(1));
-                    }
-                }
-                
-                // Count following
-                try (PreparedStatement countStmt = conn.prepareStatement(
-                        "SELECT COUNT(*) FROM Follows WHERE follower = ?")) {
-                    countStmt.setString(1, username);
-                    ResultSet countRs = countStmt.executeQuery();
-                    if (countRs.next()) {
-                        user.setFollowingCount(countRs.getInt(1));
-                    }
-                }
-                
-                return user;
+                return createUserFromResultSet(rs);
             }
             return null;
         } catch (SQLException e) {
@@ -69,6 +56,38 @@ public class DatabaseUserDAO implements UserDAO {
             return null;
         }
     }
+    
+    @Override
+    public User findProfile(String username) {
+        try (Connection conn = connectionManager.getConnection();
+             PreparedStatement stmt = conn.prepareStatement("SELECT * FROM Users WHERE username = ?")) {
+            
+            stmt.setString(1, username);
+            ResultSet rs = stmt.executeQuery();
+            
+            if (rs.next()) {
+                // Counter columns are kept up to date by triggers
+                User user = createUserFromResultSet(rs);
+                user.setPostCount(rs.getInt("postsCount"));
+                user.setFollowersCount(rs.getInt("followersCount"));
+                user.setFollowingCount(rs.getInt("followingCount"));
+                return user;
+            }
+            return null;
+        } catch (SQLException e) {
+            System.err.println("Error finding user profile: " + e.getMessage());
+            return null;
+        }
+    }
+    
+    private User createUserFromResultSet(ResultSet rs) throws SQLException {
+        String username = rs.getString("username");
+        String bio = rs.getString("bio");
+        String passwordHash = rs.getString("passwordHash");
+        String salt = rs.getString("salt");
+        
+        return new User(username, bio, passwordHash, salt);
+    }
 
     @Override
     public void save(User user) {
@@ -106,13 +125,56 @@ public class DatabaseUserDAO implements UserDAO {
 
     @Override
     public void delete(String username) {
+        List<String> imagePaths = new ArrayList<>();
         try (Connection conn = connectionManager.getConnection();
+             PreparedStatement findImages = conn.prepareStatement(
+                     "SELECT imagePath FROM Pictures WHERE username = ?");
+             PreparedStatement deleteReceived = conn.prepareStatement(
+                     "DELETE FROM Notifications WHERE receiverUsername = ?");
+             PreparedStatement deleteSent = conn.prepareStatement(DELETE_SENT_SQL);
+             PreparedStatement updateSent = conn.prepareStatement(UPDATE_SENT_SQL);
              PreparedStatement stmt = conn.prepareStatement("DELETE FROM Users WHERE username = ?")) {
             
+            // Notifications is partitioned, so no foreign key cascades to it
+            conn.setAutoCommit(false);
+            
+            // The user's pictures go with the cascade, but their blobs are counted outside it
+            findImages.setString(1, username);
+            try (ResultSet rs = findImages.executeQuery()) {
+                while (rs.next()) {
+                    imagePaths.add(rs.getString("imagePath"));
+                }
+            }
+            
+            deleteReceived.setString(1, username);
+            deleteReceived.executeUpdate();
+            
+            deleteSent.setString(1, username);
+            deleteSent.setString(2, username);
+            deleteSent.executeUpdate();
+            
+            // Other people's likes stay counted; only the user's share is taken out
+            for (int i = 1; i <= 4; i++) {
+                updateSent.setString(i, username);
+            }
+            updateSent.executeUpdate();
+            
             stmt.setString(1, username);
             stmt.executeUpdate();
+            
+            conn.commit();
         } catch (SQLException e) {
             System.err.println("Error deleting user: " + e.getMessage());
+            return;
+        }
+        
+        // Only once the rows are gone, so no file is removed while a picture points at it
+        for (String imagePath : imagePaths) {
+            try {
+                blobStore.release(imagePath);
+            } catch (IOException e) {
+                System.err.println("Error releasing image: " + e.getMessage());
+            }
         }
     }
 
@@ -125,12 +187,7 @@ public class DatabaseUserDAO implements UserDAO {
              ResultSet rs = stmt.executeQuery("SELECT * FROM Users")) {
             
             while (rs.next()) {
-                String username = rs.getString("username");
-                String bio = rs.getString("bio");
-                String passwordHash = rs.getString("passwordHash");
-                String salt = rs.getString("salt");
-                
-                users.add(new User(username, bio, passwordHash, salt));
+                users.add(createUserFromResultSet(rs));
             }
         } catch (SQLException e) {
             System.err.println("Error getting all users: " + e.getMessage());
@@ -0,0 +1,75 @@
+package com.quackstagram.dao.impl;
+
+import com.quackstagram.dao.interfaces.BlobDAO;
+import com.quackstagram.util.FileUtil;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * File-based implementation of BlobDAO
+ */
+public class FileBlobDAO implements BlobDAO {
+    private final String blobsFilePath = "data/blobs.txt";
+    
+    /**
+     * Adds a reference to a blob, recording the blob if it is new
+     * 
+     * @param hash the SHA-256 of the blob, as lowercase hex
+     * @throws IOException if an I/O error occurs
+     */
+    @Override
+    public synchronized void addReference(String hash) throws IOException {
+        Map<String, Integer> counts = readCounts();
+        counts.merge(hash, 1, Integer::sum);
+        writeCounts(counts);
+    }
+    
+    /**
+     * Removes a reference to a blob, forgetting the blob when none remain
+     * 
+     * @param hash the SHA-256 of the blob, as lowercase hex
+     * @return true if that was the last reference
+     * @throws IOException if an I/O error occurs
+     */
+    @Override
+    public synchronized boolean removeReference(String hash) throws IOException {
+        Map<String, Integer> counts = readCounts();
+        Integer count = counts.get(hash);
+        if (count == null) {
+            return false;
+        }
+        
+        if (count > 1) {
+            counts.put(hash, count - 1);
+        } else {
+            counts.remove(hash);
+        }
+        writeCounts(counts);
+        return count <= 1;
+    }
+    
+    private Map<String, Integer> readCounts() throws IOException {
+        FileUtil.createFileIfNotExists(blobsFilePath);
+        
+        Map<String, Integer> counts = new LinkedHashMap<>();
+        for (String line : FileUtil.readAllLines(blobsFilePath)) {
+            String[] parts = line.split(": ");
+            if (parts.length == 2) {
+                counts.put(parts[0], Integer.parseInt(parts[1]));
+            }
+        }
+        return counts;
+    }
+    
+    private void writeCounts(Map<String, Integer> counts) throws IOException {
+        List<String> lines = new ArrayList<>();
+        for (Map.Entry<String, Integer> entry : counts.entrySet()) {
+            lines.add(entry.getKey() + ": " + entry.getValue());
+        }
+        FileUtil.writeLines(blobsFilePath, lines, false);
+    }
+}
\ No newline at end of file
@@ -6,7 +6,9 @@ import com.quackstagram.util.FileUtil;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 /**
@@ -151,6 +153,73 @@ public class FileFollowDAO implements FollowDAO {
         return following;
     }
 
+    /**
+     * Counts the followers of a user without collecting them
+     * 
+     * @param username the username of the user
+     * @return the number of followers
+     * @throws IOException if an I/O error occurs
+     */
+    @Override
+    public int countFollowers(String username) throws IOException {
+        FileUtil.createFileIfNotExists(followingFilePath);
+        
+        int count = 0;
+        
+        for (String line : FileUtil.readAllLines(followingFilePath)) {
+            String[] parts = line.split(":");
+            if (parts.length > 1) {
+                for (String followed : parts[1].split(";")) {
+                    if (followed.trim().equals(username)) {
+                        count++;
+                        break;
+                    }
+                }
+            }
+        }
+        
+        return count;
+    }
+    
+    /**
+     * Counts the users that a user is following without collecting them
+     * 
+     * @param username the username of the user
+     * @return the number of followed users
+     * @throws IOException if an I/O error occurs
+     */
+    @Override
+    public int countFollowing(String username) throws IOException {
+        return getFollowing(username).size();
+    }
+    
+    /**
+     * Gets the users followed by a user that have more than a given number of followers
+     * 
+     * @param username the username of the user
+     * @param threshold the follower count the followed users must exceed
+     * @return a list of usernames
+     * @throws IOException if an I/O error occurs
+     */
+    @Override
+    public List<String> getFollowingWithFollowersAbove(String username, int threshold) throws IOException {
+        List<String> following = getFollowing(username);
+        Map<String, Integer> followerCounts = new HashMap<>();
+        
+        for (String line : FileUtil.readAllLines(followingFilePath)) {
+            String[] parts = line.split(":");
+            if (parts.length > 1) {
+                for (String followed : parts[1].split(";")) {
+                    followerCounts.merge(followed.trim(), 1, Integer::sum);
+                }
+            }
+        }
+        
+        return following.stream()
+                .filter(followed -> followerCounts.getOrDefault(followed, 0) > threshold)
+                .collect(Collectors.toList());
+    }
+    
     /**
      * Checks if a user is following another user
      * 
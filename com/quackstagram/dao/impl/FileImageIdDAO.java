@@ -0,0 +1,144 @@
+package com.quackstagram.dao.impl;
+
+import com.quackstagram.dao.interfaces.ImageIdDAO;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * File-based implementation of ImageIdDAO.
+ * The counter file records, per user, the highest number reserved so far. Numbers are
+ * reserved in blocks and handed out from memory, so the file is only rewritten once
+ * per block. The file is replaced by an atomic rename under a file lock, so a crash
+ * can at worst skip the rest of a block and never hands out a number twice.
+ */
+public class FileImageIdDAO implements ImageIdDAO {
+    private static final int BLOCK_SIZE = 16;
+    // File locks are held per JVM, so instances in the same JVM also take this monitor
+    private static final Object RESERVE_LOCK = new Object();
+    
+    private final String counterFilePath = "data/image_ids.txt";
+    private final String lockFilePath = "data/image_ids.lock";
+    private final String uploadedImagesPath = "img/uploaded/";
+    // Next number to hand out and the last reserved one, per user
+    private final Map<String, int[]> blocks = new HashMap<>();
+    
+    /**
+     * Allocates the next image number for a user
+     * 
+     * @param username the username of the user posting the picture
+     * @return the allocated number
+     * @throws IOException if the counter file cannot be updated
+     */
+    @Override
+    public synchronized int nextImageId(String username) throws IOException {
+        int[] block = blocks.get(username);
+        if (block == null || block[0] > block[1]) {
+            int last = reserveBlock(username);
+            block = new int[] { last - BLOCK_SIZE + 1, last };
+            blocks.put(username, block);
+        }
+        return block[0]++;
+    }
+    
+    /**
+     * Raises the user's reserved number by one block in the counter file
+     * 
+     * @param username the username of the user
+     * @return the last number of the reserved block
+     * @throws IOException if an I/O error occurs
+     */
+    private int reserveBlock(String username) throws IOException {
+        Path counterFile = Paths.get(counterFilePath);
+        Files.createDirectories(counterFile.getParent());
+        
+        // The lock keeps other processes sharing the data directory out while the file is replaced
+        synchronized (RESERVE_LOCK) {
+            try (FileChannel lockChannel = FileChannel.open(Paths.get(lockFilePath),
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+                FileLock lock = lockChannel.lock();
+                try {
+                    Map<String, Integer> reserved = readCounters(counterFile);
+                    Integer previous = reserved.get(username);
+                    // Users from before the counter file existed continue after their stored images
+                    int last = (previous != null ? previous : highestStoredId(username)) + BLOCK_SIZE;
+                    reserved.put(username, last);
+                    writeCounters(counterFile, reserved);
+                    return last;
+                } finally {
+                    lock.release();
+                }
+            }
+        }
+    }
+    
+    private Map<String, Integer> readCounters(Path counterFile) throws IOException {
+        Map<String, Integer> reserved = new HashMap<>();
+        if (!Files.exists(counterFile)) {
+            return reserved;
+        }
+        for (String line : Files.readAllLines(counterFile)) {
+            String[] parts = line.split(":");
+            if (parts.length == 2) {
+                reserved.put(parts[0].trim(), Integer.parseInt(parts[1].trim()));
+            }
+        }
+        return reserved;
+    }
+    
+    private void writeCounters(Path counterFile, Map<String, Integer> reserved) throws IOException {
+        List<String> lines = new ArrayList<>();
+        for (Map.Entry<String, Integer> entry : reserved.entrySet()) {
+            lines.add(entry.getKey() + ": " + entry.getValue());
+        }
+        
+        Path temp = Files.createTempFile(counterFile.getParent(), "image_ids", ".tmp");
+        try {
+            Files.write(temp, lines);
+            // Flush to disk before the rename, so a crash cannot leave an empty counter file behind
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                channel.force(true);
+            }
+            Files.move(temp, counterFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+    
+    /**
+     * Finds the highest number among a user's stored images; only runs the first
+     * time a user without a counter uploads
+     */
+    private int highestStoredId(String username) throws IOException {
+        Path storageDir = Paths.get(uploadedImagesPath);
+        if (!Files.exists(storageDir)) {
+            return 0;
+        }
+        
+        int maxId = 0;
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(storageDir, username + "_*")) {
+            for (Path path : stream) {
+                String fileName = path.getFileName().toString();
+                int idEndIndex = fileName.lastIndexOf('.');
+                if (idEndIndex != -1) {
+                    try {
+                        maxId = Math.max(maxId, Integer.parseInt(fileName.substring(username.length() + 1, idEndIndex)));
+                    } catch (NumberFormatException e) {
+                    }
+                }
+            }
+        }
+        return maxId;
+    }
+}
\ No newline at end of file
@@ -1,73 +1,234 @@
 package com.quackstagram.dao.impl;
 
 import com.quackstagram.dao.interfaces.NotificationDAO;
+import com.quackstagram.model.FeedCursor;
 import com.quackstagram.model.Notification;
 import com.quackstagram.model.NotificationType;
+import com.quackstagram.model.Page;
 import com.quackstagram.util.FileUtil;
 
 import java.io.IOException;
 import java.time.LocalDateTime;
+import java.time.YearMonth;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
 
 /**
- * File-based implementation of NotificationDAO
+ * File-based implementation of NotificationDAO.
+ * Notifications are kept in one file per month, named after the month of their timestamp.
+ * Reads go from the newest month back and stop once a page is full, so they only touch
+ * recent files. Months past the retention period are gzipped into the archive directory,
+ * where reads no longer look.
+ * Each receiver's seen mark and unread count are kept in a separate file, one line
+ * per receiver, which saving notifications keeps up to date.
  */
 public class FileNotificationDAO implements NotificationDAO {
-    private final String notificationsFilePath = "data/notifications.txt";
+    /**
+     * The number of whole months kept before the current one, by default
+     */
+    public static final int DEFAULT_RETENTION_MONTHS = 12;
+    
+    private final String notificationsDirectory = "data/notifications";
+    private final String archiveDirectory = "data/notifications/archive";
+    private final String legacyFilePath = "data/notifications.txt";
+    private final String readStateFilePath = "data/notification_state.txt";
     private final DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private final int retentionMonths;
+    
+    /**
+     * Constructor for FileNotificationDAO with the default retention period
+     */
+    public FileNotificationDAO() {
+        this(DEFAULT_RETENTION_MONTHS);
+    }
+    
+    /**
+     * Constructor for FileNotificationDAO. Moves notifications from the single file
+     * used before into monthly files, then archives the months past retention.
+     * 
+     * @param retentionMonths the number of whole months kept before the current one
+     */
+    public FileNotificationDAO(int retentionMonths) {
+        this.retentionMonths = retentionMonths;
+        try {
+            splitLegacyFile();
+            archiveExpiredPeriods();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
 
     /**
-     * Retrieves all notifications for a specific receiver
+     * Retrieves a page of the notifications for a receiver, newest first
      * 
      * @param username the username of the receiver
-     * @return a list of notifications for the receiver
+     * @param cursor the position after the previous page, or null for the first page
+     * @param limit the maximum number of notifications to return
+     * @return the page of notifications and the cursor for the next page
      */
     @Override
-    public List<Notification> findByReceiver(String username) {
-        List<Notification> notifications = new ArrayList<>();
+    public Page<Notification> findByReceiver(String username, FeedCursor cursor, int limit) {
+        List<Notification> remaining = new ArrayList<>();
+        YearMonth cursorPeriod = cursor != null ? YearMonth.from(cursor.getTimestamp()) : null;
         try {
-            FileUtil.createFileIfNotExists(notificationsFilePath);
-            
-            List<String> lines = FileUtil.readMatchingLines(notificationsFilePath, 
-                    line -> {
-                        String[] parts = line.split(";");
-                        return parts.length >= 1 && parts[0].trim().equals(username);
-                    });
-            
-            for (String line : lines) {
-                notifications.add(parseNotificationFromLine(line));
+            for (YearMonth period : listPeriods()) {
+                if (cursorPeriod != null && period.isAfter(cursorPeriod)) {
+                    continue;
+                }
+                for (Notification notification : readNotifications(period, username)) {
+                    if (cursor == null || cursor.precedes(notification.getTimestamp(), notification.getId())) {
+                        remaining.add(notification);
+                    }
+                }
+                // Earlier months hold only older notifications, which cannot make this page
+                if (remaining.size() > limit) {
+                    break;
+                }
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        
+        remaining.sort(Comparator.comparing(Notification::getTimestamp)
+                .thenComparing(Notification::getId)
+                .reversed());
+        
+        if (remaining.size() <= limit) {
+            return new Page<>(remaining, null);
+        }
+        List<Notification> items = new ArrayList<>(remaining.subList(0, limit));
+        return new Page<>(items, FeedCursor.after(items.get(limit - 1)));
+    }
+    
+    /**
+     * Counts the notifications a receiver has not seen yet. The count is read from the
+     * read state file; a receiver without a line there is counted once and added.
+     * 
+     * @param username the username of the receiver
+     * @return the number of notifications newer than the receiver last marked as read
+     */
+    @Override
+    public int countUnread(String username) {
+        try {
+            Map<String, ReadState> states = readStates();
+            ReadState state = states.get(username);
+            if (state == null) {
+                state = new ReadState(null, countNewer(username, null));
+                states.put(username, state);
+                writeStates(states);
             }
+            return state.unread;
+        } catch (IOException e) {
+            e.printStackTrace();
+            return 0;
+        }
+    }
+    
+    /**
+     * Marks the notifications a receiver got up to a point in time as seen. The mark
+     * only moves forward; the notifications past it are counted again.
+     * 
+     * @param username the username of the receiver
+     * @param upTo the timestamp of the newest notification seen
+     */
+    @Override
+    public void markRead(String username, LocalDateTime upTo) {
+        try {
+            Map<String, ReadState> states = readStates();
+            ReadState state = states.get(username);
+            LocalDateTime seenAt = state != null && state.seenAt != null && state.seenAt.isAfter(upTo)
+                    ? state.seenAt
+                    : upTo;
+            states.put(username, new ReadState(seenAt, countNewer(username, seenAt)));
+            writeStates(states);
         } catch (IOException e) {
             e.printStackTrace();
         }
-        return notifications;
     }
 
     /**
-     * Saves a new notification to file
+     * Saves a new notification to file, merged into the line it shares an aggregation key with
      * 
      * @param notification the notification to save
      */
     @Override
     public void save(Notification notification) {
         try {
-            FileUtil.createFileIfNotExists(notificationsFilePath);
-            
-            String line = String.format("%s; %s; %s; %s; %s",
-                    notification.getReceiverUsername(),
-                    notification.getSenderUsername(),
-                    notification.getImageId() != null ? notification.getImageId() : "",
-                    notification.getTimestamp().format(formatter),
-                    notification.getType().name());
-            
-            FileUtil.appendLine(notificationsFilePath, line);
+            saveAll(List.of(notification));
         } catch (IOException e) {
             e.printStackTrace();
         }
     }
-
+    
+    /**
+     * Saves several new notifications to the files of their months. Those sharing an
+     * aggregation key with a line already in the file are merged into it; the others
+     * are appended.
+     * 
+     * @param notifications the notifications to save
+     * @throws IOException if a file could not be written
+     */
+    @Override
+    public void saveAll(List<Notification> notifications) throws IOException {
+        Map<YearMonth, List<Notification>> byPeriod = new TreeMap<>();
+        for (Notification notification : Notification.coalesce(notifications)) {
+            byPeriod.computeIfAbsent(YearMonth.from(notification.getTimestamp()), period -> new ArrayList<>())
+                    .add(notification);
+        }
+        
+        Map<String, ReadState> states = readStates();
+        boolean statesChanged = false;
+        for (Map.Entry<YearMonth, List<Notification>> entry : byPeriod.entrySet()) {
+            if (savePeriod(entry.getKey(), entry.getValue(), states)) {
+                statesChanged = true;
+            }
+        }
+        if (statesChanged) {
+            writeStates(states);
+        }
+    }
+    
+    /**
+     * Gzips the files of the months past the retention period into the archive
+     * directory, and recounts the unread notifications that leaves
+     * 
+     * @throws IOException if a file could not be archived
+     */
+    public void archiveExpiredPeriods() throws IOException {
+        YearMonth oldestKept = YearMonth.now().minusMonths(retentionMonths);
+        boolean archived = false;
+        for (YearMonth period : listPeriods()) {
+            if (!period.isBefore(oldestKept)) {
+                continue;
+            }
+            
+            // A month written to again after it was archived gets a second archive file
+            String archivePath = archiveDirectory + "/" + period + ".txt.gz";
+            for (int part = 2; FileUtil.fileExists(archivePath); part++) {
+                archivePath = archiveDirectory + "/" + period + "." + part + ".txt.gz";
+            }
+            FileUtil.compressFile(periodFilePath(period), archivePath);
+            archived = true;
+        }
+        
+        if (archived) {
+            Map<String, ReadState> states = readStates();
+            for (Map.Entry<String, ReadState> entry : states.entrySet()) {
+                LocalDateTime seenAt = entry.getValue().seenAt;
+                entry.setValue(new ReadState(seenAt, countNewer(entry.getKey(), seenAt)));
+            }
+            writeStates(states);
+        }
+    }
+    
     /**
      * Deletes a notification by ID
      * 
@@ -77,6 +238,234 @@ public class FileNotificationDAO implements NotificationDAO {
     public void delete(String id) {
         // Not implemented in this version
     }
+    
+    /**
+     * Merges notifications into the file of their month
+     * 
+     * @param period the month of the notifications
+     * @param notifications the notifications, one per aggregation key
+     * @param states the read states, whose unread counts are updated
+     * @return true if an unread count changed
+     * @throws IOException if the file could not be written
+     */
+    private boolean savePeriod(YearMonth period, List<Notification> notifications,
+                               Map<String, ReadState> states) throws IOException {
+        String filePath = periodFilePath(period);
+        FileUtil.createFileIfNotExists(filePath);
+        
+        Map<String, Notification> pending = new LinkedHashMap<>();
+        Set<String> receivers = new HashSet<>();
+        for (Notification notification : notifications) {
+            pending.put(notification.getAggregationKey(), notification);
+            if (notification.isAggregatable()) {
+                receivers.add(notification.getReceiverUsername());
+            }
+        }
+        
+        List<String> lines = FileUtil.readAllLines(filePath);
+        boolean statesChanged = false;
+        boolean merged = false;
+        for (int i = 0; i < lines.size() && !receivers.isEmpty(); i++) {
+            String line = lines.get(i);
+            // Only lines of the receivers being written to are parsed
+            if (line.trim().isEmpty() || !receivers.contains(line.split(";")[0].trim())) {
+                continue;
+            }
+            
+            Notification existing = parseNotificationFromLine(line);
+            Notification notification = existing.isAggregatable()
+                    ? pending.remove(existing.getAggregationKey())
+                    : null;
+            if (notification != null) {
+                Notification mergedNotification = existing.mergedWith(notification);
+                lines.set(i, formatNotification(mergedNotification));
+                merged = true;
+                
+                // A seen notification that moves past the mark is unread again
+                ReadState state = states.get(existing.getReceiverUsername());
+                if (state != null && !state.isUnread(existing) && state.isUnread(mergedNotification)) {
+                    state.unread++;
+                    statesChanged = true;
+                }
+            }
+        }
+        
+        List<String> appended = new ArrayList<>(pending.size());
+        for (Notification notification : pending.values()) {
+            appended.add(formatNotification(notification));
+            
+            ReadState state = states.get(notification.getReceiverUsername());
+            if (state != null && state.isUnread(notification)) {
+                state.unread++;
+                statesChanged = true;
+            }
+        }
+        if (merged) {
+            lines.addAll(appended);
+            FileUtil.writeLines(filePath, lines, false);
+        } else {
+            FileUtil.writeLines(filePath, appended, true);
+        }
+        return statesChanged;
+    }
+
+    /**
+     * Lists the months that have a notifications file, newest first
+     * 
+     * @return the months not archived yet
+     * @throws IOException if the directory could not be listed
+     */
+    private List<YearMonth> listPeriods() throws IOException {
+        List<YearMonth> periods = new ArrayList<>();
+        for (String fileName : FileUtil.listFileNames(notificationsDirectory, "[0-9][0-9][0-9][0-9]-[0-9][0-9].txt")) {
+            periods.add(YearMonth.parse(fileName.substring(0, fileName.length() - ".txt".length())));
+        }
+        periods.sort(Comparator.reverseOrder());
+        return periods;
+    }
+    
+    /**
+     * Gets the path of the notifications file of a month
+     * 
+     * @param period the month
+     * @return the path of the file
+     */
+    private String periodFilePath(YearMonth period) {
+        return notificationsDirectory + "/" + period + ".txt";
+    }
+    
+    /**
+     * Moves the lines of the single notifications file used before into the files of
+     * their months, then removes it
+     * 
+     * @throws IOException if a file could not be read or written
+     */
+    private void splitLegacyFile() throws IOException {
+        if (!FileUtil.fileExists(legacyFilePath)) {
+            return;
+        }
+        
+        Map<YearMonth, List<String>> byPeriod = new TreeMap<>();
+        for (String line : FileUtil.readAllLines(legacyFilePath)) {
+            if (!line.trim().isEmpty()) {
+                YearMonth period = YearMonth.from(parseNotificationFromLine(line).getTimestamp());
+                byPeriod.computeIfAbsent(period, p -> new ArrayList<>()).add(line);
+            }
+        }
+        for (Map.Entry<YearMonth, List<String>> entry : byPeriod.entrySet()) {
+            FileUtil.writeLines(periodFilePath(entry.getKey()), entry.getValue(), true);
+        }
+        FileUtil.deleteFile(legacyFilePath);
+    }
+    
+    /**
+     * Reads a receiver's notifications from the file of one month. Lines written
+     * before notifications were merged on save are merged here.
+     * 
+     * @param period the month to read
+     * @param username the username of the receiver
+     * @return the notifications for the receiver in file order
+     * @throws IOException if the file could not be read
+     */
+    private List<Notification> readNotifications(YearMonth period, String username) throws IOException {
+        String filePath = periodFilePath(period);
+        if (!FileUtil.fileExists(filePath)) {
+            return new ArrayList<>();
+        }
+        
+        // Lines start with the receiver, so other receivers' lines are skipped without splitting them
+        String prefix = username + ";";
+        List<String> lines = FileUtil.readMatchingLines(filePath, line -> line.startsWith(prefix));
+        
+        List<Notification> notifications = new ArrayList<>(lines.size());
+        for (String line : lines) {
+            notifications.add(parseNotificationFromLine(line));
+        }
+        return Notification.coalesce(notifications);
+    }
+    
+    /**
+     * Counts a receiver's notifications newer than a seen mark
+     * 
+     * @param username the username of the receiver
+     * @param seenAt the seen mark, or null to count them all
+     * @return the number of unread notifications
+     * @throws IOException if the file could not be read
+     */
+    private int countNewer(String username, LocalDateTime seenAt) throws IOException {
+        ReadState state = new ReadState(seenAt, 0);
+        int unread = 0;
+        for (YearMonth period : listPeriods()) {
+            // Months before the mark's hold only seen notifications
+            if (seenAt != null && period.isBefore(YearMonth.from(seenAt))) {
+                break;
+            }
+            for (Notification notification : readNotifications(period, username)) {
+                if (state.isUnread(notification)) {
+                    unread++;
+                }
+            }
+        }
+        return unread;
+    }
+    
+    /**
+     * Reads the seen mark and unread count of every receiver that has one
+     * 
+     * @return the read state by receiver username
+     * @throws IOException if the file could not be read
+     */
+    private Map<String, ReadState> readStates() throws IOException {
+        FileUtil.createFileIfNotExists(readStateFilePath);
+        
+        Map<String, ReadState> states = new LinkedHashMap<>();
+        for (String line : FileUtil.readAllLines(readStateFilePath)) {
+            String[] parts = line.split(";");
+            if (parts.length < 3) {
+                continue;
+            }
+            String seenAt = parts[1].trim();
+            states.put(parts[0].trim(), new ReadState(
+                    seenAt.isEmpty() ? null : LocalDateTime.parse(seenAt, formatter),
+                    Integer.parseInt(parts[2].trim())));
+        }
+        return states;
+    }
+    
+    /**
+     * Replaces the read state file
+     * 
+     * @param states the read state by receiver username
+     * @throws IOException if the file could not be written
+     */
+    private void writeStates(Map<String, ReadState> states) throws IOException {
+        List<String> lines = new ArrayList<>(states.size());
+        for (Map.Entry<String, ReadState> entry : states.entrySet()) {
+            ReadState state = entry.getValue();
+            lines.add(String.format("%s; %s; %d",
+                    entry.getKey(),
+                    state.seenAt != null ? state.seenAt.format(formatter) : "",
+                    state.unread));
+        }
+        FileUtil.writeLines(readStateFilePath, lines, false);
+    }
+    
+    /**
+     * Formats a notification as a line of the notifications file
+     * 
+     * @param notification the notification to format
+     * @return the line, without line separator
+     */
+    private String formatNotification(Notification notification) {
+        return String.format("%s; %s; %s; %s; %s; %d; %s",
+                notification.getReceiverUsername(),
+                notification.getSenderUsername(),
+                notification.getImageId() != null ? notification.getImageId() : "",
+                notification.getTimestamp().format(formatter),
+                notification.getType().name(),
+                notification.getCount(),
+                String.join(",", notification.getRecentSenders()));
+    }
 
     /**
      * Parses a line from the notifications file into a Notification object
@@ -107,6 +496,33 @@ public class FileNotificationDAO implements NotificationDAO {
             type = NotificationType.FOLLOW;
         }
         
-        return new Notification(receiver, sender, imageId, timestamp, type);
+        // Lines written before notifications were merged stand for a single one
+        int count = 1;
+        List<String> recentSenders = List.of(sender);
+        if (parts.length >= 7) {
+            count = Integer.parseInt(parts[5].trim());
+            recentSenders = Arrays.asList(parts[6].trim().split(","));
+        }
+        
+        // Lines have no ID of their own, but once merged no two share an aggregation key
+        String id = new Notification(receiver, sender, imageId, timestamp, type).getAggregationKey();
+        return new Notification(id, receiver, sender, imageId, timestamp, type, count, recentSenders);
+    }
+    
+    /**
+     * A receiver's seen mark and the number of notifications past it
+     */
+    private static final class ReadState {
+        private final LocalDateTime seenAt;
+        private int unread;
+        
+        ReadState(LocalDateTime seenAt, int unread) {
+            this.seenAt = seenAt;
+            this.unread = unread;
+        }
+        
+        boolean isUnread(Notification notification) {
+            return seenAt == null || notification.getTimestamp().isAfter(seenAt);
+        }
     }
 }
\ No newline at end of file
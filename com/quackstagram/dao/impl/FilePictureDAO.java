@@ -1,6 +1,8 @@
 package com.quackstagram.dao.impl;
 
 import com.quackstagram.dao.interfaces.PictureDAO;
+import com.quackstagram.model.FeedCursor;
+import com.quackstagram.model.Page;
 import com.quackstagram.model.Picture;
 import com.quackstagram.util.FileUtil;
 
@@ -8,7 +10,13 @@ import java.io.IOException;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * File-based implementation of PictureDAO
@@ -64,27 +72,50 @@ public class FilePictureDAO implements PictureDAO {
         }
         return pictures;
     }
+    
+    /**
+     * Counts the pictures posted by a user without parsing them
+     * 
+     * @param username the username of the user
+     * @return the number of pictures the user has posted
+     */
+    @Override
+    public int countByUsername(String username) {
+        try {
+            FileUtil.createFileIfNotExists(imageDetailsFilePath);
+            
+            return FileUtil.countMatchingLines(imageDetailsFilePath, 
+                    line -> line.contains("Username: " + username));
+        } catch (IOException e) {
+            e.printStackTrace();
+            return 0;
+        }
+    }
 
     /**
      * Saves a new picture
      * 
      * @param picture the picture to save
+     * @return true if the picture was stored, false otherwise
      */
     @Override
-    public void save(Picture picture) {
+    public boolean save(Picture picture) {
         try {
             FileUtil.createFileIfNotExists(imageDetailsFilePath);
             
-            String line = String.format("ImageID: %s, Username: %s, Bio: %s, Timestamp: %s, Likes: %d",
+            String line = String.format("ImageID: %s, Username: %s, Bio: %s, Timestamp: %s, Likes: %d, Path: %s",
                     picture.getImageId(),
                     picture.getUsername(),
                     picture.getCaption(),
                     picture.getTimestamp().format(formatter),
-                    picture.getLikesCount());
+                    picture.getLikesCount(),
+                    picture.getImagePath());
             
             FileUtil.appendLine(imageDetailsFilePath, line);
+            return true;
         } catch (IOException e) {
             e.printStackTrace();
+            return false;
         }
     }
 
@@ -100,35 +131,46 @@ public class FilePictureDAO implements PictureDAO {
             
             FileUtil.updateLines(imageDetailsFilePath, 
                     line -> line.contains("ImageID: " + picture.getImageId()), 
-                    line -> String.format("ImageID: %s, Username: %s, Bio: %s, Timestamp: %s, Likes: %d",
+                    line -> String.format("ImageID: %s, Username: %s, Bio: %s, Timestamp: %s, Likes: %d, Path: %s",
                             picture.getImageId(),
                             picture.getUsername(),
                             picture.getCaption(),
                             picture.getTimestamp().format(formatter),
-                            picture.getLikesCount()));
+                            picture.getLikesCount(),
+                            picture.getImagePath()));
         } catch (IOException e) {
             e.printStackTrace();
         }
     }
 
     /**
-     * Deletes a picture by ID
+     * Deletes a picture by ID. The image file belongs to the blob store
+     * and is released by the caller, as with the database backend.
      * 
      * @param imageId the ID of the picture to delete
+     * @return true if the picture existed and was deleted, false otherwise
      */
     @Override
-    public void delete(String imageId) {
+    public boolean delete(String imageId) {
         try {
             FileUtil.createFileIfNotExists(imageDetailsFilePath);
             
-            List<String> lines = FileUtil.readMatchingLines(imageDetailsFilePath, 
-                    line -> !line.contains("ImageID: " + imageId));
+            List<String> allLines = FileUtil.readAllLines(imageDetailsFilePath);
+            List<String> lines = new ArrayList<>();
+            for (String line : allLines) {
+                if (!line.contains("ImageID: " + imageId)) {
+                    lines.add(line);
+                }
+            }
+            if (lines.size() == allLines.size()) {
+                return false;
+            }
             
             FileUtil.writeLines(imageDetailsFilePath, lines, false);
-            
-            FileUtil.deleteFile(uploadedImagesPath + imageId + ".png");
+            return true;
         } catch (IOException e) {
             e.printStackTrace();
+            return false;
         }
     }
 
@@ -190,6 +232,96 @@ public class FilePictureDAO implements PictureDAO {
         return pictures;
     }
 
+    /**
+     * Retrieves one page of pictures from users that a user follows, newest first
+     * 
+     * @param username the username of the user
+     * @param cursor the position after the previous page, or null for the first page
+     * @param limit the maximum number of pictures to return
+     * @return the page of pictures and the cursor for the next page
+     */
+    @Override
+    public Page<Picture> getFollowedUsersPictures(String username, FeedCursor cursor, int limit) {
+        return page(getFollowedUsersPictures(username), cursor, limit);
+    }
+    
+    /**
+     * Retrieves one page of all pictures, newest first
+     * 
+     * @param cursor the position after the previous page, or null for the first page
+     * @param limit the maximum number of pictures to return
+     * @return the page of pictures and the cursor for the next page
+     */
+    @Override
+    public Page<Picture> getAllPictures(FeedCursor cursor, int limit) {
+        return page(getAllPictures(), cursor, limit);
+    }
+    
+    /**
+     * Retrieves one page of pictures posted by any of the given users, newest first
+     * 
+     * @param usernames the usernames of the authors
+     * @param cursor the position after the previous page, or null for the first page
+     * @param limit the maximum number of pictures to return
+     * @return the page of pictures and the cursor for the next page
+     */
+    @Override
+    public Page<Picture> findByUsernames(Collection<String> usernames, FeedCursor cursor, int limit) {
+        List<Picture> pictures = new ArrayList<>();
+        for (Picture picture : getAllPictures()) {
+            if (usernames.contains(picture.getUsername())) {
+                pictures.add(picture);
+            }
+        }
+        return page(pictures, cursor, limit);
+    }
+    
+    /**
+     * Retrieves the current likes count of several pictures
+     * 
+     * @param imageIds the IDs of the pictures
+     * @return the likes count by image ID; pictures that no longer exist are left out
+     */
+    @Override
+    public Map<String, Integer> getLikesCounts(Collection<String> imageIds) {
+        Set<String> wanted = new HashSet<>(imageIds);
+        Map<String, Integer> likesCounts = new HashMap<>();
+        for (Picture picture : getAllPictures()) {
+            if (wanted.contains(picture.getImageId())) {
+                likesCounts.put(picture.getImageId(), picture.getLikesCount());
+            }
+        }
+        return likesCounts;
+    }
+    
+    /**
+     * Selects the pictures after a cursor in newest-first order
+     * 
+     * @param pictures the candidate pictures in any order
+     * @param cursor the position after the previous page, or null for the first page
+     * @param limit the maximum number of pictures to return
+     * @return the page of pictures and the cursor for the next page
+     */
+    private Page<Picture> page(List<Picture> pictures, FeedCursor cursor, int limit) {
+        List<Picture> remaining = new ArrayList<>();
+        for (Picture picture : pictures) {
+            if (cursor == null || cursor.precedes(picture.getTimestamp(), picture.getImageId())) {
+                remaining.add(picture);
+            }
+        }
+        
+        remaining.sort(Comparator.comparing(Picture::getTimestamp)
+                .thenComparing(Picture::getImageId)
+                .reversed());
+        
+        if (remaining.size() <= limit) {
+            return new Page<>(remaining, null);
+        }
+        
+        List<Picture> items = new ArrayList<>(remaining.subList(0, limit));
+        return new Page<>(items, FeedCursor.after(items.get(limit - 1)));
+    }
+    
     /**
      * Parses a line from the image details file into a Picture object
      * 
@@ -205,12 +337,14 @@ public class FilePictureDAO implements PictureDAO {
         LocalDateTime timestamp = LocalDateTime.parse(parts[3].split(": ")[1], formatter);
         int likes = Integer.parseInt(parts[4].split(": ")[1]);
         
-        String imagePath = uploadedImagesPath + imageId + ".png";
+        // Lines written before images moved to the blob store have no path
+        int pathStart = line.lastIndexOf(", Path: ");
+        String imagePath = pathStart != -1
+                ? line.substring(pathStart + ", Path: ".length())
+                : uploadedImagesPath + imageId + ".png";
         
         Picture picture = new Picture(imageId, username, imagePath, caption, timestamp);
-        for (int i = 0; i < likes; i++) {
-            picture.like();
-        }
+        picture.setLikesCount(likes);
         
         return picture;
     }
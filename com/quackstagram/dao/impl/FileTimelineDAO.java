@@ -0,0 +1,253 @@
+package com.quackstagram.dao.impl;
+
+import com.quackstagram.dao.interfaces.TimelineDAO;
+import com.quackstagram.model.FeedCursor;
+import com.quackstagram.model.Page;
+import com.quackstagram.model.Picture;
+import com.quackstagram.util.FileUtil;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * File-based implementation of TimelineDAO
+ */
+public class FileTimelineDAO implements TimelineDAO {
+    private static final Comparator<Entry> NEWEST_FIRST = Comparator
+            .comparing((Entry entry) -> entry.timestamp)
+            .thenComparing(entry -> entry.imageId)
+            .reversed();
+    
+    private final String timelineFilePath = "data/timeline.txt";
+    private final String trimmedFilePath = "data/trimmed_timelines.txt";
+    private final DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private final FilePictureDAO pictureDAO = new FilePictureDAO();
+    
+    /**
+     * Adds a newly posted picture to the timelines of the given owners
+     * 
+     * @param picture the picture that was posted
+     * @param owners the usernames whose timelines receive the picture
+     * @param cap the maximum number of entries kept per timeline
+     */
+    @Override
+    public void fanOut(Picture picture, List<String> owners, int cap) {
+        if (owners.isEmpty()) {
+            return;
+        }
+        
+        try {
+            List<Entry> entries = readEntries();
+            List<String> trimmed = new ArrayList<>();
+            for (String owner : owners) {
+                addEntry(entries, new Entry(owner, picture.getImageId(), picture.getUsername(), picture.getTimestamp()));
+                if (trim(entries, owner, cap)) {
+                    trimmed.add(owner);
+                }
+            }
+            writeEntries(entries);
+            markTrimmed(trimmed);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+    
+    /**
+     * Copies the newest pictures of an author into an owner's timeline
+     * 
+     * @param owner the username whose timeline is filled
+     * @param author the username whose pictures are copied
+     * @param cap the maximum number of entries kept in the timeline
+     */
+    @Override
+    public void backfill(String owner, String author, int cap) {
+        try {
+            List<Entry> entries = readEntries();
+            for (Picture picture : pictureDAO.findByUsername(author)) {
+                addEntry(entries, new Entry(owner, picture.getImageId(), author, picture.getTimestamp()));
+            }
+            boolean trimmed = trim(entries, owner, cap);
+            writeEntries(entries);
+            if (trimmed) {
+                markTrimmed(List.of(owner));
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+    
+    /**
+     * Removes every picture of an author from an owner's timeline
+     * 
+     * @param owner the username whose timeline is pruned
+     * @param author the username whose pictures are removed
+     */
+    @Override
+    public void prune(String owner, String author) {
+        try {
+            List<Entry> entries = readEntries();
+            entries.removeIf(entry -> entry.owner.equals(owner) && entry.author.equals(author));
+            writeEntries(entries);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+    
+    /**
+     * Retrieves one page of an owner's timeline, newest first
+     * 
+     * @param owner the username whose timeline is read
+     * @param cursor the position after the previous page, or null for the first page
+     * @param limit the maximum number of pictures to return
+     * @return the page of pictures and the cursor for the next page
+     */
+    @Override
+    public Page<Picture> getTimeline(String owner, FeedCursor cursor, int limit) {
+        List<Picture> pictures = new ArrayList<>();
+        try {
+            List<Entry> entries = new ArrayList<>();
+            for (Entry entry : readEntries()) {
+                if (entry.owner.equals(owner)
+                        && (cursor == null || cursor.precedes(entry.timestamp, entry.imageId))) {
+                    entries.add(entry);
+                }
+            }
+            entries.sort(NEWEST_FIRST);
+            
+            for (Entry entry : entries) {
+                if (pictures.size() > limit) {
+                    break;
+                }
+                Picture picture = pictureDAO.findById(entry.imageId);
+                if (picture != null) {
+                    pictures.add(picture);
+                }
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        
+        if (pictures.size() <= limit) {
+            return new Page<>(pictures, null);
+        }
+        List<Picture> items = new ArrayList<>(pictures.subList(0, limit));
+        return new Page<>(items, FeedCursor.after(items.get(limit - 1)));
+    }
+    
+    /**
+     * Checks whether an owner's timeline ever dropped entries to stay within its cap
+     * 
+     * @param owner the username whose timeline is checked
+     * @return true if older pictures may be missing from the timeline
+     */
+    @Override
+    public boolean isTrimmed(String owner) {
+        try {
+            FileUtil.createFileIfNotExists(trimmedFilePath);
+            return FileUtil.countMatchingLines(trimmedFilePath, line -> line.equals("Owner: " + owner)) > 0;
+        } catch (IOException e) {
+            e.printStackTrace();
+            // Falling back to the full feed never loses pictures
+            return true;
+        }
+    }
+    
+    /**
+     * Adds an entry unless the owner already has the picture
+     * 
+     * @param entries all timeline entries
+     * @param entry the entry to add
+     */
+    private void addEntry(List<Entry> entries, Entry entry) {
+        for (Entry existing : entries) {
+            if (existing.owner.equals(entry.owner) && existing.imageId.equals(entry.imageId)) {
+                return;
+            }
+        }
+        entries.add(entry);
+    }
+    
+    /**
+     * Drops the oldest entries of an owner beyond the cap
+     * 
+     * @param entries all timeline entries
+     * @param owner the owner whose timeline is trimmed
+     * @param cap the maximum number of entries to keep
+     * @return true if any entries were dropped
+     */
+    private boolean trim(List<Entry> entries, String owner, int cap) {
+        List<Entry> owned = new ArrayList<>();
+        for (Entry entry : entries) {
+            if (entry.owner.equals(owner)) {
+                owned.add(entry);
+            }
+        }
+        if (owned.size() <= cap) {
+            return false;
+        }
+        owned.sort(NEWEST_FIRST);
+        entries.removeAll(owned.subList(cap, owned.size()));
+        return true;
+    }
+    
+    /**
+     * Records that the timelines of some owners were trimmed
+     * 
+     * @param owners the owners whose timelines dropped entries
+     */
+    private void markTrimmed(List<String> owners) throws IOException {
+        for (String owner : owners) {
+            if (!isTrimmed(owner)) {
+                FileUtil.appendLine(trimmedFilePath, "Owner: " + owner);
+            }
+        }
+    }
+    
+    private List<Entry> readEntries() throws IOException {
+        FileUtil.createFileIfNotExists(timelineFilePath);
+        
+        List<Entry> entries = new ArrayList<>();
+        for (String line : FileUtil.readAllLines(timelineFilePath)) {
+            String[] parts = line.split(", ");
+            if (parts.length < 4) {
+                continue;
+            }
+            entries.add(new Entry(
+                    parts[0].split(": ")[1],
+                    parts[1].split(": ")[1],
+                    parts[2].split(": ")[1],
+                    LocalDateTime.parse(parts[3].split(": ")[1], formatter)));
+        }
+        return entries;
+    }
+    
+    private void writeEntries(List<Entry> entries) throws IOException {
+        List<String> lines = new ArrayList<>();
+        for (Entry entry : entries) {
+            lines.add(String.format("Owner: %s, ImageID: %s, Author: %s, Timestamp: %s",
+                    entry.owner, entry.imageId, entry.author, entry.timestamp.format(formatter)));
+        }
+        FileUtil.writeLines(timelineFilePath, lines, false);
+    }
+    
+    /**
+     * One picture in one owner's timeline
+     */
+    private static class Entry {
+        private final String owner;
+        private final String imageId;
+        private final String author;
+        private final LocalDateTime timestamp;
+        
+        Entry(String owner, String imageId, String author, LocalDateTime timestamp) {
+            this.owner = owner;
+            this.imageId = imageId;
+            this.author = author;
+            this.timestamp = timestamp;
+        }
+    }
+}
\ No newline at end of file
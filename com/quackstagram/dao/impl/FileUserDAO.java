@@ -17,6 +17,8 @@ import java.util.List;
 public class FileUserDAO implements UserDAO {
     private final String credentialsFilePath = "data/credentials.txt";
     private final String usersFilePath = "data/users.txt";
+    private final FileFollowDAO followDAO = new FileFollowDAO();
+    private final FilePictureDAO pictureDAO = new FilePictureDAO();
 
     /**
      * Finds a user by username
@@ -55,6 +57,29 @@ public class FileUserDAO implements UserDAO {
         }
         return null;
     }
+    
+    /**
+     * Finds a user by username together with their post, follower and following counts
+     * 
+     * @param username the username to search for
+     * @return the User with its counters filled in if found, null otherwise
+     */
+    @Override
+    public User findProfile(String username) {
+        User user = findByUsername(username);
+        if (user == null) {
+            return null;
+        }
+        
+        try {
+            user.setPostCount(pictureDAO.countByUsername(username));
+            user.setFollowersCount(followDAO.countFollowers(username));
+            user.setFollowingCount(followDAO.countFollowing(username));
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        return user;
+    }
 
     /**
      * Saves a new user
@@ -0,0 +1,271 @@
+package com.quackstagram.dao.impl;
+
+import com.quackstagram.dao.interfaces.NotificationDAO;
+import com.quackstagram.model.FeedCursor;
+import com.quackstagram.model.Notification;
+import com.quackstagram.model.Page;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * NotificationDAO that queues new notifications and writes them in batches from a
+ * background thread, so creating one costs the caller no I/O.
+ * A batch is written once it reaches the batch size, or once the oldest queued
+ * notification has waited for the batch window. When the queue is full, callers
+ * wait for the writer to catch up; if it does not within the offer timeout, they
+ * write their notification themselves. Reads first flush the queue, so they always
+ * see the notifications saved before them. Call close to write what is still queued.
+ */
+public class WriteBehindNotificationDAO implements NotificationDAO {
+    private static final int MAX_ATTEMPTS = 3;
+    private static final long RETRY_DELAY_MS = 500;
+    
+    private final NotificationDAO delegate;
+    private final int capacity;
+    private final int batchSize;
+    private final long batchWindowNanos;
+    private final long offerTimeoutNanos;
+    
+    private final ReentrantLock lock = new ReentrantLock();
+    // Signalled when the queue has room again
+    private final Condition notFull = lock.newCondition();
+    // Signalled when the writer has something to do: a full batch, a flush or close
+    private final Condition ready = lock.newCondition();
+    // Signalled when a batch has been written
+    private final Condition written = lock.newCondition();
+    private final ArrayDeque<Notification> queue = new ArrayDeque<>();
+    // Sequence numbers: notifications queued and notifications the writer is done with
+    private long enqueued;
+    private long processed;
+    private long flushTarget;
+    private boolean closed;
+    private final Thread writer;
+    
+    /**
+     * Constructor for WriteBehindNotificationDAO
+     * 
+     * @param delegate the DAO the batches are written to
+     * @param capacity the maximum number of queued notifications
+     * @param batchSize the maximum number of notifications written at once
+     * @param batchWindowMillis how long a queued notification may wait for its batch to fill
+     * @param offerTimeoutMillis how long a caller waits for room in a full queue
+     */
+    public WriteBehindNotificationDAO(NotificationDAO delegate, int capacity, int batchSize,
+                                      long batchWindowMillis, long offerTimeoutMillis) {
+        this.delegate = delegate;
+        this.capacity = capacity;
+        this.batchSize = batchSize;
+        this.batchWindowNanos = TimeUnit.MILLISECONDS.toNanos(batchWindowMillis);
+        this.offerTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(offerTimeoutMillis);
+        
+        writer = new Thread(this::writeBatches, "notification-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+    
+    /**
+     * Retrieves a page of the notifications for a receiver, including those still queued
+     * 
+     * @param username the username of the receiver
+     * @param cursor the position after the previous page, or null for the first page
+     * @param limit the maximum number of notifications to return
+     * @return the page of notifications and the cursor for the next page
+     */
+    @Override
+    public Page<Notification> findByReceiver(String username, FeedCursor cursor, int limit) {
+        flush();
+        return delegate.findByReceiver(username, cursor, limit);
+    }
+    
+    /**
+     * Counts the notifications a receiver has not seen yet, including those still queued
+     * 
+     * @param username the username of the receiver
+     * @return the number of notifications newer than the receiver last marked as read
+     */
+    @Override
+    public int countUnread(String username) {
+        flush();
+        return delegate.countUnread(username);
+    }
+    
+    /**
+     * Marks the notifications a receiver got up to a point in time as seen
+     * 
+     * @param username the username of the receiver
+     * @param upTo the timestamp of the newest notification seen
+     */
+    @Override
+    public void markRead(String username, LocalDateTime upTo) {
+        flush();
+        delegate.markRead(username, upTo);
+    }
+    
+    /**
+     * Queues a new notification for the background writer
+     * 
+     * @param notification the notification to save
+     */
+    @Override
+    public void save(Notification notification) {
+        lock.lock();
+        try {
+            long nanos = offerTimeoutNanos;
+            while (queue.size() >= capacity && !closed && nanos > 0) {
+                nanos = notFull.awaitNanos(nanos);
+            }
+            if (!closed && queue.size() < capacity) {
+                queue.add(notification);
+                enqueued++;
+                if (queue.size() >= batchSize) {
+                    ready.signal();
+                }
+                return;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            lock.unlock();
+        }
+        
+        // The writer is behind or stopped: write on the caller's thread rather than lose it
+        delegate.save(notification);
+    }
+    
+    /**
+     * Queues several new notifications for the background writer
+     * 
+     * @param notifications the notifications to save
+     */
+    @Override
+    public void saveAll(List<Notification> notifications) {
+        for (Notification notification : notifications) {
+            save(notification);
+        }
+    }
+    
+    /**
+     * Deletes a notification by ID
+     * 
+     * @param id the ID of the notification to delete
+     */
+    @Override
+    public void delete(String id) {
+        flush();
+        delegate.delete(id);
+    }
+    
+    /**
+     * Waits until every notification queued before this call has been written
+     */
+    public void flush() {
+        lock.lock();
+        try {
+            long target = enqueued;
+            flushTarget = Math.max(flushTarget, target);
+            ready.signal();
+            while (processed < target && writer.isAlive()) {
+                written.await(100, TimeUnit.MILLISECONDS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * Writes every queued notification and stops the writer. Notifications saved
+     * afterwards are written directly.
+     */
+    public void close() {
+        lock.lock();
+        try {
+            closed = true;
+            ready.signal();
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    private void writeBatches() {
+        while (true) {
+            List<Notification> batch = new ArrayList<>(batchSize);
+            lock.lock();
+            try {
+                while (queue.isEmpty() && !closed) {
+                    ready.await();
+                }
+                if (queue.isEmpty()) {
+                    return;
+                }
+                
+                // Give the batch until the window closes to fill, unless someone is waiting for it
+                long nanos = batchWindowNanos;
+                while (queue.size() < batchSize && flushTarget <= processed && !closed && nanos > 0) {
+                    nanos = ready.awaitNanos(nanos);
+                }
+                
+                while (batch.size() < batchSize && !queue.isEmpty()) {
+                    batch.add(queue.poll());
+                }
+                notFull.signalAll();
+            } catch (InterruptedException e) {
+                // Only close stops the writer
+                continue;
+            } finally {
+                lock.unlock();
+            }
+            
+            write(batch);
+            
+            lock.lock();
+            try {
+                processed += batch.size();
+                written.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+    
+    private void write(List<Notification> batch) {
+        for (int attempt = 1; attempt <= MAX_ATTEMPTS; attempt++) {
+            try {
+                delegate.saveAll(batch);
+                return;
+            } catch (IOException e) {
+                System.err.println("Error saving notifications (attempt " + attempt + "): " + e.getMessage());
+            }
+            
+            if (attempt < MAX_ATTEMPTS) {
+                try {
+                    Thread.sleep(RETRY_DELAY_MS * attempt);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+        }
+        
+        // A single bad row, such as one whose picture was deleted meanwhile, fails the
+        // whole batch; saved one at a time the others still go through
+        for (Notification notification : batch) {
+            delegate.save(notification);
+        }
+    }
+}
\ No newline at end of file
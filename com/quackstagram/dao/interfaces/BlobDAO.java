@@ -0,0 +1,27 @@
+package com.quackstagram.dao.interfaces;
+
+import java.io.IOException;
+
+/**
+ * Data Access Object interface for the reference counts of stored image blobs.
+ * A blob is an image file named by the SHA-256 of its content; every picture
+ * showing that content holds one reference to it.
+ */
+public interface BlobDAO {
+    /**
+     * Adds a reference to a blob, recording the blob if it is new
+     * 
+     * @param hash the SHA-256 of the blob, as lowercase hex
+     * @throws IOException if the count cannot be updated
+     */
+    void addReference(String hash) throws IOException;
+    
+    /**
+     * Removes a reference to a blob, forgetting the blob when none remain
+     * 
+     * @param hash the SHA-256 of the blob, as lowercase hex
+     * @return true if that was the last reference and the blob file can be deleted
+     * @throws IOException if the count cannot be updated
+     */
+    boolean removeReference(String hash) throws IOException;
+}
\ No newline at end of file
@@ -42,6 +42,34 @@ public interface FollowDAO {
      */
     List<String> getFollowing(String username) throws IOException;
     
+    /**
+     * Counts the followers of a user without loading them
+     * 
+     * @param username the username of the user
+     * @return the number of followers
+     * @throws IOException if an I/O error occurs
+     */
+    int countFollowers(String username) throws IOException;
+    
+    /**
+     * Counts the users that a user is following without loading them
+     * 
+     * @param username the username of the user
+     * @return the number of followed users
+     * @throws IOException if an I/O error occurs
+     */
+    int countFollowing(String username) throws IOException;
+    
+    /**
+     * Gets the users followed by a user that have more than a given number of followers
+     * 
+     * @param username the username of the user
+     * @param threshold the follower count the followed users must exceed
+     * @return a list of usernames
+     * @throws IOException if an I/O error occurs
+     */
+    List<String> getFollowingWithFollowersAbove(String username, int threshold) throws IOException;
+    
     /**
      * Checks if a user is following another user
      * 
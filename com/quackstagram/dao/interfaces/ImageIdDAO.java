@@ -0,0 +1,21 @@
+package com.quackstagram.dao.interfaces;
+
+import java.io.IOException;
+
+/**
+ * Data Access Object interface for allocating image IDs.
+ * Each user has their own sequence, so image IDs take the form username_n.
+ * Allocation is atomic: concurrent uploads never receive the same number,
+ * and its cost does not depend on how many images are stored.
+ */
+public interface ImageIdDAO {
+    /**
+     * Allocates the next image number for a user. Numbers are unique and increasing
+     * for each user but may skip values, for example after a crash.
+     * 
+     * @param username the username of the user posting the picture
+     * @return the allocated number
+     * @throws IOException if the number cannot be allocated
+     */
+    int nextImageId(String username) throws IOException;
+}
\ No newline at end of file
@@ -1,6 +1,10 @@
 package com.quackstagram.dao.interfaces;
 
+import com.quackstagram.model.FeedCursor;
 import com.quackstagram.model.Notification;
+import com.quackstagram.model.Page;
+import java.io.IOException;
+import java.time.LocalDateTime;
 import java.util.List;
 
 /**
@@ -8,12 +12,30 @@ import java.util.List;
  */
 public interface NotificationDAO {
     /**
-     * Retrieves all notifications for a receiver
+     * Retrieves a page of the notifications for a receiver, newest first
      * 
      * @param username the username of the receiver
-     * @return a list of notifications for the receiver
+     * @param cursor the position after the previous page, or null for the first page
+     * @param limit the maximum number of notifications to return
+     * @return the page of notifications and the cursor for the next page
      */
-    List<Notification> findByReceiver(String username);
+    Page<Notification> findByReceiver(String username, FeedCursor cursor, int limit);
+    
+    /**
+     * Counts the notifications a receiver has not seen yet
+     * 
+     * @param username the username of the receiver
+     * @return the number of notifications newer than the receiver last marked as read
+     */
+    int countUnread(String username);
+    
+    /**
+     * Marks the notifications a receiver got up to a point in time as seen
+     * 
+     * @param username the username of the receiver
+     * @param upTo the timestamp of the newest notification seen
+     */
+    void markRead(String username, LocalDateTime upTo);
     
     /**
      * Saves a new notification
@@ -22,6 +44,14 @@ public interface NotificationDAO {
      */
     void save(Notification notification);
     
+    /**
+     * Saves several new notifications in one write
+     * 
+     * @param notifications the notifications to save
+     * @throws IOException if the notifications could not be saved
+     */
+    void saveAll(List<Notification> notifications) throws IOException;
+    
     /**
      * Deletes a notification by ID
      * 
@@ -1,7 +1,11 @@
 package com.quackstagram.dao.interfaces;
 
+import com.quackstagram.model.FeedCursor;
+import com.quackstagram.model.Page;
 import com.quackstagram.model.Picture;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Data Access Object interface for Picture entities
@@ -23,12 +27,21 @@ public interface PictureDAO {
      */
     List<Picture> findByUsername(String username);
     
+    /**
+     * Counts the pictures posted by a user without loading them
+     * 
+     * @param username the username of the user
+     * @return the number of pictures the user has posted
+     */
+    int countByUsername(String username);
+    
     /**
      * Saves a new picture
      * 
      * @param picture the picture to save
+     * @return true if the picture was stored, false otherwise
      */
-    void save(Picture picture);
+    boolean save(Picture picture);
     
     /**
      * Updates an existing picture
@@ -41,8 +54,9 @@ public interface PictureDAO {
      * Deletes a picture by ID
      * 
      * @param imageId the ID of the picture to delete
+     * @return true if the picture existed and was deleted, false otherwise
      */
-    void delete(String imageId);
+    boolean delete(String imageId);
     
     /**
      * Retrieves pictures from users that a user follows
@@ -58,4 +72,42 @@ public interface PictureDAO {
      * @return a list of all pictures
      */
     List<Picture> getAllPictures();
+    
+    /**
+     * Retrieves one page of pictures from users that a user follows, newest first
+     * 
+     * @param username the username of the user
+     * @param cursor the position after the previous page, or null for the first page
+     * @param limit the maximum number of pictures to return
+     * @return the page of pictures and the cursor for the next page
+     */
+    Page<Picture> getFollowedUsersPictures(String username, FeedCursor cursor, int limit);
+    
+    /**
+     * Retrieves one page of all pictures, newest first
+     * 
+     * @param cursor the position after the previous page, or null for the first page
+     * @param limit the maximum number of pictures to return
+     * @return the page of pictures and the cursor for the next page
+     */
+    Page<Picture> getAllPictures(FeedCursor cursor, int limit);
+    
+    /**
+     * Retrieves one page of pictures posted by any of the given users, newest first
+     * 
+     * @param usernames the usernames of the authors
+     * @param cursor the position after the previous page, or null for the first page
+     * @param limit the maximum number of pictures to return
+     * @return the page of pictures and the cursor for the next page
+     */
+    Page<Picture> findByUsernames(Collection<String> usernames, FeedCursor cursor, int limit);
+    
+    /**
+     * Retrieves the current likes count of several pictures
+     * 
+     * @param imageIds the IDs of the pictures
+     * @return the likes count by image ID; pictures that no longer exist are left out,
+     *         and the map is empty if the counts could not be read
+     */
+    Map<String, Integer> getLikesCounts(Collection<String> imageIds);
 }
\ No newline at end of file
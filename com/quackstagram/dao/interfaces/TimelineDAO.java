@@ -0,0 +1,58 @@
+package com.quackstagram.dao.interfaces;
+
+import com.quackstagram.model.FeedCursor;
+import com.quackstagram.model.Page;
+import com.quackstagram.model.Picture;
+import java.util.List;
+
+/**
+ * Data Access Object interface for the materialized home timelines.
+ * Each owner's timeline holds references to the newest pictures of the
+ * accounts they follow, written when a picture is posted.
+ */
+public interface TimelineDAO {
+    /**
+     * Adds a newly posted picture to the timelines of the given owners
+     * 
+     * @param picture the picture that was posted
+     * @param owners the usernames whose timelines receive the picture
+     * @param cap the maximum number of entries kept per timeline
+     */
+    void fanOut(Picture picture, List<String> owners, int cap);
+    
+    /**
+     * Copies the newest pictures of an author into an owner's timeline
+     * 
+     * @param owner the username whose timeline is filled
+     * @param author the username whose pictures are copied
+     * @param cap the maximum number of entries kept in the timeline
+     */
+    void backfill(String owner, String author, int cap);
+    
+    /**
+     * Removes every picture of an author from an owner's timeline
+     * 
+     * @param owner the username whose timeline is pruned
+     * @param author the username whose pictures are removed
+     */
+    void prune(String owner, String author);
+    
+    /**
+     * Retrieves one page of an owner's timeline, newest first
+     * 
+     * @param owner the username whose timeline is read
+     * @param cursor the position after the previous page, or null for the first page
+     * @param limit the maximum number of pictures to return
+     * @return the page of pictures and the cursor for the next page
+     */
+    Page<Picture> getTimeline(String owner, FeedCursor cursor, int limit);
+    
+    /**
+     * Checks whether an owner's timeline ever dropped entries to stay within its cap,
+     * as recorded by fanOut and backfill when they trim it
+     * 
+     * @param owner the username whose timeline is checked
+     * @return true if older pictures may be missing from the timeline
+     */
+    boolean isTrimmed(String owner);
+}
\ No newline at end of file
@@ -15,6 +15,14 @@ public interface UserDAO {
      */
     User findByUsername(String username);
     
+    /**
+     * Finds a user by username together with their post, follower and following counts
+     * 
+     * @param username the username to search for
+     * @return the User with its counters filled in if found, null otherwise
+     */
+    User findProfile(String username);
+    
     /**
      * Saves a new user
      * 
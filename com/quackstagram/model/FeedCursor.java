@@ -0,0 +1,69 @@
+package com.quackstagram.model;
+
+import java.time.LocalDateTime;
+
+/**
+ * Position in a newest-first feed, given by the timestamp and ID of the last entry seen.
+ * Entries are ordered by timestamp descending, ties broken by ID descending.
+ */
+public class FeedCursor {
+    private final LocalDateTime timestamp;
+    private final String id;
+    
+    /**
+     * Constructor with all fields
+     * 
+     * @param timestamp the timestamp of the last entry seen
+     * @param id the ID of the last entry seen
+     */
+    public FeedCursor(LocalDateTime timestamp, String id) {
+        this.timestamp = timestamp;
+        this.id = id;
+    }
+    
+    /**
+     * Creates a cursor positioned after a picture
+     * 
+     * @param picture the last picture seen
+     * @return a cursor for the page following the picture
+     */
+    public static FeedCursor after(Picture picture) {
+        return new FeedCursor(picture.getTimestamp(), picture.getImageId());
+    }
+    
+    /**
+     * Creates a cursor positioned after a stored notification
+     * 
+     * @param notification the last notification seen
+     * @return a cursor for the page following the notification
+     */
+    public static FeedCursor after(Notification notification) {
+        return new FeedCursor(notification.getTimestamp(), notification.getId());
+    }
+    
+    /**
+     * Checks whether an entry comes after this cursor in newest-first order
+     * 
+     * @param entryTimestamp the timestamp of the entry
+     * @param entryId the ID of the entry
+     * @return true if the entry belongs to a later page than the cursor
+     */
+    public boolean precedes(LocalDateTime entryTimestamp, String entryId) {
+        int byTime = entryTimestamp.compareTo(timestamp);
+        return byTime < 0 || (byTime == 0 && entryId.compareTo(id) < 0);
+    }
+    
+    /**
+     * Gets the timestamp of the last entry seen
+     * 
+     * @return the timestamp
+     */
+    public LocalDateTime getTimestamp() { return timestamp; }
+    
+    /**
+     * Gets the ID of the last entry seen
+     * 
+     * @return the ID
+     */
+    public String getId() { return id; }
+}
\ No newline at end of file
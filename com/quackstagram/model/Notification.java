@@ -1,16 +1,35 @@
 package com.quackstagram.model;
 
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /**
- * Represents a notification on Quackstagram
+ * Represents a notification on Quackstagram.
+ * Notifications of the same type about the same picture, received on the same day,
+ * are merged into one that counts them and keeps the most recent senders. Those
+ * without a picture, such as follows, are never merged.
  */
 public class Notification {
+    /**
+     * The number of senders a merged notification keeps
+     */
+    public static final int MAX_RECENT_SENDERS = 3;
+    
+    private final String id;
     private final String receiverUsername;
     private final String senderUsername;
     private final String imageId;
     private final LocalDateTime timestamp;
     private final NotificationType type;
+    private final int count;
+    private final List<String> recentSenders;
 
     /**
      * Constructor with all fields
@@ -23,12 +42,64 @@ public class Notification {
      */
     public Notification(String receiverUsername, String senderUsername, String imageId, 
                        LocalDateTime timestamp, NotificationType type) {
+        this(null, receiverUsername, senderUsername, imageId, timestamp, type, 1, List.of(senderUsername));
+    }
+    
+    /**
+     * Constructor for a stored notification, which may stand for several merged ones
+     * 
+     * @param id the ID the DAO stores the notification under (null if not stored yet)
+     * @param receiverUsername the username of the receiver
+     * @param senderUsername the username of the most recent sender
+     * @param imageId the ID of the image (null for follow notifications)
+     * @param timestamp the timestamp of the most recent notification
+     * @param type the type of notification
+     * @param count the number of notifications merged
+     * @param recentSenders the most recent senders, newest first; repeats and those past
+     *                      MAX_RECENT_SENDERS are dropped
+     */
+    public Notification(String id, String receiverUsername, String senderUsername, String imageId,
+                       LocalDateTime timestamp, NotificationType type, int count, List<String> recentSenders) {
+        this.id = id;
         this.receiverUsername = receiverUsername;
         this.senderUsername = senderUsername;
         this.imageId = imageId;
         this.timestamp = timestamp;
         this.type = type;
+        this.count = count;
+        
+        Set<String> senders = new LinkedHashSet<>();
+        senders.add(senderUsername);
+        for (String sender : recentSenders) {
+            if (senders.size() == MAX_RECENT_SENDERS) {
+                break;
+            }
+            senders.add(sender);
+        }
+        this.recentSenders = List.copyOf(senders);
     }
+    
+    /**
+     * Merges notifications that share an aggregation key, keeping the order in which
+     * each key first appears
+     * 
+     * @param notifications the notifications to merge
+     * @return one notification per aggregation key
+     */
+    public static List<Notification> coalesce(Collection<Notification> notifications) {
+        Map<String, Notification> merged = new LinkedHashMap<>();
+        for (Notification notification : notifications) {
+            merged.merge(notification.getAggregationKey(), notification, Notification::mergedWith);
+        }
+        return new ArrayList<>(merged.values());
+    }
+    
+    /**
+     * Gets the ID the DAO stores the notification under
+     * 
+     * @return the ID, or null if the notification is not stored yet
+     */
+    public String getId() { return id; }
 
     /**
      * Gets the username of the receiver
@@ -65,6 +136,64 @@ public class Notification {
      */
     public NotificationType getType() { return type; }
 
+    /**
+     * Gets the number of notifications this one stands for
+     * 
+     * @return the count, 1 unless notifications were merged
+     */
+    public int getCount() { return count; }
+    
+    /**
+     * Gets the most recent senders, newest first
+     * 
+     * @return at most MAX_RECENT_SENDERS usernames, starting with the sender
+     */
+    public List<String> getRecentSenders() { return recentSenders; }
+    
+    /**
+     * Gets the day whose notifications this one is merged with
+     * 
+     * @return the date of the timestamp
+     */
+    public LocalDate getBucketStart() { return timestamp.toLocalDate(); }
+    
+    /**
+     * Checks whether the notification is merged with others of its kind
+     * 
+     * @return true if it is about a picture
+     */
+    public boolean isAggregatable() { return imageId != null; }
+    
+    /**
+     * Gets the key shared by the notifications that are merged with this one
+     * 
+     * @return the receiver, type, day and picture; for a notification that is never
+     *         merged, its own string representation
+     */
+    public String getAggregationKey() {
+        if (!isAggregatable()) {
+            return toString();
+        }
+        return receiverUsername + ";" + type + ";" + getBucketStart() + ";" + imageId;
+    }
+    
+    /**
+     * Merges this notification with another of the same aggregation key
+     * 
+     * @param other the notification to merge with
+     * @return a notification counting both, with the sender and timestamp of the newer one
+     *         and the ID of the stored one
+     */
+    public Notification mergedWith(Notification other) {
+        Notification newer = other.timestamp.isBefore(timestamp) ? this : other;
+        Notification older = newer == this ? other : this;
+        
+        List<String> senders = new ArrayList<>(newer.recentSenders);
+        senders.addAll(older.recentSenders);
+        return new Notification(id != null ? id : other.id, receiverUsername, newer.senderUsername, imageId,
+                newer.timestamp, type, count + other.count, senders);
+    }
+    
     /**
      * Converts notification to string representation for storage
      * 
@@ -0,0 +1,45 @@
+package com.quackstagram.model;
+
+import java.util.List;
+
+/**
+ * One page of a keyset-paginated feed
+ * 
+ * @param <T> the type of the entries
+ */
+public class Page<T> {
+    private final List<T> items;
+    private final FeedCursor nextCursor;
+    
+    /**
+     * Constructor with all fields
+     * 
+     * @param items the entries on this page
+     * @param nextCursor the cursor for the following page, or null if this is the last page
+     */
+    public Page(List<T> items, FeedCursor nextCursor) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+    }
+    
+    /**
+     * Gets the entries on this page
+     * 
+     * @return the entries
+     */
+    public List<T> getItems() { return items; }
+    
+    /**
+     * Gets the cursor for the following page
+     * 
+     * @return the next cursor, or null if there are no more entries
+     */
+    public FeedCursor getNextCursor() { return nextCursor; }
+    
+    /**
+     * Checks whether another page follows this one
+     * 
+     * @return true if more entries are available
+     */
+    public boolean hasMore() { return nextCursor != null; }
+}
\ No newline at end of file
@@ -13,6 +13,7 @@ public class Picture {
     private final String imagePath;
     private final String caption;
     private int likesCount;
+    private int commentsCount;
     private final LocalDateTime timestamp;
     private final List<String> comments;
 
@@ -32,6 +33,7 @@ public class Picture {
         this.caption = caption;
         this.timestamp = timestamp;
         this.likesCount = 0;
+        this.commentsCount = 0;
         this.comments = new ArrayList<>();
     }
 
@@ -50,6 +52,24 @@ public class Picture {
     public void like() {
         likesCount++;
     }
+    
+    /**
+     * Sets the like count, e.g. from an aggregated query
+     * 
+     * @param likesCount the new likes count
+     */
+    public void setLikesCount(int likesCount) {
+        this.likesCount = likesCount;
+    }
+    
+    /**
+     * Sets the comment count, e.g. from an aggregated query
+     * 
+     * @param commentsCount the new comments count
+     */
+    public void setCommentsCount(int commentsCount) {
+        this.commentsCount = commentsCount;
+    }
 
     /**
      * Gets the image ID
@@ -86,6 +106,13 @@ public class Picture {
      */
     public int getLikesCount() { return likesCount; }
     
+    /**
+     * Gets the number of comments
+     * 
+     * @return the comments count
+     */
+    public int getCommentsCount() { return commentsCount; }
+    
     /**
      * Gets the timestamp when the image was posted
      * 
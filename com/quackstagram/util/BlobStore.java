@@ -0,0 +1,171 @@
+package com.quackstagram.util;
+
+import com.quackstagram.dao.interfaces.BlobDAO;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Content-addressed storage for uploaded images.
+ * Each image is stored once, as a PNG named by the SHA-256 of its bytes, under
+ * img/blobs/ab/cd/ where ab and cd are the first two bytes of the hash, so no
+ * directory grows too large. Pictures with the same content share one file,
+ * counted by the BlobDAO, and the file and its thumbnails are deleted with its last reference.
+ * A blob path never changes content, so anything derived from it can be cached forever.
+ */
+public class BlobStore {
+    private static final String BLOB_DIR = "img/blobs/";
+    private static final String EXTENSION = ".png";
+    private static final int HASH_LENGTH = 64;
+    // Operations on one hash are serialized so a delete cannot race an upload of the same content
+    private static final int LOCK_STRIPES = 64;
+    
+    private final BlobDAO blobDAO;
+    private final Object[] locks = new Object[LOCK_STRIPES];
+    
+    /**
+     * Constructor for BlobStore
+     * 
+     * @param blobDAO DAO for the blob reference counts
+     */
+    public BlobStore(BlobDAO blobDAO) {
+        this.blobDAO = blobDAO;
+        for (int i = 0; i < locks.length; i++) {
+            locks[i] = new Object();
+        }
+    }
+    
+    /**
+     * Stores an image and adds a reference to it. The image is encoded and hashed
+     * in memory; if the same content is already stored nothing is written.
+     * 
+     * @param image the image to store
+     * @return the stored blob
+     * @throws IOException if the image cannot be encoded or written
+     */
+    public Blob put(BufferedImage image) throws IOException {
+        ByteArrayOutputStream png = new ByteArrayOutputStream();
+        if (!ImageIO.write(image, "png", png)) {
+            throw new IOException("No PNG writer available");
+        }
+        byte[] content = png.toByteArray();
+        String hash = FileUtil.toHex(sha256(content));
+        String path = getPath(hash);
+        
+        synchronized (lockFor(hash)) {
+            boolean created = !Files.exists(Paths.get(path));
+            if (created) {
+                FileUtil.writeAtomically(path, content);
+            }
+            blobDAO.addReference(hash);
+            return new Blob(hash, path, created);
+        }
+    }
+    
+    /**
+     * Removes a reference to the blob at a path, deleting its file and thumbnails
+     * if it was the last one. Paths outside the blob store are left alone.
+     * 
+     * @param path the image path of a picture being deleted
+     * @throws IOException if the count cannot be updated or the file cannot be deleted
+     */
+    public void release(String path) throws IOException {
+        String hash = getHash(path);
+        if (hash == null) {
+            return;
+        }
+        
+        synchronized (lockFor(hash)) {
+            if (blobDAO.removeReference(hash)) {
+                Files.deleteIfExists(Paths.get(path));
+                ThumbnailStore.getInstance().evict(hash);
+            }
+        }
+    }
+    
+    /**
+     * Gets the path a blob is stored at
+     * 
+     * @param hash the SHA-256 of the blob, as lowercase hex
+     * @return the blob's path
+     */
+    public static String getPath(String hash) {
+        return BLOB_DIR + hash.substring(0, 2) + "/" + hash.substring(2, 4) + "/" + hash + EXTENSION;
+    }
+    
+    /**
+     * Gets the content hash of a blob from its path, without reading the file
+     * 
+     * @param path an image path
+     * @return the SHA-256 of the blob, or null if the path is not in the blob store
+     */
+    public static String getHash(String path) {
+        if (path == null || !path.startsWith(BLOB_DIR) || !path.endsWith(EXTENSION)) {
+            return null;
+        }
+        String name = Paths.get(path).getFileName().toString();
+        String hash = name.substring(0, name.length() - EXTENSION.length());
+        return hash.length() == HASH_LENGTH && path.equals(getPath(hash)) ? hash : null;
+    }
+    
+    private Object lockFor(String hash) {
+        return locks[Integer.parseInt(hash.substring(0, 2), 16) % LOCK_STRIPES];
+    }
+    
+    private static byte[] sha256(byte[] content) throws IOException {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(content);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException(e);
+        }
+    }
+    
+    /**
+     * An image in the blob store
+     */
+    public static final class Blob {
+        private final String hash;
+        private final String path;
+        private final boolean created;
+        
+        Blob(String hash, String path, boolean created) {
+            this.hash = hash;
+            this.path = path;
+            this.created = created;
+        }
+        
+        /**
+         * Gets the SHA-256 of the blob's content
+         * 
+         * @return the hash, as lowercase hex
+         */
+        public String getHash() {
+            return hash;
+        }
+        
+        /**
+         * Gets the path the blob is stored at
+         * 
+         * @return the blob's path
+         */
+        public String getPath() {
+            return path;
+        }
+        
+        /**
+         * Checks whether this upload wrote the file, rather than finding the content already stored
+         * 
+         * @return true if the blob is new
+         */
+        public boolean isCreated() {
+            return created;
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,50 @@
+package com.quackstagram.util;
+
+import java.util.function.IntUnaryOperator;
+
+/**
+ * A filter that maps every packed ARGB pixel independently of its neighbours.
+ * Implementations may override applyTo to process a whole range at once,
+ * for example with SIMD instructions.
+ */
+@FunctionalInterface
+public interface ColorFilter extends IntUnaryOperator {
+    /**
+     * Filters a range of a pixel buffer in place
+     * 
+     * @param pixels the packed ARGB pixels
+     * @param from the index of the first pixel to filter
+     * @param to the index after the last pixel to filter
+     */
+    default void applyTo(int[] pixels, int from, int to) {
+        for (int i = from; i < to; i++) {
+            pixels[i] = applyAsInt(pixels[i]);
+        }
+    }
+    
+    /**
+     * Creates a filter that applies this filter and then another one in a single pass
+     * 
+     * @param next the filter applied to the output of this one
+     * @return the fused filter
+     */
+    default ColorFilter then(ColorFilter next) {
+        ColorFilter first = this;
+        return new ColorFilter() {
+            @Override
+            public int applyAsInt(int argb) {
+                return next.applyAsInt(first.applyAsInt(argb));
+            }
+            
+            @Override
+            public void applyTo(int[] pixels, int from, int to) {
+                // Blocks small enough to stay in the L1 cache, so memory is still read once
+                for (int start = from; start < to; start += 4096) {
+                    int end = Math.min(to, start + 4096);
+                    first.applyTo(pixels, start, end);
+                    next.applyTo(pixels, start, end);
+                }
+            }
+        };
+    }
+}
\ No newline at end of file
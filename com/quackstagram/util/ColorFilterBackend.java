@@ -0,0 +1,94 @@
+package com.quackstagram.util;
+
+import java.util.Optional;
+
+/**
+ * Source of the built-in colour filters.
+ * The scalar backend always works; the Vector API backend is only available when
+ * its classes were compiled from the {@code vector} source root and the JVM was
+ * started with {@code --add-modules jdk.incubator.vector}.
+ * Both produce identical pixels.
+ */
+public interface ColorFilterBackend {
+    /**
+     * Gets a short description of the backend
+     * 
+     * @return the backend name
+     */
+    String getName();
+    
+    /**
+     * Gets the grayscale filter, using the luma weights
+     * 
+     * @return the filter
+     */
+    ColorFilter grayscale();
+    
+    /**
+     * Gets the sepia tone filter
+     * 
+     * @return the filter
+     */
+    ColorFilter sepia();
+    
+    /**
+     * Gets the filter that inverts the colour channels, keeping alpha
+     * 
+     * @return the filter
+     */
+    ColorFilter invert();
+    
+    /**
+     * Gets the warm filter (increase red, decrease blue)
+     * 
+     * @return the filter
+     */
+    ColorFilter warm();
+    
+    /**
+     * Gets the cool filter (increase blue, decrease red)
+     * 
+     * @return the filter
+     */
+    ColorFilter cool();
+    
+    /**
+     * Gets the backend that processes one pixel at a time
+     * 
+     * @return the scalar backend
+     */
+    static ColorFilterBackend scalar() {
+        return new ScalarColorFilters();
+    }
+    
+    /**
+     * Gets the backend that processes SIMD lanes of pixels, if this JVM provides the Vector API
+     * 
+     * @return the vector backend, or empty if it was not compiled or the incubator module is not loaded
+     */
+    static Optional<ColorFilterBackend> vector() {
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty()) {
+            return Optional.empty();
+        }
+        try {
+            // Loaded by name so nothing links against the incubator module unless it is present
+            Class<?> backend = Class.forName("com.quackstagram.util.VectorColorFilters");
+            return Optional.of((ColorFilterBackend) backend.getDeclaredConstructor().newInstance());
+        } catch (ClassNotFoundException e) {
+            // Built without the vector source root
+            return Optional.empty();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            System.err.println("Vector API colour filters unavailable: " + e);
+            return Optional.empty();
+        }
+    }
+    
+    /**
+     * Gets the fastest backend this JVM supports
+     * 
+     * @return the vector backend if available, otherwise the scalar one
+     */
+    static ColorFilterBackend getDefault() {
+        return vector().orElseGet(ColorFilterBackend::scalar);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,380 @@
+package com.quackstagram.util;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.Properties;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Bounded pool of JDBC connections.
+ * Borrowers wait in a fair queue for one of {@code maxSize} permits, idle
+ * connections above {@code minSize} are closed once they exceed the idle timeout,
+ * and connections that sat idle for a while are validated before being handed out.
+ * Each physical connection keeps its own {@link StatementCache}.
+ */
+public class ConnectionPool {
+    private final String jdbcUrl;
+    private final Properties connectionProperties;
+    private final int minSize;
+    private final int maxSize;
+    private final long idleTimeoutMillis;
+    private final long acquireTimeoutMillis;
+    private final long validateAfterIdleMillis;
+    private final int validationTimeoutSeconds;
+    private final int statementCacheSize;
+    private final StatementCache.Stats statementCacheStats = new StatementCache.Stats();
+    
+    private final Semaphore permits;
+    private final Deque<PooledConnection> idleConnections = new ArrayDeque<>();
+    private final ScheduledExecutorService evictor;
+    private volatile boolean closed;
+    
+    /**
+     * Constructor for ConnectionPool
+     * 
+     * @param jdbcUrl the JDBC URL to connect to
+     * @param connectionProperties driver properties, including user and password
+     * @param minSize the number of idle connections kept open
+     * @param maxSize the maximum number of open connections
+     * @param idleTimeoutMillis how long a surplus connection may stay idle before it is closed
+     * @param acquireTimeoutMillis how long a borrower waits for a free connection
+     * @param validateAfterIdleMillis idle time after which a connection is validated on borrow
+     * @param validationTimeoutSeconds timeout passed to {@link Connection#isValid(int)}
+     * @param statementCacheSize prepared statements cached per connection, 0 to disable
+     */
+    public ConnectionPool(String jdbcUrl, Properties connectionProperties, int minSize, int maxSize,
+                          long idleTimeoutMillis, long acquireTimeoutMillis,
+                          long validateAfterIdleMillis, int validationTimeoutSeconds,
+                          int statementCacheSize) {
+        this.jdbcUrl = jdbcUrl;
+        this.connectionProperties = connectionProperties;
+        this.maxSize = Math.max(1, maxSize);
+        this.minSize = Math.max(0, Math.min(minSize, this.maxSize));
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.acquireTimeoutMillis = acquireTimeoutMillis;
+        this.validateAfterIdleMillis = validateAfterIdleMillis;
+        this.validationTimeoutSeconds = validationTimeoutSeconds;
+        this.statementCacheSize = statementCacheSize;
+        this.permits = new Semaphore(this.maxSize, true);
+        
+        this.evictor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "connection-pool-evictor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long period = Math.max(1000, idleTimeoutMillis / 2);
+        evictor.scheduleWithFixedDelay(this::evictIdleConnections, period, period, TimeUnit.MILLISECONDS);
+    }
+    
+    /**
+     * Opens connections until the pool holds its minimum number of idle connections.
+     * Each one is opened under a permit, as in getConnection, so borrowers opening
+     * connections at the same time never bring the total above maxSize.
+     */
+    public void warmUp() {
+        while (!closed && getIdleCount() < minSize) {
+            if (!permits.tryAcquire()) {
+                return;
+            }
+            try {
+                // The active count includes the permit held here for the new connection
+                if (getIdleCount() + getActiveCount() > maxSize) {
+                    return;
+                }
+                PooledConnection pooled = open();
+                synchronized (idleConnections) {
+                    idleConnections.addLast(pooled);
+                }
+            } catch (SQLException e) {
+                System.err.println("Error warming up connection pool: " + e.getMessage());
+                return;
+            } finally {
+                permits.release();
+            }
+        }
+    }
+    
+    /**
+     * Borrows a connection from the pool. Closing the returned connection
+     * hands it back to the pool instead of closing the physical connection.
+     * 
+     * @return a connection leased to the caller
+     * @throws SQLException if no connection becomes available in time or a new one cannot be opened
+     */
+    public Connection getConnection() throws SQLException {
+        if (closed) {
+            throw new SQLException("Connection pool has been shut down");
+        }
+        
+        try {
+            if (!permits.tryAcquire(acquireTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                throw new SQLTransientConnectionException(
+                        "Timed out after " + acquireTimeoutMillis + " ms waiting for a database connection");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a database connection", e);
+        }
+        
+        try {
+            PooledConnection pooled;
+            while ((pooled = pollIdle()) != null) {
+                if (pooled.isUsable()) {
+                    return pooled.lease();
+                }
+                pooled.closeQuietly();
+            }
+            return open().lease();
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+    
+    /**
+     * Closes every idle connection and refuses further borrows.
+     * Connections still leased are closed when they are returned.
+     */
+    public void shutdown() {
+        closed = true;
+        evictor.shutdownNow();
+        synchronized (idleConnections) {
+            for (PooledConnection pooled : idleConnections) {
+                pooled.closeQuietly();
+            }
+            idleConnections.clear();
+        }
+    }
+    
+    /**
+     * Gets the number of connections currently leased to callers
+     * 
+     * @return the number of active connections
+     */
+    public int getActiveCount() {
+        return maxSize - permits.availablePermits();
+    }
+    
+    /**
+     * Gets the number of idle connections held by the pool
+     * 
+     * @return the number of idle connections
+     */
+    public int getIdleCount() {
+        synchronized (idleConnections) {
+            return idleConnections.size();
+        }
+    }
+    
+    /**
+     * Gets the maximum number of connections this pool will open
+     * 
+     * @return the maximum pool size
+     */
+    public int getMaxSize() {
+        return maxSize;
+    }
+    
+    /**
+     * Gets the number of prepares served from a statement cache
+     * 
+     * @return the total cache hits
+     */
+    public long getStatementCacheHits() {
+        return statementCacheStats.getHits();
+    }
+    
+    /**
+     * Gets the number of prepares that had to go to the server
+     * 
+     * @return the total cache misses
+     */
+    public long getStatementCacheMisses() {
+        return statementCacheStats.getMisses();
+    }
+    
+    /**
+     * Gets the number of cache hits for one SQL text
+     * 
+     * @param sql the SQL text
+     * @return the cache hits for the statement
+     */
+    public long getStatementCacheHits(String sql) {
+        return statementCacheStats.getHits(sql);
+    }
+    
+    /**
+     * Gets the number of cache misses for one SQL text
+     * 
+     * @param sql the SQL text
+     * @return the cache misses for the statement
+     */
+    public long getStatementCacheMisses(String sql) {
+        return statementCacheStats.getMisses(sql);
+    }
+    
+    private PooledConnection pollIdle() {
+        synchronized (idleConnections) {
+            return idleConnections.pollFirst();
+        }
+    }
+    
+    private PooledConnection open() throws SQLException {
+        return new PooledConnection(DriverManager.getConnection(jdbcUrl, connectionProperties));
+    }
+    
+    private void release(PooledConnection pooled) {
+        try {
+            if (closed || !pooled.reset()) {
+                pooled.closeQuietly();
+                return;
+            }
+            synchronized (idleConnections) {
+                // Most recently used first, so surplus connections age out at the tail
+                idleConnections.addFirst(pooled);
+            }
+        } finally {
+            permits.release();
+        }
+    }
+    
+    private void evictIdleConnections() {
+        long now = System.currentTimeMillis();
+        synchronized (idleConnections) {
+            Iterator<PooledConnection> oldestFirst = idleConnections.descendingIterator();
+            while (oldestFirst.hasNext() && idleConnections.size() > minSize) {
+                PooledConnection pooled = oldestFirst.next();
+                if (now - pooled.lastUsed >= idleTimeoutMillis) {
+                    oldestFirst.remove();
+                    pooled.closeQuietly();
+                }
+            }
+        }
+        warmUp();
+    }
+    
+    /**
+     * A physical connection owned by the pool
+     */
+    private class PooledConnection {
+        private final Connection physical;
+        private final StatementCache statementCache;
+        private long lastUsed = System.currentTimeMillis();
+        
+        PooledConnection(Connection physical) {
+            this.physical = physical;
+            this.statementCache = statementCacheSize > 0
+                    ? new StatementCache(physical, statementCacheSize, statementCacheStats)
+                    : null;
+        }
+        
+        boolean isUsable() {
+            if (System.currentTimeMillis() - lastUsed < validateAfterIdleMillis) {
+                return true;
+            }
+            try {
+                return physical.isValid(validationTimeoutSeconds);
+            } catch (SQLException e) {
+                return false;
+            }
+        }
+        
+        boolean reset() {
+            try {
+                if (physical.isClosed()) {
+                    return false;
+                }
+                if (!physical.getAutoCommit()) {
+                    physical.rollback();
+                    physical.setAutoCommit(true);
+                }
+                if (statementCache != null) {
+                    statementCache.reclaim();
+                }
+                lastUsed = System.currentTimeMillis();
+                return true;
+            } catch (SQLException e) {
+                return false;
+            }
+        }
+        
+        Connection lease() {
+            return (Connection) Proxy.newProxyInstance(
+                    Connection.class.getClassLoader(),
+                    new Class<?>[] { Connection.class },
+                    new LeaseHandler(this));
+        }
+        
+        void closeQuietly() {
+            if (statementCache != null) {
+                statementCache.closeAll();
+            }
+            try {
+                physical.close();
+            } catch (SQLException e) {
+                // Connection is being discarded anyway
+            }
+        }
+    }
+    
+    /**
+     * Forwards calls to the physical connection until the lease is closed
+     */
+    private class LeaseHandler implements InvocationHandler {
+        private final PooledConnection pooled;
+        private final AtomicBoolean released = new AtomicBoolean();
+        
+        LeaseHandler(PooledConnection pooled) {
+            this.pooled = pooled;
+        }
+        
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (released.compareAndSet(false, true)) {
+                        release(pooled);
+                    }
+                    return null;
+                case "isClosed":
+                    return released.get() || pooled.physical.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "Pooled[" + pooled.physical + "]";
+                default:
+                    break;
+            }
+            
+            if (released.get()) {
+                throw new SQLException("Connection has already been returned to the pool");
+            }
+            
+            if (pooled.statementCache != null && method.getName().equals("prepareStatement")
+                    && args.length == 1) {
+                return pooled.statementCache.prepare((String) args[0]);
+            }
+            
+            try {
+                return method.invoke(pooled.physical, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+}
\ No newline at end of file
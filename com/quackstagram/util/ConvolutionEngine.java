@@ -0,0 +1,186 @@
+package com.quackstagram.util;
+
+/**
+ * Blur and sharpen operations on buffers of packed ARGB pixels.
+ * Blurs are separable box passes with a sliding window, so their cost per pixel
+ * is the same for every radius; a Gaussian is approximated by three box blurs.
+ * Edge pixels are extended beyond the image border. Every operation filters its
+ * buffer in place, using a second buffer of the same size as scratch space, and
+ * runs its passes over row bands in parallel.
+ */
+final class ConvolutionEngine {
+    // Number of box blurs that approximate one Gaussian
+    private static final int GAUSSIAN_PASSES = 3;
+    
+    private ConvolutionEngine() {
+    }
+    
+    /**
+     * Replaces every pixel by the mean of the square around it
+     * 
+     * @param pixels the pixels to blur, overwritten with the result
+     * @param spare a scratch buffer of the same size
+     * @param width the image width
+     * @param height the image height
+     * @param radius the distance from the centre to the edge of the square
+     */
+    static void boxBlur(int[] pixels, int[] spare, int width, int height, int radius) {
+        if (radius < 1) {
+            return;
+        }
+        blurRows(pixels, spare, width, height, radius);
+        blurColumns(spare, pixels, width, height, radius);
+    }
+    
+    /**
+     * Blurs with an approximate Gaussian made of three box blurs
+     * 
+     * @param pixels the pixels to blur, overwritten with the result
+     * @param spare a scratch buffer of the same size
+     * @param width the image width
+     * @param height the image height
+     * @param sigma the standard deviation of the Gaussian in pixels
+     */
+    static void gaussianBlur(int[] pixels, int[] spare, int width, int height, double sigma) {
+        for (int radius : boxRadiiForGaussian(sigma)) {
+            boxBlur(pixels, spare, width, height, radius);
+        }
+    }
+    
+    /**
+     * Sharpens by adding back the difference between the image and a blurred copy.
+     * The blurred copy is the one buffer allocated beyond the two passed in.
+     * 
+     * @param pixels the pixels to sharpen, overwritten with the result
+     * @param spare a scratch buffer of the same size
+     * @param width the image width
+     * @param height the image height
+     * @param sigma the standard deviation of the blur, which sets the size of the details enhanced
+     * @param amount how much of the difference is added back
+     */
+    static void unsharpMask(int[] pixels, int[] spare, int width, int height, double sigma, float amount) {
+        int[] blurred = pixels.clone();
+        gaussianBlur(blurred, spare, width, height, sigma);
+        
+        ImageFilterUtil.forEachBand(width, height, (startRow, endRow) -> {
+            for (int i = startRow * width; i < endRow * width; i++) {
+                int pixel = pixels[i];
+                int soft = blurred[i];
+                pixels[i] = (pixel & 0xff000000)
+                        | sharpen((pixel >> 16) & 0xff, (soft >> 16) & 0xff, amount) << 16
+                        | sharpen((pixel >> 8) & 0xff, (soft >> 8) & 0xff, amount) << 8
+                        | sharpen(pixel & 0xff, soft & 0xff, amount);
+            }
+        });
+    }
+    
+    /**
+     * Computes the radii of the box blurs whose succession best matches a Gaussian
+     * 
+     * @param sigma the standard deviation of the Gaussian
+     * @return one radius per pass; 0 means the pass is skipped
+     */
+    static int[] boxRadiiForGaussian(double sigma) {
+        int n = GAUSSIAN_PASSES;
+        // Widest odd box narrower than the ideal width, and the next odd width up
+        int lower = (int) Math.floor(Math.sqrt(12 * sigma * sigma / n + 1));
+        if (lower % 2 == 0) {
+            lower--;
+        }
+        int upper = lower + 2;
+        // How many passes use the narrower box so the variances add up to sigma squared
+        long narrowPasses = Math.round((12 * sigma * sigma - n * lower * lower - 4 * n * lower - 3 * n) / (-4.0 * lower - 4));
+        
+        int[] radii = new int[n];
+        for (int i = 0; i < n; i++) {
+            radii[i] = ((i < narrowPasses ? lower : upper) - 1) / 2;
+        }
+        return radii;
+    }
+    
+    /**
+     * Horizontal box pass: each output pixel is the mean of its row neighbours
+     */
+    private static void blurRows(int[] source, int[] target, int width, int height, int radius) {
+        float scale = 1f / (2 * radius + 1);
+        
+        ImageFilterUtil.forEachBand(width, height, (startRow, endRow) -> {
+            for (int y = startRow; y < endRow; y++) {
+                int row = y * width;
+                int a = 0, r = 0, g = 0, b = 0;
+                for (int i = -radius; i <= radius; i++) {
+                    int pixel = source[row + Math.min(Math.max(i, 0), width - 1)];
+                    a += pixel >>> 24;
+                    r += (pixel >> 16) & 0xff;
+                    g += (pixel >> 8) & 0xff;
+                    b += pixel & 0xff;
+                }
+                
+                for (int x = 0; x < width; x++) {
+                    target[row + x] = mean(a, r, g, b, scale);
+                    
+                    // Slide the window one pixel to the right
+                    int leaving = source[row + Math.max(x - radius, 0)];
+                    int entering = source[row + Math.min(x + radius + 1, width - 1)];
+                    a += (entering >>> 24) - (leaving >>> 24);
+                    r += ((entering >> 16) & 0xff) - ((leaving >> 16) & 0xff);
+                    g += ((entering >> 8) & 0xff) - ((leaving >> 8) & 0xff);
+                    b += (entering & 0xff) - (leaving & 0xff);
+                }
+            }
+        });
+    }
+    
+    /**
+     * Vertical box pass, run row by row with one running sum per column so memory is read sequentially
+     */
+    private static void blurColumns(int[] source, int[] target, int width, int height, int radius) {
+        float scale = 1f / (2 * radius + 1);
+        
+        ImageFilterUtil.forEachBand(width, height, (startRow, endRow) -> {
+            int[] a = new int[width];
+            int[] r = new int[width];
+            int[] g = new int[width];
+            int[] b = new int[width];
+            for (int i = startRow - radius; i <= startRow + radius; i++) {
+                int row = Math.min(Math.max(i, 0), height - 1) * width;
+                for (int x = 0; x < width; x++) {
+                    int pixel = source[row + x];
+                    a[x] += pixel >>> 24;
+                    r[x] += (pixel >> 16) & 0xff;
+                    g[x] += (pixel >> 8) & 0xff;
+                    b[x] += pixel & 0xff;
+                }
+            }
+            
+            for (int y = startRow; y < endRow; y++) {
+                int row = y * width;
+                int leavingRow = Math.max(y - radius, 0) * width;
+                int enteringRow = Math.min(y + radius + 1, height - 1) * width;
+                
+                for (int x = 0; x < width; x++) {
+                    target[row + x] = mean(a[x], r[x], g[x], b[x], scale);
+                    
+                    // Slide the window one row down
+                    int leaving = source[leavingRow + x];
+                    int entering = source[enteringRow + x];
+                    a[x] += (entering >>> 24) - (leaving >>> 24);
+                    r[x] += ((entering >> 16) & 0xff) - ((leaving >> 16) & 0xff);
+                    g[x] += ((entering >> 8) & 0xff) - ((leaving >> 8) & 0xff);
+                    b[x] += (entering & 0xff) - (leaving & 0xff);
+                }
+            }
+        });
+    }
+    
+    private static int mean(int a, int r, int g, int b, float scale) {
+        return (int) (a * scale + 0.5f) << 24
+                | (int) (r * scale + 0.5f) << 16
+                | (int) (g * scale + 0.5f) << 8
+                | (int) (b * scale + 0.5f);
+    }
+    
+    private static int sharpen(int value, int blurred, float amount) {
+        return Math.max(0, Math.min(255, Math.round(value + amount * (value - blurred))));
+    }
+}
\ No newline at end of file
@@ -0,0 +1,106 @@
+package com.quackstagram.util;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs blocking DAO calls off the Event Dispatch Thread.
+ * Every call gets its own virtual thread when the JVM has them (Java 21 and later);
+ * older JVMs use a pool of daemon threads instead. Either way no more calls run at
+ * once than the limit, which should stay a little below the connection pool size:
+ * waiting calls then queue here instead of timing out while acquiring a connection,
+ * and a burst of them never leaves the Event Dispatch Thread waiting for one.
+ */
+public class DaoExecutor {
+    private final ExecutorService executor;
+    private final Semaphore permits;
+    
+    /**
+     * Constructor for DaoExecutor
+     * 
+     * @param maxConcurrentCalls the maximum number of DAO calls running at once
+     */
+    public DaoExecutor(int maxConcurrentCalls) {
+        this.executor = createExecutor(maxConcurrentCalls);
+        this.permits = new Semaphore(maxConcurrentCalls, true);
+    }
+    
+    /**
+     * Runs a DAO call that returns a result
+     * 
+     * @param call the call to run
+     * @param <T> the type of the result
+     * @return a future completed with the result, or exceptionally with what the call threw
+     */
+    public <T> CompletableFuture<T> supply(Callable<T> call) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                permits.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CompletionException(e);
+            }
+            try {
+                return call.call();
+            } catch (Exception e) {
+                throw new CompletionException(e);
+            } finally {
+                permits.release();
+            }
+        }, executor);
+    }
+    
+    /**
+     * Runs a DAO call that returns nothing
+     * 
+     * @param call the call to run
+     * @return a future completed when the call returns, or exceptionally with what it threw
+     */
+    public CompletableFuture<Void> run(Call call) {
+        return supply(() -> {
+            call.run();
+            return null;
+        });
+    }
+    
+    /**
+     * Stops accepting calls; those already submitted still run
+     */
+    public void shutdown() {
+        executor.shutdown();
+    }
+    
+    private static ExecutorService createExecutor(int threads) {
+        try {
+            // Looked up by name so the code still compiles and runs on Java 17
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            AtomicInteger threadNumber = new AtomicInteger();
+            return Executors.newFixedThreadPool(threads, runnable -> {
+                Thread thread = new Thread(runnable, "dao-" + threadNumber.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+    
+    /**
+     * A DAO call without a result
+     */
+    @FunctionalInterface
+    public interface Call {
+        /**
+         * Runs the call
+         * 
+         * @throws Exception if the DAO call fails
+         */
+        void run() throws Exception;
+    }
+}
\ No newline at end of file
@@ -1,19 +1,26 @@
 package com.quackstagram.util;
 
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.SQLException;
 import java.io.FileInputStream;
+import java.util.List;
 import java.util.Properties;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 public class DatabaseConnectionManager {
     private static DatabaseConnectionManager instance;
     private String jdbcUrl;
     private String username;
     private String password;
+    private Properties props = new Properties();
+    private final ConnectionPool pool;
+    private final List<Runnable> shutdownTasks = new CopyOnWriteArrayList<>();
     
     private DatabaseConnectionManager() {
         loadConfiguration();
+        pool = createPool();
+        pool.warmUp();
+        Runtime.getRuntime().addShutdownHook(new Thread(this::shutdown, "connection-pool-shutdown"));
     }
     
     public static synchronized DatabaseConnectionManager getInstance() {
@@ -25,7 +32,6 @@ public class DatabaseConnectionManager {
     
     private void loadConfiguration() {
         try {
-            Properties props = new Properties();
             props.load(new FileInputStream("config/database.properties"));
             jdbcUrl = props.getProperty("jdbc.url");
             username = props.getProperty("jdbc.username");
@@ -42,7 +48,122 @@ public class DatabaseConnectionManager {
         }
     }
     
+    private ConnectionPool createPool() {
+        Properties connectionProperties = new Properties();
+        connectionProperties.setProperty("user", username);
+        connectionProperties.setProperty("password", password);
+        // Prepare on the server so cached statements skip parsing on reuse
+        connectionProperties.setProperty("useServerPrepStmts",
+                props.getProperty("jdbc.useServerPrepStmts", "true"));
+        // Lets the driver send a JDBC batch of inserts as one multi-row INSERT
+        connectionProperties.setProperty("rewriteBatchedStatements",
+                props.getProperty("jdbc.rewriteBatchedStatements", "true"));
+        
+        return new ConnectionPool(
+                jdbcUrl,
+                connectionProperties,
+                getIntProperty("jdbc.pool.minSize", 2),
+                getIntProperty("jdbc.pool.maxSize", 10),
+                getIntProperty("jdbc.pool.idleTimeoutMs", 300000),
+                getIntProperty("jdbc.pool.acquireTimeoutMs", 5000),
+                getIntProperty("jdbc.pool.validateAfterIdleMs", 1000),
+                getIntProperty("jdbc.pool.validationTimeoutSeconds", 2),
+                getIntProperty("jdbc.statementCacheSize", 64));
+    }
+    
+    private int getIntProperty(String key, int defaultValue) {
+        String value = props.getProperty(key);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            System.err.println("Invalid value for " + key + ": " + value);
+            return defaultValue;
+        }
+    }
+    
+    /**
+     * Borrows a pooled connection. Closing it returns it to the pool.
+     * 
+     * @return a database connection
+     * @throws SQLException if no connection is available within the acquisition timeout
+     */
     public Connection getConnection() throws SQLException {
-        return DriverManager.getConnection(jdbcUrl, username, password);
+        return pool.getConnection();
+    }
+    
+    /**
+     * Gets the maximum number of connections the pool will open
+     * 
+     * @return the maximum pool size
+     */
+    public int getMaxPoolSize() {
+        return pool.getMaxSize();
+    }
+    
+    /**
+     * Gets the number of prepared statements served from the per-connection caches
+     * 
+     * @return the statement cache hits
+     */
+    public long getStatementCacheHits() {
+        return pool.getStatementCacheHits();
+    }
+    
+    /**
+     * Gets the number of prepared statements that had to be prepared on the server
+     * 
+     * @return the statement cache misses
+     */
+    public long getStatementCacheMisses() {
+        return pool.getStatementCacheMisses();
+    }
+    
+    /**
+     * Gets the statement cache hits for one SQL text
+     * 
+     * @param sql the SQL text as passed to prepareStatement
+     * @return the statement cache hits for that SQL
+     */
+    public long getStatementCacheHits(String sql) {
+        return pool.getStatementCacheHits(sql);
+    }
+    
+    /**
+     * Gets the statement cache misses for one SQL text
+     * 
+     * @param sql the SQL text as passed to prepareStatement
+     * @return the statement cache misses for that SQL
+     */
+    public long getStatementCacheMisses(String sql) {
+        return pool.getStatementCacheMisses(sql);
+    }
+    
+    /**
+     * Registers a task to run at shutdown while connections can still be borrowed,
+     * such as flushing buffered writes. Shutdown hooks run concurrently, so a
+     * separate hook could find the pool already closed.
+     * 
+     * @param task the task to run before the pool closes
+     */
+    public void beforeShutdown(Runnable task) {
+        shutdownTasks.add(task);
+    }
+    
+    /**
+     * Runs the registered shutdown tasks, then closes all pooled connections
+     */
+    public void shutdown() {
+        for (Runnable task : shutdownTasks) {
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                System.err.println("Error running shutdown task: " + e.getMessage());
+            }
+        }
+        shutdownTasks.clear();
+        pool.shutdown();
     }
 }
\ No newline at end of file
@@ -0,0 +1,284 @@
+package com.quackstagram.util;
+
+import com.quackstagram.model.FeedCursor;
+import com.quackstagram.model.Page;
+import com.quackstagram.model.Picture;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * In-memory cache of feed pages.
+ * Holds at most {@code maxEntries} pages, evicting the least recently used one,
+ * and treats pages older than the time-to-live as missing. Pages are indexed by
+ * feed and by the pictures they contain so writes can drop exactly the pages they affect.
+ */
+public class FeedCache {
+    /** Feed name of the explore view */
+    public static final String EXPLORE_FEED = "explore";
+    
+    private final int maxEntries;
+    private final long ttlMillis;
+    private final LinkedHashMap<Key, Entry> entries;
+    private final Map<String, Set<Key>> keysByFeed = new HashMap<>();
+    private final Map<String, Set<Key>> keysByImage = new HashMap<>();
+    
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    
+    /**
+     * Constructor for FeedCache
+     * 
+     * @param maxEntries the maximum number of pages kept in memory
+     * @param ttlMillis how long a page may be served from memory
+     */
+    public FeedCache(int maxEntries, long ttlMillis) {
+        this.maxEntries = maxEntries;
+        this.ttlMillis = ttlMillis;
+        this.entries = new LinkedHashMap<Key, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+                if (size() <= FeedCache.this.maxEntries) {
+                    return false;
+                }
+                unindex(eldest.getKey(), eldest.getValue());
+                evictions.increment();
+                return true;
+            }
+        };
+    }
+    
+    /**
+     * Gets the feed name of a user's home feed
+     * 
+     * @param owner the username of the user
+     * @return the feed name
+     */
+    public static String homeFeed(String owner) {
+        return "home:" + owner;
+    }
+    
+    /**
+     * Looks up a cached page
+     * 
+     * @param feed the feed name
+     * @param cursor the cursor the page was requested with
+     * @param limit the page size the page was requested with
+     * @return the cached page, or null if it is missing or expired
+     */
+    public synchronized Page<Picture> get(String feed, FeedCursor cursor, int limit) {
+        Key key = new Key(feed, cursor, limit);
+        Entry entry = entries.get(key);
+        
+        if (entry != null && System.currentTimeMillis() - entry.createdAt > ttlMillis) {
+            entries.remove(key);
+            unindex(key, entry);
+            entry = null;
+        }
+        
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return entry.page;
+    }
+    
+    /**
+     * Stores a page
+     * 
+     * @param feed the feed name
+     * @param cursor the cursor the page was requested with
+     * @param limit the page size the page was requested with
+     * @param page the page to cache
+     */
+    public synchronized void put(String feed, FeedCursor cursor, int limit, Page<Picture> page) {
+        Key key = new Key(feed, cursor, limit);
+        Entry previous = entries.remove(key);
+        if (previous != null) {
+            unindex(key, previous);
+        }
+        
+        Entry entry = new Entry(page);
+        keysByFeed.computeIfAbsent(feed, name -> new HashSet<>()).add(key);
+        for (String imageId : entry.imageIds) {
+            keysByImage.computeIfAbsent(imageId, id -> new HashSet<>()).add(key);
+        }
+        entries.put(key, entry);
+    }
+    
+    /**
+     * Drops every cached page of a feed
+     * 
+     * @param feed the feed name
+     */
+    public synchronized void invalidateFeed(String feed) {
+        removeAll(keysByFeed.get(feed));
+    }
+    
+    /**
+     * Drops every cached page that contains a picture
+     * 
+     * @param imageId the ID of the picture
+     */
+    public synchronized void invalidateImage(String imageId) {
+        removeAll(keysByImage.get(imageId));
+    }
+    
+    /**
+     * Drops every cached page
+     */
+    public synchronized void invalidateAll() {
+        entries.clear();
+        keysByFeed.clear();
+        keysByImage.clear();
+    }
+    
+    /**
+     * Gets the users whose home feed currently has cached pages
+     * 
+     * @return the usernames of the feed owners
+     */
+    public synchronized Set<String> getCachedHomeFeedOwners() {
+        Set<String> owners = new HashSet<>();
+        String prefix = homeFeed("");
+        for (String feed : keysByFeed.keySet()) {
+            if (feed.startsWith(prefix)) {
+                owners.add(feed.substring(prefix.length()));
+            }
+        }
+        return owners;
+    }
+    
+    /**
+     * Gets the number of lookups served from memory
+     * 
+     * @return the cache hits
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+    
+    /**
+     * Gets the number of lookups that had to go to the DAO
+     * 
+     * @return the cache misses
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+    
+    /**
+     * Gets the share of lookups served from memory
+     * 
+     * @return the hit ratio between 0 and 1, or 0 before the first lookup
+     */
+    public double getHitRatio() {
+        long hitCount = getHits();
+        long total = hitCount + getMisses();
+        return total == 0 ? 0.0 : (double) hitCount / total;
+    }
+    
+    /**
+     * Gets the number of pages evicted to stay within the size bound
+     * 
+     * @return the eviction count
+     */
+    public long getEvictions() {
+        return evictions.sum();
+    }
+    
+    /**
+     * Gets the number of pages currently cached
+     * 
+     * @return the cache size
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+    
+    private void removeAll(Set<Key> keys) {
+        if (keys == null) {
+            return;
+        }
+        for (Key key : new ArrayList<>(keys)) {
+            Entry entry = entries.remove(key);
+            if (entry != null) {
+                unindex(key, entry);
+            }
+        }
+    }
+    
+    private void unindex(Key key, Entry entry) {
+        removeFromIndex(keysByFeed, key.feed, key);
+        for (String imageId : entry.imageIds) {
+            removeFromIndex(keysByImage, imageId, key);
+        }
+    }
+    
+    private static void removeFromIndex(Map<String, Set<Key>> index, String name, Key key) {
+        Set<Key> keys = index.get(name);
+        if (keys != null) {
+            keys.remove(key);
+            if (keys.isEmpty()) {
+                index.remove(name);
+            }
+        }
+    }
+    
+    /**
+     * Identifies one page of one feed
+     */
+    private static final class Key {
+        private final String feed;
+        private final String position;
+        private final int limit;
+        
+        Key(String feed, FeedCursor cursor, int limit) {
+            this.feed = feed;
+            this.position = cursor == null ? "" : cursor.getTimestamp() + "/" + cursor.getId();
+            this.limit = limit;
+        }
+        
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return limit == other.limit && feed.equals(other.feed) && position.equals(other.position);
+        }
+        
+        @Override
+        public int hashCode() {
+            return Objects.hash(feed, position, limit);
+        }
+    }
+    
+    /**
+     * A cached page and the pictures on it
+     */
+    private static final class Entry {
+        private final Page<Picture> page;
+        private final List<String> imageIds = new ArrayList<>();
+        private final long createdAt = System.currentTimeMillis();
+        
+        Entry(Page<Picture> page) {
+            this.page = page;
+            for (Picture picture : page.getItems()) {
+                imageIds.add(picture.getImageId());
+            }
+        }
+    }
+}
\ No newline at end of file
@@ -4,6 +4,7 @@ import java.io.BufferedReader;
 import java.io.BufferedWriter;
 import java.io.File;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -13,6 +14,7 @@ import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.function.Predicate;
+import java.util.zip.GZIPOutputStream;
 
 /**
  * Utility class for file operations
@@ -51,6 +53,27 @@ public class FileUtil {
         return matchingLines;
     }
     
+    /**
+     * Counts the lines of a file that match a predicate without keeping them
+     * 
+     * @param filePath the path to the file
+     * @param predicate the predicate to match
+     * @return the number of matching lines
+     * @throws IOException if an I/O error occurs
+     */
+    public static int countMatchingLines(String filePath, Predicate<String> predicate) throws IOException {
+        int count = 0;
+        try (BufferedReader reader = Files.newBufferedReader(Paths.get(filePath))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (predicate.test(line)) {
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+    
     /**
      * Writes lines to a file
      * 
@@ -134,6 +157,90 @@ public class FileUtil {
         }
     }
     
+    /**
+     * Writes a file under a temporary name in the same directory and then atomically
+     * renames it, so readers never see a half-written file
+     * 
+     * @param filePath the path to the file
+     * @param content the bytes to write
+     * @throws IOException if an I/O error occurs
+     */
+    public static void writeAtomically(String filePath, byte[] content) throws IOException {
+        Path path = Paths.get(filePath);
+        
+        Files.createDirectories(path.getParent());
+        
+        Path temp = Files.createTempFile(path.getParent(), ".write", ".tmp");
+        try {
+            Files.write(temp, content);
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+    
+    /**
+     * Compresses a file with gzip and removes the original. The compressed file is
+     * written under a temporary name first, so it only appears once complete.
+     * 
+     * @param source the path of the file to compress
+     * @param destination the path of the compressed file
+     * @throws IOException if an I/O error occurs
+     */
+    public static void compressFile(String source, String destination) throws IOException {
+        Path path = Paths.get(destination);
+        
+        Files.createDirectories(path.getParent());
+        
+        Path temp = Files.createTempFile(path.getParent(), ".gzip", ".tmp");
+        try {
+            try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(temp))) {
+                Files.copy(Paths.get(source), out);
+            }
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+        Files.delete(Paths.get(source));
+    }
+    
+    /**
+     * Lists the names of the files in a directory that match a glob
+     * 
+     * @param directory the directory to list
+     * @param glob the pattern the file names must match, e.g. "*.txt"
+     * @return the matching file names, or an empty list if the directory does not exist
+     * @throws IOException if an I/O error occurs
+     */
+    public static List<String> listFileNames(String directory, String glob) throws IOException {
+        Path dirPath = Paths.get(directory);
+        List<String> names = new ArrayList<>();
+        if (!Files.isDirectory(dirPath)) {
+            return names;
+        }
+        
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dirPath, glob)) {
+            for (Path path : stream) {
+                names.add(path.getFileName().toString());
+            }
+        }
+        return names;
+    }
+    
+    /**
+     * Formats bytes as lowercase hex, two digits per byte
+     * 
+     * @param bytes the bytes to format
+     * @return the hex string
+     */
+    public static String toHex(byte[] bytes) {
+        StringBuilder hex = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            hex.append(String.format("%02x", b));
+        }
+        return hex.toString();
+    }
+    
     /**
      * Gets the next available ID for a file pattern in a directory
      * 
@@ -142,7 +249,10 @@ public class FileUtil {
      * @param extensionFilter the file extension filter
      * @return the next available ID
      * @throws IOException if an I/O error occurs
+     * @deprecated scans the whole directory on every call and two callers can receive the
+     *             same ID; image IDs are allocated by ImageIdDAO
      */
+    @Deprecated
     public static int getNextId(String directory, String prefix, String extensionFilter) throws IOException {
         Path dirPath = Paths.get(directory);
         
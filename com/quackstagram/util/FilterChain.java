@@ -0,0 +1,142 @@
+package com.quackstagram.util;
+
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * An ordered list of filters applied to an image as one operation.
+ * Consecutive per-pixel colour filters are fused into a single pass, and filters
+ * that read neighbouring pixels share one scratch buffer, so a chain needs only
+ * two pixel buffers however long it is. The result image wraps the first one.
+ */
+public final class FilterChain {
+    /** The chain that leaves images unchanged */
+    public static final FilterChain NONE = new FilterChain(Collections.emptyList());
+    
+    private final List<Stage> stages;
+    
+    private FilterChain(List<Stage> stages) {
+        this.stages = stages;
+    }
+    
+    /**
+     * Creates a chain of one per-pixel filter
+     * 
+     * @param op the colour filter
+     * @return the chain
+     */
+    public static FilterChain ofPixels(ColorFilter op) {
+        return new FilterChain(List.of(new Stage(op, null)));
+    }
+    
+    /**
+     * Creates a chain of one filter that computes pixels from their neighbourhood
+     * 
+     * @param op the operation, filtering a buffer in place
+     * @return the chain
+     */
+    public static FilterChain ofBuffer(BufferOp op) {
+        return new FilterChain(List.of(new Stage(null, op)));
+    }
+    
+    /**
+     * Creates a chain that applies this chain and then another one
+     * 
+     * @param next the chain applied to the output of this one
+     * @return the combined chain
+     */
+    public FilterChain then(FilterChain next) {
+        List<Stage> combined = new ArrayList<>(stages);
+        for (Stage stage : next.stages) {
+            int last = combined.size() - 1;
+            if (last >= 0 && combined.get(last).pixelOp != null && stage.pixelOp != null) {
+                // Two colour transforms in a row become one transform
+                combined.set(last, new Stage(combined.get(last).pixelOp.then(stage.pixelOp), null));
+            } else {
+                combined.add(stage);
+            }
+        }
+        return new FilterChain(Collections.unmodifiableList(combined));
+    }
+    
+    /**
+     * Gets the number of passes over the pixels this chain makes after fusing
+     * 
+     * @return the pass count, 0 for the empty chain
+     */
+    public int getPassCount() {
+        return stages.size();
+    }
+    
+    /**
+     * Applies every filter of the chain to an image
+     * 
+     * @param source the image to filter, which is not modified
+     * @return a new ARGB image, or the source itself if the chain is empty
+     */
+    public BufferedImage apply(BufferedImage source) {
+        if (stages.isEmpty()) {
+            return source;
+        }
+        
+        int width = source.getWidth();
+        int height = source.getHeight();
+        int[] pixels = new int[width * height];
+        int[] spare = null;
+        
+        // A leading colour transform runs while the pixels are read
+        ColorFilter leading = stages.get(0).pixelOp;
+        ImageFilterUtil.forEachBand(width, height, (startRow, endRow) -> {
+            ImageFilterUtil.readArgb(source, startRow, endRow, pixels);
+            if (leading != null) {
+                leading.applyTo(pixels, startRow * width, endRow * width);
+            }
+        });
+        
+        for (int i = leading != null ? 1 : 0; i < stages.size(); i++) {
+            Stage stage = stages.get(i);
+            if (stage.pixelOp != null) {
+                ImageFilterUtil.forEachBand(width, height, (startRow, endRow) ->
+                        stage.pixelOp.applyTo(pixels, startRow * width, endRow * width));
+            } else {
+                if (spare == null) {
+                    spare = new int[pixels.length];
+                }
+                stage.bufferOp.apply(pixels, spare, width, height);
+            }
+        }
+        
+        return ImageFilterUtil.wrapArgb(pixels, width, height);
+    }
+    
+    /**
+     * A filter that computes each pixel from a neighbourhood of pixels
+     */
+    @FunctionalInterface
+    public interface BufferOp {
+        /**
+         * Filters a whole image in place
+         * 
+         * @param pixels the packed ARGB pixels, overwritten with the filtered pixels
+         * @param spare a scratch buffer of the same size, with undefined contents
+         * @param width the image width
+         * @param height the image height
+         */
+        void apply(int[] pixels, int[] spare, int width, int height);
+    }
+    
+    /**
+     * One pass over the pixels, either a colour transform or a buffer operation
+     */
+    private static final class Stage {
+        private final ColorFilter pixelOp;
+        private final BufferOp bufferOp;
+        
+        Stage(ColorFilter pixelOp, BufferOp bufferOp) {
+            this.pixelOp = pixelOp;
+            this.bufferOp = bufferOp;
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,260 @@
+package com.quackstagram.util;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import javax.swing.*;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Loads thumbnails on a small worker pool so the Event Dispatch Thread
+ * never blocks on image I/O. Labels show a placeholder until their image is ready.
+ * Requests are grouped by owner (usually a view) so they can be cancelled together
+ * when the owner's panels are discarded.
+ */
+public class ImageLoader {
+    private static final String REQUEST_PROPERTY = "ImageLoader.request";
+    private static final Color PLACEHOLDER_COLOR = new Color(230, 230, 230);
+    private static ImageLoader instance;
+    
+    private final ExecutorService workers;
+    private final Map<Object, List<Future<?>>> requestsByOwner = new ConcurrentHashMap<>();
+    private final Map<Dimension, ImageIcon> placeholders = new ConcurrentHashMap<>();
+    // Loads started by getForCell, so repainting a cell does not queue its image twice
+    private final Map<String, Future<?>> cellRequests = new ConcurrentHashMap<>();
+    // Cell images whose file is missing or unreadable, so repaints do not read them again
+    private final Set<String> failedCells = ConcurrentHashMap.newKeySet();
+    
+    private ImageLoader() {
+        int threads = Math.max(2, Math.min(4, Runtime.getRuntime().availableProcessors()));
+        AtomicInteger threadNumber = new AtomicInteger();
+        workers = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "image-loader-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            thread.setPriority(Thread.NORM_PRIORITY - 1);
+            return thread;
+        });
+    }
+    
+    public static synchronized ImageLoader getInstance() {
+        if (instance == null) {
+            instance = new ImageLoader();
+        }
+        return instance;
+    }
+    
+    /**
+     * Shows a placeholder in the label and replaces it with the scaled image once loaded.
+     * Must be called on the Event Dispatch Thread.
+     * 
+     * @param label the label that displays the image
+     * @param path the path of the image file
+     * @param width the width to scale to
+     * @param height the height to scale to
+     * @param owner the object whose requests are cancelled together, usually the view
+     */
+    public void loadInto(JLabel label, String path, int width, int height, Object owner) {
+        Object request = new Object();
+        label.putClientProperty(REQUEST_PROPERTY, request);
+        label.setIcon(getPlaceholder(width, height));
+        
+        submit(owner, () -> {
+            BufferedImage scaled = ThumbnailStore.getInstance().getThumbnail(path, width, height);
+            if (scaled == null || Thread.currentThread().isInterrupted()) {
+                return;
+            }
+            SwingUtilities.invokeLater(() -> {
+                // The label may have been reused for another image in the meantime
+                if (label.getClientProperty(REQUEST_PROPERTY) == request) {
+                    label.setIcon(new ImageIcon(scaled));
+                    label.putClientProperty(REQUEST_PROPERTY, null);
+                }
+            });
+        });
+    }
+    
+    /**
+     * Gets a scaled image for a cell renderer without blocking. Renderers paint many
+     * cells with one component, so instead of filling a label this returns the image
+     * if it is in memory; otherwise it starts loading it, unless a load is already
+     * under way, and returns null so the renderer paints a placeholder. onLoaded runs
+     * on the Event Dispatch Thread once the image is ready, typically to repaint the list.
+     * An image that could not be read is not tried again, and keeps its placeholder.
+     * Must be called on the Event Dispatch Thread.
+     * 
+     * @param path the path of the image file
+     * @param width the width to scale to
+     * @param height the height to scale to
+     * @param owner the object whose requests are cancelled together, usually the view
+     * @param onLoaded called once the image can be painted
+     * @return the scaled image, or null if it is still loading or could not be read
+     */
+    public BufferedImage getForCell(String path, int width, int height, Object owner, Runnable onLoaded) {
+        BufferedImage cached = ThumbnailStore.getInstance().getCachedThumbnail(path, width, height);
+        if (cached != null) {
+            return cached;
+        }
+        
+        String key = path + "@" + width + "x" + height;
+        if (failedCells.contains(key)) {
+            return null;
+        }
+        Future<?> pending = cellRequests.get(key);
+        // A cancelled or finished request whose image has since been evicted is started again
+        if (pending == null || pending.isDone()) {
+            cellRequests.put(key, submit(owner, () -> {
+                BufferedImage scaled = ThumbnailStore.getInstance().getThumbnail(path, width, height);
+                if (Thread.currentThread().isInterrupted()) {
+                    cellRequests.remove(key);
+                    return;
+                }
+                if (scaled == null) {
+                    failedCells.add(key);
+                } else {
+                    SwingUtilities.invokeLater(onLoaded);
+                }
+                cellRequests.remove(key);
+            }));
+        }
+        return null;
+    }
+    
+    private Future<?> submit(Object owner, Runnable task) {
+        List<Future<?>> requests = requestsByOwner.computeIfAbsent(owner, key -> new ArrayList<>());
+        Future<?> future = workers.submit(task);
+        
+        synchronized (requests) {
+            requests.removeIf(Future::isDone);
+            requests.add(future);
+        }
+        return future;
+    }
+    
+    /**
+     * Cancels every pending request of an owner
+     * 
+     * @param owner the owner passed to loadInto
+     */
+    public void cancel(Object owner) {
+        List<Future<?>> requests = requestsByOwner.remove(owner);
+        if (requests == null) {
+            return;
+        }
+        synchronized (requests) {
+            for (Future<?> future : requests) {
+                future.cancel(true);
+            }
+        }
+    }
+    
+    /**
+     * Decodes an image file and scales it with the same smoothing as Image.SCALE_SMOOTH
+     * 
+     * @param path the path of the image file
+     * @param width the width to scale to
+     * @param height the height to scale to
+     * @return the scaled image, or null if the file cannot be read
+     */
+    public static BufferedImage loadScaled(String path, int width, int height) {
+        try {
+            BufferedImage original = ImageIO.read(new File(path));
+            if (original == null) {
+                return null;
+            }
+            return scale(original, width, height);
+        } catch (IOException e) {
+            System.err.println("Error loading image " + path + ": " + e.getMessage());
+            return null;
+        }
+    }
+    
+    /**
+     * Decodes an image file at reduced resolution and scales it to fit within a box,
+     * keeping its aspect ratio. Large files are subsampled while decoding, so the
+     * full-resolution image is never held in memory.
+     * 
+     * @param file the image file
+     * @param maxWidth the maximum width of the result
+     * @param maxHeight the maximum height of the result
+     * @return the scaled image
+     * @throws IOException if the file cannot be read or is not a supported image
+     */
+    public static BufferedImage loadFitted(File file, int maxWidth, int maxHeight) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(file)) {
+            Iterator<ImageReader> readers = input == null ? null : ImageIO.getImageReaders(input);
+            if (readers == null || !readers.hasNext()) {
+                throw new IOException("Unsupported image format");
+            }
+            
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+                double scale = Math.min(1.0, Math.min((double) maxWidth / width, (double) maxHeight / height));
+                
+                // Keep about twice the target resolution so area-averaging smooths out the subsampling
+                int subsampling = Math.max(1, (int) (1 / scale) / 2);
+                ImageReadParam param = reader.getDefaultReadParam();
+                param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+                BufferedImage decoded = reader.read(0, param);
+                
+                return scale(decoded, Math.max(1, (int) (width * scale)), Math.max(1, (int) (height * scale)));
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+    
+    /**
+     * Scales an image into a new buffer using area-averaging
+     * 
+     * @param image the image to scale
+     * @param width the target width
+     * @param height the target height
+     * @return the scaled image
+     */
+    public static BufferedImage scale(Image image, int width, int height) {
+        BufferedImage scaled = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = scaled.createGraphics();
+        try {
+            // Drawing forces the lazy scaled instance to be computed here rather than when painted
+            g.drawImage(image.getScaledInstance(width, height, Image.SCALE_SMOOTH), 0, 0, null);
+        } finally {
+            g.dispose();
+        }
+        return scaled;
+    }
+    
+    /**
+     * Gets the icon shown while an image loads
+     * 
+     * @param width the placeholder width
+     * @param height the placeholder height
+     * @return the placeholder icon
+     */
+    public ImageIcon getPlaceholder(int width, int height) {
+        return placeholders.computeIfAbsent(new Dimension(width, height), size -> {
+            BufferedImage placeholder = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+            Graphics2D g = placeholder.createGraphics();
+            g.setColor(PLACEHOLDER_COLOR);
+            g.fillRect(0, 0, width, height);
+            g.dispose();
+            return new ImageIcon(placeholder);
+        });
+    }
+}
\ No newline at end of file
@@ -0,0 +1,108 @@
+package com.quackstagram.util;
+
+/**
+ * Colour filters computed one pixel at a time.
+ * These are the reference results the vector backend must reproduce.
+ */
+final class ScalarColorFilters implements ColorFilterBackend {
+    
+    @Override
+    public String getName() {
+        return "scalar";
+    }
+    
+    @Override
+    public ColorFilter grayscale() {
+        return ScalarColorFilters::grayscale;
+    }
+    
+    @Override
+    public ColorFilter sepia() {
+        return ScalarColorFilters::sepia;
+    }
+    
+    @Override
+    public ColorFilter invert() {
+        return ScalarColorFilters::invert;
+    }
+    
+    @Override
+    public ColorFilter warm() {
+        return ScalarColorFilters::warm;
+    }
+    
+    @Override
+    public ColorFilter cool() {
+        return ScalarColorFilters::cool;
+    }
+    
+    /**
+     * Converts a pixel to grayscale using the luma weights
+     * 
+     * @param argb the packed ARGB pixel
+     * @return the filtered pixel
+     */
+    static int grayscale(int argb) {
+        int r = (argb >> 16) & 0xff;
+        int g = (argb >> 8) & 0xff;
+        int b = argb & 0xff;
+        
+        int gray = (int)(0.299 * r + 0.587 * g + 0.114 * b);
+        
+        return (argb & 0xff000000) | (gray << 16) | (gray << 8) | gray;
+    }
+    
+    /**
+     * Applies the sepia tone matrix to a pixel
+     * 
+     * @param argb the packed ARGB pixel
+     * @return the filtered pixel
+     */
+    static int sepia(int argb) {
+        int r = (argb >> 16) & 0xff;
+        int g = (argb >> 8) & 0xff;
+        int b = argb & 0xff;
+        
+        int newR = Math.min(255, (int)(0.393 * r + 0.769 * g + 0.189 * b));
+        int newG = Math.min(255, (int)(0.349 * r + 0.686 * g + 0.168 * b));
+        int newB = Math.min(255, (int)(0.272 * r + 0.534 * g + 0.131 * b));
+        
+        return (argb & 0xff000000) | (newR << 16) | (newG << 8) | newB;
+    }
+    
+    /**
+     * Inverts the colour channels of a pixel, keeping its alpha
+     * 
+     * @param argb the packed ARGB pixel
+     * @return the filtered pixel
+     */
+    static int invert(int argb) {
+        return argb ^ 0x00ffffff;
+    }
+    
+    /**
+     * Applies a warm tint to a pixel (increase red, decrease blue)
+     * 
+     * @param argb the packed ARGB pixel
+     * @return the filtered pixel
+     */
+    static int warm(int argb) {
+        int r = Math.min(255, ((argb >> 16) & 0xff) + 30);
+        int b = Math.max(0, (argb & 0xff) - 20);
+        
+        return (argb & 0xff00ff00) | (r << 16) | b;
+    }
+    
+    /**
+     * Applies a cool tint to a pixel (increase blue, decrease red)
+     * 
+     * @param argb the packed ARGB pixel
+     * @return the filtered pixel
+     */
+    static int cool(int argb) {
+        int r = Math.max(0, ((argb >> 16) & 0xff) - 20);
+        int b = Math.min(255, (argb & 0xff) + 30);
+        
+        return (argb & 0xff00ff00) | (r << 16) | b;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,276 @@
+package com.quackstagram.util;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * LRU cache of prepared statements bound to one physical connection.
+ * Statements handed out by the cache stay open when the caller closes them,
+ * so the next prepare of the same SQL text reuses the server-side statement.
+ */
+class StatementCache {
+    private final Connection physical;
+    private final int maxSize;
+    private final Stats stats;
+    private final LinkedHashMap<String, CachedStatement> statements;
+    private final List<PreparedStatement> uncached = new ArrayList<>();
+    
+    /**
+     * Constructor for StatementCache
+     * 
+     * @param physical the connection the statements are prepared on
+     * @param maxSize the maximum number of statements kept open
+     * @param stats the counters shared by every cache of a pool
+     */
+    StatementCache(Connection physical, int maxSize, Stats stats) {
+        this.physical = physical;
+        this.maxSize = maxSize;
+        this.stats = stats;
+        this.statements = new LinkedHashMap<String, CachedStatement>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedStatement> eldest) {
+                if (size() <= StatementCache.this.maxSize) {
+                    return false;
+                }
+                eldest.getValue().evict();
+                return true;
+            }
+        };
+    }
+    
+    /**
+     * Returns a prepared statement for the SQL text, reusing a cached one when it is free
+     * 
+     * @param sql the SQL text
+     * @return a prepared statement whose close() returns it to the cache
+     * @throws SQLException if the statement cannot be prepared
+     */
+    PreparedStatement prepare(String sql) throws SQLException {
+        CachedStatement cached = statements.get(sql);
+        if (cached != null && cached.evicted && !cached.inUse) {
+            // Closed by a failed reclaim
+            statements.remove(sql);
+            cached = null;
+        }
+        if (cached != null && !cached.inUse) {
+            stats.hit(sql);
+            return cached.checkOut();
+        }
+        
+        stats.miss(sql);
+        PreparedStatement statement = physical.prepareStatement(sql);
+        if (cached != null) {
+            // Same SQL is already checked out on this connection, e.g. a nested query.
+            // The caller closes this one itself; reclaim() closes it if the caller does not.
+            uncached.removeIf(StatementCache::isClosedQuietly);
+            uncached.add(statement);
+            return statement;
+        }
+        
+        cached = new CachedStatement(statement);
+        statements.put(sql, cached);
+        return cached.checkOut();
+    }
+    
+    /**
+     * Takes back every statement still checked out when the connection is returned to
+     * the pool, so a caller that never closed one does not leave it in use for good
+     */
+    void reclaim() {
+        for (CachedStatement cached : statements.values()) {
+            cached.reclaim();
+        }
+        closeUncached();
+    }
+    
+    /**
+     * Physically closes every cached statement
+     */
+    void closeAll() {
+        for (CachedStatement cached : statements.values()) {
+            cached.evict();
+        }
+        statements.clear();
+        closeUncached();
+    }
+    
+    private void closeUncached() {
+        for (PreparedStatement statement : uncached) {
+            try {
+                statement.close();
+            } catch (SQLException e) {
+                // Statement is being discarded anyway
+            }
+        }
+        uncached.clear();
+    }
+    
+    private static boolean isClosedQuietly(PreparedStatement statement) {
+        try {
+            return statement.isClosed();
+        } catch (SQLException e) {
+            return true;
+        }
+    }
+    
+    /**
+     * A statement owned by the cache and lent out to one caller at a time
+     */
+    private static class CachedStatement {
+        private final PreparedStatement statement;
+        private final List<ResultSet> openResults = new ArrayList<>();
+        private Lease lease;
+        private boolean inUse;
+        private boolean evicted;
+        
+        CachedStatement(PreparedStatement statement) {
+            this.statement = statement;
+        }
+        
+        PreparedStatement checkOut() {
+            inUse = true;
+            lease = new Lease();
+            return (PreparedStatement) Proxy.newProxyInstance(
+                    PreparedStatement.class.getClassLoader(),
+                    new Class<?>[] { PreparedStatement.class },
+                    lease);
+        }
+        
+        void reclaim() {
+            if (!inUse) {
+                return;
+            }
+            // The caller's proxy behaves as closed from now on
+            lease.returned = true;
+            try {
+                checkIn();
+            } catch (SQLException e) {
+                evict();
+            }
+        }
+        
+        void evict() {
+            evicted = true;
+            if (!inUse) {
+                closeQuietly();
+            }
+        }
+        
+        private void checkIn() throws SQLException {
+            try {
+                for (ResultSet rs : openResults) {
+                    rs.close();
+                }
+                openResults.clear();
+                if (!evicted) {
+                    statement.clearParameters();
+                }
+            } finally {
+                inUse = false;
+                lease = null;
+                if (evicted) {
+                    closeQuietly();
+                }
+            }
+        }
+        
+        private void closeQuietly() {
+            try {
+                statement.close();
+            } catch (SQLException e) {
+                // Statement is being discarded anyway
+            }
+        }
+        
+        /**
+         * Forwards calls to the cached statement until the caller closes it
+         */
+        private class Lease implements InvocationHandler {
+            private boolean returned;
+            
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                switch (method.getName()) {
+                    case "close":
+                        if (!returned) {
+                            returned = true;
+                            checkIn();
+                        }
+                        return null;
+                    case "isClosed":
+                        return returned || statement.isClosed();
+                    case "equals":
+                        return proxy == args[0];
+                    case "hashCode":
+                        return System.identityHashCode(proxy);
+                    default:
+                        break;
+                }
+                
+                if (returned) {
+                    throw new SQLException("Statement has already been closed");
+                }
+                
+                try {
+                    Object result = method.invoke(statement, args);
+                    if (result instanceof ResultSet) {
+                        openResults.add((ResultSet) result);
+                    }
+                    return result;
+                } catch (InvocationTargetException e) {
+                    throw e.getCause();
+                }
+            }
+        }
+    }
+    
+    /**
+     * Hit and miss counters shared by all statement caches of a pool
+     */
+    static class Stats {
+        private final LongAdder hits = new LongAdder();
+        private final LongAdder misses = new LongAdder();
+        private final Map<String, LongAdder> hitsBySql = new ConcurrentHashMap<>();
+        private final Map<String, LongAdder> missesBySql = new ConcurrentHashMap<>();
+        
+        void hit(String sql) {
+            hits.increment();
+            hitsBySql.computeIfAbsent(sql, key -> new LongAdder()).increment();
+        }
+        
+        void miss(String sql) {
+            misses.increment();
+            missesBySql.computeIfAbsent(sql, key -> new LongAdder()).increment();
+        }
+        
+        long getHits() {
+            return hits.sum();
+        }
+        
+        long getMisses() {
+            return misses.sum();
+        }
+        
+        long getHits(String sql) {
+            LongAdder count = hitsBySql.get(sql);
+            return count != null ? count.sum() : 0;
+        }
+        
+        long getMisses(String sql) {
+            LongAdder count = missesBySql.get(sql);
+            return count != null ? count.sum() : 0;
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,360 @@
+package com.quackstagram.util;
+
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Pre-scaled copies of images, stored on disk under the SHA-256 of the original
+ * so a variant is created once and shared by every path with the same content.
+ * A byte-bounded LRU keeps recently shown thumbnails decoded in memory.
+ * Views register the sizes they render so uploads can create all variants up front;
+ * any variant that is missing is generated on first use.
+ */
+public class ThumbnailStore {
+    private static final String THUMBNAIL_DIR = "img/thumbnails/";
+    private static final String INDEX_FILE = THUMBNAIL_DIR + "index.txt";
+    private static final long MEMORY_LIMIT_BYTES = 32L * 1024 * 1024;
+    private static ThumbnailStore instance;
+    
+    private final Set<Dimension> sizes = ConcurrentHashMap.newKeySet();
+    private final Map<String, IndexEntry> hashesByPath = new ConcurrentHashMap<>();
+    private final LinkedHashMap<String, BufferedImage> memory = new LinkedHashMap<>(64, 0.75f, true);
+    private long memoryBytes;
+    
+    private ThumbnailStore() {
+        loadIndex();
+    }
+    
+    public static synchronized ThumbnailStore getInstance() {
+        if (instance == null) {
+            instance = new ThumbnailStore();
+        }
+        return instance;
+    }
+    
+    /**
+     * Registers a size that views render images at
+     * 
+     * @param width the thumbnail width
+     * @param height the thumbnail height
+     */
+    public void registerSize(int width, int height) {
+        sizes.add(new Dimension(width, height));
+    }
+    
+    /**
+     * Creates every registered size variant of an image
+     * 
+     * @param path the path of the original image
+     */
+    public void createVariants(String path) {
+        for (Dimension size : sizes) {
+            getThumbnail(path, size.width, size.height);
+        }
+    }
+    
+    /**
+     * Gets a thumbnail only if it is decoded in memory, without touching the disk.
+     * Meant for painting code, which must not block.
+     * 
+     * @param path the path of the original image
+     * @param width the thumbnail width
+     * @param height the thumbnail height
+     * @return the scaled image, or null if it is not in memory
+     */
+    public BufferedImage getCachedThumbnail(String path, int width, int height) {
+        String hash = BlobStore.getHash(path);
+        if (hash == null) {
+            IndexEntry entry = hashesByPath.get(path);
+            if (entry == null) {
+                return null;
+            }
+            hash = entry.hash;
+        }
+        return getFromMemory(hash + "_" + width + "x" + height);
+    }
+    
+    /**
+     * Scales an already decoded original to every registered size
+     * 
+     * @param original the decoded original image
+     * @return the scaled images by size
+     */
+    public Map<Dimension, BufferedImage> scaleVariants(BufferedImage original) {
+        Map<Dimension, BufferedImage> variants = new HashMap<>();
+        for (Dimension size : sizes) {
+            variants.put(size, ImageLoader.scale(original, size.width, size.height));
+        }
+        return variants;
+    }
+    
+    /**
+     * Stores the variants of an original that was just written, recording the hash
+     * computed while writing it so the original never has to be read back
+     * 
+     * @param path the path of the original image
+     * @param hash the SHA-256 of the original file, as lowercase hex
+     * @param variants the scaled images by size, as returned by scaleVariants
+     */
+    public void storeVariants(String path, String hash, Map<Dimension, BufferedImage> variants) {
+        // Blob paths carry their hash in the name, so only other paths are indexed
+        if (BlobStore.getHash(path) == null) {
+            File file = new File(path);
+            IndexEntry entry = new IndexEntry(file.length(), file.lastModified(), hash);
+            hashesByPath.put(path, entry);
+            appendToIndex(path, entry);
+        }
+        
+        for (Map.Entry<Dimension, BufferedImage> variant : variants.entrySet()) {
+            String key = hash + "_" + variant.getKey().width + "x" + variant.getKey().height;
+            Path variantPath = Paths.get(THUMBNAIL_DIR, key + ".png");
+            if (!Files.exists(variantPath)) {
+                writeVariant(variantPath, variant.getValue());
+            }
+            putInMemory(key, variant.getValue());
+        }
+    }
+    
+    /**
+     * Gets an image scaled to the given size, from memory, from disk or by scaling the original
+     * 
+     * @param path the path of the original image
+     * @param width the thumbnail width
+     * @param height the thumbnail height
+     * @return the scaled image, or null if the original cannot be read
+     */
+    public BufferedImage getThumbnail(String path, int width, int height) {
+        String hash = getContentHash(path);
+        if (hash == null) {
+            return null;
+        }
+        
+        String key = hash + "_" + width + "x" + height;
+        BufferedImage thumbnail = getFromMemory(key);
+        if (thumbnail != null) {
+            return thumbnail;
+        }
+        
+        Path variant = Paths.get(THUMBNAIL_DIR, key + ".png");
+        try {
+            if (Files.exists(variant)) {
+                thumbnail = ImageIO.read(variant.toFile());
+            }
+        } catch (IOException e) {
+            System.err.println("Error reading thumbnail " + variant + ": " + e.getMessage());
+        }
+        
+        if (thumbnail == null) {
+            thumbnail = ImageLoader.loadScaled(path, width, height);
+            if (thumbnail == null) {
+                return null;
+            }
+            writeVariant(variant, thumbnail);
+        }
+        
+        putInMemory(key, thumbnail);
+        return thumbnail;
+    }
+    
+    /**
+     * Removes every variant of an original whose content is gone, from disk, memory and the index.
+     * Paths still holding that content are hashed again on their next use.
+     * 
+     * @param hash the SHA-256 of the original, as lowercase hex
+     */
+    public void evict(String hash) {
+        Path dir = Paths.get(THUMBNAIL_DIR);
+        if (Files.isDirectory(dir)) {
+            try (DirectoryStream<Path> variants = Files.newDirectoryStream(dir, hash + "_*.png")) {
+                for (Path variant : variants) {
+                    Files.deleteIfExists(variant);
+                }
+            } catch (IOException e) {
+                System.err.println("Error deleting thumbnails of " + hash + ": " + e.getMessage());
+            }
+        }
+        
+        removeFromMemory(hash + "_");
+        
+        if (hashesByPath.values().removeIf(entry -> entry.hash.equals(hash))) {
+            try {
+                compactIndex();
+            } catch (IOException e) {
+                System.err.println("Error updating thumbnail index: " + e.getMessage());
+            }
+        }
+    }
+    
+    /**
+     * Gets the content hash of an image, computing and recording it if the file is new or changed
+     */
+    private String getContentHash(String path) {
+        // Blob files are named by their hash and never change
+        String blobHash = BlobStore.getHash(path);
+        if (blobHash != null) {
+            return Files.exists(Paths.get(path)) ? blobHash : null;
+        }
+        
+        File file = new File(path);
+        if (!file.isFile()) {
+            return null;
+        }
+        
+        IndexEntry entry = hashesByPath.get(path);
+        if (entry != null && entry.size == file.length() && entry.modified == file.lastModified()) {
+            return entry.hash;
+        }
+        
+        try (InputStream in = Files.newInputStream(file.toPath())) {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+            
+            entry = new IndexEntry(file.length(), file.lastModified(), FileUtil.toHex(digest.digest()));
+            hashesByPath.put(path, entry);
+            appendToIndex(path, entry);
+            return entry.hash;
+        } catch (IOException | NoSuchAlgorithmException e) {
+            System.err.println("Error hashing image " + path + ": " + e.getMessage());
+            return null;
+        }
+    }
+    
+    private void writeVariant(Path variant, BufferedImage thumbnail) {
+        try {
+            Files.createDirectories(variant.getParent());
+            // Write under a temporary name so readers never see a half-written file
+            Path temp = Files.createTempFile(variant.getParent(), "thumb", ".tmp");
+            ImageIO.write(thumbnail, "png", temp.toFile());
+            Files.move(temp, variant, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            System.err.println("Error writing thumbnail " + variant + ": " + e.getMessage());
+        }
+    }
+    
+    private synchronized BufferedImage getFromMemory(String key) {
+        return memory.get(key);
+    }
+    
+    private synchronized void putInMemory(String key, BufferedImage thumbnail) {
+        BufferedImage previous = memory.put(key, thumbnail);
+        if (previous != null) {
+            memoryBytes -= sizeOf(previous);
+        }
+        memoryBytes += sizeOf(thumbnail);
+        
+        Iterator<Map.Entry<String, BufferedImage>> eldest = memory.entrySet().iterator();
+        while (memoryBytes > MEMORY_LIMIT_BYTES && eldest.hasNext()) {
+            BufferedImage evicted = eldest.next().getValue();
+            if (evicted == thumbnail) {
+                break;
+            }
+            memoryBytes -= sizeOf(evicted);
+            eldest.remove();
+        }
+    }
+    
+    private synchronized void removeFromMemory(String keyPrefix) {
+        Iterator<Map.Entry<String, BufferedImage>> entries = memory.entrySet().iterator();
+        while (entries.hasNext()) {
+            Map.Entry<String, BufferedImage> entry = entries.next();
+            if (entry.getKey().startsWith(keyPrefix)) {
+                memoryBytes -= sizeOf(entry.getValue());
+                entries.remove();
+            }
+        }
+    }
+    
+    private static long sizeOf(BufferedImage image) {
+        return 4L * image.getWidth() * image.getHeight();
+    }
+    
+    private void loadIndex() {
+        try {
+            if (!FileUtil.fileExists(INDEX_FILE)) {
+                return;
+            }
+            List<String> lines = FileUtil.readAllLines(INDEX_FILE);
+            for (String line : lines) {
+                String[] parts = line.split(", ");
+                if (parts.length < 4) {
+                    continue;
+                }
+                // Later lines supersede earlier ones for the same path
+                hashesByPath.put(parts[0].split(": ", 2)[1], new IndexEntry(
+                        Long.parseLong(parts[1].split(": ")[1]),
+                        Long.parseLong(parts[2].split(": ")[1]),
+                        parts[3].split(": ")[1]));
+            }
+            
+            hashesByPath.keySet().removeIf(path -> !FileUtil.fileExists(path));
+            if (hashesByPath.size() < lines.size()) {
+                compactIndex();
+            }
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Error loading thumbnail index: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * Rewrites the index with one line per indexed path, dropping the lines of
+     * re-indexed and deleted originals that appending leaves behind
+     */
+    private synchronized void compactIndex() throws IOException {
+        List<String> lines = new ArrayList<>();
+        for (Map.Entry<String, IndexEntry> indexed : hashesByPath.entrySet()) {
+            lines.add(formatIndexLine(indexed.getKey(), indexed.getValue()));
+        }
+        FileUtil.writeLines(INDEX_FILE, lines, false);
+    }
+    
+    private synchronized void appendToIndex(String path, IndexEntry entry) {
+        try {
+            FileUtil.appendLine(INDEX_FILE, formatIndexLine(path, entry));
+        } catch (IOException e) {
+            System.err.println("Error updating thumbnail index: " + e.getMessage());
+        }
+    }
+    
+    private static String formatIndexLine(String path, IndexEntry entry) {
+        return String.format("Path: %s, Size: %d, Modified: %d, Hash: %s",
+                path, entry.size, entry.modified, entry.hash);
+    }
+    
+    /**
+     * The recorded hash of an original and the file state it was computed from
+     */
+    private static final class IndexEntry {
+        private final long size;
+        private final long modified;
+        private final String hash;
+        
+        IndexEntry(long size, long modified, String hash) {
+            this.size = size;
+            this.modified = modified;
+            this.hash = hash;
+        }
+    }
+}
\ No newline at end of file
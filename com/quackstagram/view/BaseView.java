@@ -2,10 +2,17 @@ package com.quackstagram.view;
 
 import com.quackstagram.controller.SessionController;
 import com.quackstagram.controller.NavigationController;
+import com.quackstagram.util.ImageLoader;
 
 import javax.swing.*;
 import java.awt.*;
 import java.awt.event.ActionListener;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Consumer;
 
 /**
  * Abstract base class for all views in the application.
@@ -15,10 +22,19 @@ public abstract class BaseView extends JFrame {
     protected static final int WIDTH = 320;
     protected static final int HEIGHT = 500;
     protected static final int NAV_ICON_SIZE = 20;
+    // A view shown again sooner than this keeps its content exactly as it was
+    protected static final Duration STALE_AFTER = Duration.ofSeconds(30);
     
     protected final SessionController sessionController;
     protected final NavigationController navigationController;
     
+    private Instant updatedAt;
+    private String updatedFor;
+    private boolean stale;
+    private boolean reloadRequired;
+    private JButton notificationsButton;
+    private int unreadCount;
+    
     /**
      * Constructor for BaseView
      * 
@@ -46,6 +62,91 @@ public abstract class BaseView extends JFrame {
      */
     public abstract void refreshView();
     
+    /**
+     * Called before the view is shown. The view is rebuilt with refreshView the first
+     * time, when another user has signed in or out, or after invalidate; otherwise,
+     * once its content is older than STALE_AFTER or after markStale, only the changes
+     * are applied with applyUpdates. Switching back to a recently shown view does nothing.
+     */
+    public void onShow() {
+        String viewer = sessionController.isLoggedIn() ? sessionController.getCurrentUser().getUsername() : null;
+        
+        if (updatedAt == null || reloadRequired || !Objects.equals(viewer, updatedFor)) {
+            refreshView();
+        } else if (stale || Duration.between(updatedAt, Instant.now()).compareTo(STALE_AFTER) >= 0) {
+            applyUpdates();
+        } else {
+            return;
+        }
+        
+        updatedAt = Instant.now();
+        updatedFor = viewer;
+        stale = false;
+        reloadRequired = false;
+    }
+    
+    /**
+     * Called after the view is hidden
+     */
+    public void onHide() {
+        // Images still loading for the hidden view are no longer needed
+        ImageLoader.getInstance().cancel(this);
+    }
+    
+    /**
+     * Makes the next onShow apply updates even if the view was refreshed recently
+     */
+    public void markStale() {
+        stale = true;
+    }
+    
+    /**
+     * Makes the next onShow rebuild the view, for changes that updates cannot express
+     */
+    public void requireReload() {
+        reloadRequired = true;
+    }
+    
+    /**
+     * Shows the number of unread notifications next to the notifications button
+     * 
+     * @param count the number of unread notifications, 0 to hide it
+     */
+    public void showUnreadCount(int count) {
+        unreadCount = count;
+        if (notificationsButton != null) {
+            notificationsButton.setText(count > 0 ? String.valueOf(count) : "");
+        }
+    }
+    
+    /**
+     * Brings the content of a view that was shown before up to date, keeping its
+     * components. Views that can apply changes incrementally override this; by
+     * default the view is refreshed completely.
+     */
+    protected void applyUpdates() {
+        refreshView();
+    }
+    
+    /**
+     * Runs an action on the Event Dispatch Thread with the result of a background call.
+     * If the call failed, the error is reported and the action is skipped.
+     * 
+     * @param future the background call
+     * @param action what to do with its result
+     * @param <T> the type of the result
+     */
+    protected <T> void onEdt(CompletableFuture<T> future, Consumer<? super T> action) {
+        future.whenComplete((result, error) -> SwingUtilities.invokeLater(() -> {
+            if (error == null) {
+                action.accept(result);
+                return;
+            }
+            Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+            System.err.println("Error loading data for " + getTitle() + ": " + cause.getMessage());
+        }));
+    }
+    
     /**
      * Navigates to another view
      * 
@@ -90,7 +191,10 @@ public abstract class BaseView extends JFrame {
         navigationPanel.add(Box.createHorizontalGlue());
         navigationPanel.add(createIconButton("img/icons/add.png", e -> navigateTo("upload")));
         navigationPanel.add(Box.createHorizontalGlue());
-        navigationPanel.add(createIconButton("img/icons/heart.png", e -> navigateTo("notifications")));
+        notificationsButton = createIconButton("img/icons/heart.png", e -> navigateTo("notifications"));
+        notificationsButton.setForeground(new Color(255, 90, 95));
+        navigationPanel.add(notificationsButton);
+        showUnreadCount(unreadCount);
         navigationPanel.add(Box.createHorizontalGlue());
         
         navigationPanel.add(createIconButton("img/icons/profile.png", e -> {
@@ -2,29 +2,41 @@ package com.quackstagram.view;
 
 import com.quackstagram.controller.PictureController;
 import com.quackstagram.controller.SessionController;
+import com.quackstagram.model.FeedCursor;
+import com.quackstagram.model.Page;
 import com.quackstagram.model.Picture;
+import com.quackstagram.util.ImageLoader;
+import com.quackstagram.util.ThumbnailStore;
 import com.quackstagram.controller.NavigationController;
 
 import javax.swing.*;
 import java.awt.*;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
-import java.util.List;
 import java.time.temporal.ChronoUnit;
 import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * View for exploring and discovering content.
  */
 public class ExploreView extends BaseView {
     private static final int IMAGE_SIZE = WIDTH / 3 - 4;
+    private static final int PAGE_SIZE = 30;
+    private static final int GAP = 2;
+    // The next page is requested when the user scrolls within about five rows of the end
+    private static final int PREFETCH_CELLS = 15;
     
     private final PictureController pictureController;
-    private JPanel contentPanel;
+    private final PictureListModel gridModel = new PictureListModel();
+    private JList<Picture> gridList;
+    private ListPager<Picture> pager;
     private CardLayout cardLayout;
     private JPanel cardPanel;
     private JPanel gridPanel;
     private JPanel detailPanel;
+    private FeedCursor nextCursor;
 
     /**
      * Constructor for ExploreView
@@ -36,6 +48,7 @@ public class ExploreView extends BaseView {
     public ExploreView(SessionController sessionController, NavigationController navigationController,
                     PictureController pictureController) {
         super(sessionController, navigationController);
+        ThumbnailStore.getInstance().registerSize(IMAGE_SIZE, IMAGE_SIZE);
         this.pictureController = pictureController;
         
         setTitle("Explore");
@@ -74,11 +87,28 @@ public class ExploreView extends BaseView {
         searchPanel.add(searchField, BorderLayout.CENTER);
         gridPanel.add(searchPanel, BorderLayout.NORTH);
         
-        contentPanel = new JPanel(new GridLayout(0, 3, 2, 2));
-        JScrollPane scrollPane = new JScrollPane(contentPanel);
+        // A wrapping list paints only the visible thumbnails, so the grid costs no components per picture
+        gridList = new JList<>(gridModel);
+        ThumbnailCellRenderer.layoutAsGrid(gridList, 3, IMAGE_SIZE + GAP);
+        gridList.setCellRenderer(new ThumbnailCellRenderer(IMAGE_SIZE, GAP, this));
+        gridList.setFocusable(false);
+        gridList.setCursor(new Cursor(Cursor.HAND_CURSOR));
+        gridList.addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                int index = gridList.locationToIndex(e.getPoint());
+                if (index >= 0 && gridList.getCellBounds(index, index).contains(e.getPoint())) {
+                    displayImageDetail(gridModel.get(index));
+                }
+            }
+        });
+        
+        JScrollPane scrollPane = new JScrollPane(gridList);
         scrollPane.setHorizontalScrollBarPolicy(JScrollPane.HORIZONTAL_SCROLLBAR_NEVER);
         scrollPane.setVerticalScrollBarPolicy(JScrollPane.VERTICAL_SCROLLBAR_AS_NEEDED);
+        scrollPane.getVerticalScrollBar().setUnitIncrement(16);
         gridPanel.add(scrollPane, BorderLayout.CENTER);
+        pager = new ListPager<>(gridList, scrollPane, PREFETCH_CELLS, this::fetchNextPage, this::appendPage);
         
         detailPanel = new JPanel(new BorderLayout());
         
@@ -101,53 +131,56 @@ public class ExploreView extends BaseView {
      */
     @Override
     public void refreshView() {
-        contentPanel.removeAll();
+        ImageLoader.getInstance().cancel(this);
         loadExploreContent();
-        contentPanel.revalidate();
-        contentPanel.repaint();
         
         cardLayout.show(cardPanel, "grid");
     }
     
     /**
-     * Loads all pictures for explore view
+     * Loads the first page of pictures for explore view in the background;
+     * later pages are loaded as the user scrolls
      */
     private void loadExploreContent() {
-        List<Picture> allPictures = pictureController.getAllPictures();
+        gridModel.clear();
+        nextCursor = null;
+        pager.restart();
+    }
         
-        for (Picture picture : allPictures) {
-            JPanel imageContainer = createImageThumbnail(picture);
-            contentPanel.add(imageContainer);
-        }
+    /**
+     * Adds the pictures posted since the grid was loaded and updates the likes
+     * of those already shown, keeping the pages loaded and the scroll position
+     */
+    @Override
+    protected void applyUpdates() {
+        onEdt(pictureController.getExplorePageAsync(null, PAGE_SIZE), firstPage -> {
+            if (!gridModel.prependNewer(firstPage)) {
+                refreshView();
+                return;
+            }
+            List<String> imageIds = gridModel.getImageIds();
+            onEdt(pictureController.getLikesCountsAsync(imageIds),
+                    likesCounts -> gridModel.applyLikesCounts(imageIds, likesCounts));
+        });
     }
     
     /**
-     * Creates a thumbnail for an image in the grid
+     * Starts fetching the page of pictures after those already in the grid
      * 
-     * @param picture the picture to display
-     * @return a panel containing the image thumbnail
+     * @return a future completed with the page
      */
-    private JPanel createImageThumbnail(Picture picture) {
-        JPanel container = new JPanel(new BorderLayout());
-        container.setPreferredSize(new Dimension(IMAGE_SIZE, IMAGE_SIZE));
-        
-        ImageIcon originalIcon = new ImageIcon(picture.getImagePath());
-        Image scaledImage = originalIcon.getImage().getScaledInstance(
-                IMAGE_SIZE, IMAGE_SIZE, Image.SCALE_SMOOTH);
-        ImageIcon scaledIcon = new ImageIcon(scaledImage);
-        
-        JLabel imageLabel = new JLabel(scaledIcon);
-        imageLabel.setCursor(new Cursor(Cursor.HAND_CURSOR));
-        
-        imageLabel.addMouseListener(new MouseAdapter() {
-            @Override
-            public void mouseClicked(MouseEvent e) {
-                displayImageDetail(picture);
-            }
-        });
+    private CompletableFuture<Page<Picture>> fetchNextPage() {
+        return pictureController.getExplorePageAsync(nextCursor, PAGE_SIZE);
+    }
         
-        container.add(imageLabel, BorderLayout.CENTER);
-        return container;
+    /**
+     * Appends a fetched page of pictures to the grid
+     * 
+     * @param page the page to append
+     */
+    private void appendPage(Page<Picture> page) {
+        gridModel.addAll(page.getItems());
+        nextCursor = page.getNextCursor();
     }
     
     /**
@@ -198,9 +231,9 @@ public class ExploreView extends BaseView {
         if (sessionController.isLoggedIn()) {
             JButton likeButton = new JButton("❤ Like");
             likeButton.addActionListener(e -> {
-                pictureController.likePicture(
+                onEdt(pictureController.likePictureAsync(
                         sessionController.getCurrentUser().getUsername(),
-                        picture.getImageId());
+                        picture.getImageId()), ignored -> { });
                 likesLabel.setText("Likes: " + (picture.getLikesCount() + 1));
             });
             infoPanel.add(likeButton);
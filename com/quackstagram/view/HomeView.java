@@ -2,16 +2,22 @@ package com.quackstagram.view;
 
 import com.quackstagram.controller.PictureController;
 import com.quackstagram.controller.SessionController;
+import com.quackstagram.model.FeedCursor;
+import com.quackstagram.model.Page;
 import com.quackstagram.model.Picture;
+import com.quackstagram.util.ImageLoader;
+import com.quackstagram.util.ThumbnailStore;
 import com.quackstagram.controller.NavigationController;
 
 import javax.swing.*;
 import java.awt.*;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
+import java.awt.image.BufferedImage;
 import java.time.temporal.ChronoUnit;
-import java.util.List;
 import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * View for displaying the user's home feed.
@@ -19,11 +25,19 @@ import java.time.LocalDateTime;
 public class HomeView extends BaseView {
     private static final int IMAGE_WIDTH = WIDTH - 20;
     private static final int IMAGE_HEIGHT = 200;
+    private static final int PAGE_SIZE = 10;
+    // The next page is requested when the user scrolls this close to the last post
+    private static final int PREFETCH_POSTS = 3;
     private static final Color LIKE_BUTTON_COLOR = new Color(255, 90, 95);
+    private static final Color SEPARATOR_COLOR = new Color(230, 230, 230);
 
     private final PictureController pictureController;
-    private JPanel contentPanel;
+    private final PictureListModel feedModel = new PictureListModel();
+    private JList<Picture> feedList;
+    private PostRenderer postRenderer;
     private JScrollPane scrollPane;
+    private ListPager<Picture> pager;
+    private FeedCursor nextCursor;
 
     /**
      * Constructor for HomeView
@@ -35,6 +49,7 @@ public class HomeView extends BaseView {
     public HomeView(SessionController sessionController, NavigationController navigationController,
                 PictureController pictureController) {
         super(sessionController, navigationController);
+        ThumbnailStore.getInstance().registerSize(IMAGE_WIDTH, IMAGE_HEIGHT);
         this.pictureController = pictureController;
         
         setTitle("Quackstagram Home");
@@ -51,12 +66,28 @@ public class HomeView extends BaseView {
         JPanel headerPanel = createHeaderPanel("Quackstagram");
         add(headerPanel, BorderLayout.NORTH);
         
-        contentPanel = new JPanel();
-        contentPanel.setLayout(new BoxLayout(contentPanel, BoxLayout.Y_AXIS));
-        scrollPane = new JScrollPane(contentPanel);
+        // Only the visible posts are painted, all by one renderer, so a long feed costs no components
+        postRenderer = new PostRenderer();
+        feedList = new JList<>(feedModel);
+        feedList.setCellRenderer(postRenderer);
+        // Fixed sizes spare the list from running the renderer over every post to measure it
+        feedList.setFixedCellWidth(postRenderer.getPreferredSize().width);
+        feedList.setFixedCellHeight(postRenderer.getPreferredSize().height);
+        feedList.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        feedList.setFocusable(false);
+        feedList.addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                handleFeedClick(e.getPoint());
+            }
+        });
+        
+        scrollPane = new JScrollPane(feedList);
         scrollPane.setHorizontalScrollBarPolicy(JScrollPane.HORIZONTAL_SCROLLBAR_NEVER);
         scrollPane.setVerticalScrollBarPolicy(JScrollPane.VERTICAL_SCROLLBAR_AS_NEEDED);
+        scrollPane.getVerticalScrollBar().setUnitIncrement(16);
         add(scrollPane, BorderLayout.CENTER);
+        pager = new ListPager<>(feedList, scrollPane, PREFETCH_POSTS, this::fetchNextPage, this::appendPage);
         
         JPanel navigationPanel = createNavigationPanel();
         add(navigationPanel, BorderLayout.SOUTH);
@@ -72,109 +103,170 @@ public class HomeView extends BaseView {
      */
     @Override
     public void refreshView() {
-        contentPanel.removeAll();
+        ImageLoader.getInstance().cancel(this);
         loadFeedContent();
-        contentPanel.revalidate();
-        contentPanel.repaint();
     }
     
     /**
-     * Loads feed content from followed users
+     * Loads the first page of feed content from followed users in the background;
+     * later pages are loaded as the user scrolls
      */
     private void loadFeedContent() {
+        feedModel.clear();
+        nextCursor = null;
+        
         if (!sessionController.isLoggedIn()) {
-            displayLoginPrompt();
+            pager.stop();
+            scrollPane.setViewportView(createLoginPrompt());
             return;
         }
         
-        List<Picture> feedPictures = pictureController.getHomeFeedPictures(
-                sessionController.getCurrentUser().getUsername());
-        
-        if (feedPictures.isEmpty()) {
-            displayEmptyFeedMessage();
+        scrollPane.setViewportView(feedList);
+        pager.restart();
+    }
+    
+    /**
+     * Adds the posts published since the feed was loaded and updates the likes
+     * of those already shown, keeping the pages loaded and the scroll position
+     */
+    @Override
+    protected void applyUpdates() {
+        if (!sessionController.isLoggedIn() || feedModel.isEmpty()) {
+            refreshView();
             return;
         }
         
-        for (Picture picture : feedPictures) {
-            contentPanel.add(createPicturePanel(picture));
-            
-            JPanel spacingPanel = new JPanel();
-            spacingPanel.setPreferredSize(new Dimension(WIDTH - 10, 10));
-            spacingPanel.setBackground(new Color(230, 230, 230));
-            contentPanel.add(spacingPanel);
+        onEdt(pictureController.getHomeFeedPageAsync(sessionController.getCurrentUser().getUsername(), null, PAGE_SIZE),
+                firstPage -> {
+                    if (!feedModel.prependNewer(firstPage)) {
+                        refreshView();
+                        return;
+                    }
+                    List<String> imageIds = feedModel.getImageIds();
+                    onEdt(pictureController.getLikesCountsAsync(imageIds),
+                            likesCounts -> feedModel.applyLikesCounts(imageIds, likesCounts));
+                });
+    }
+    
+    /**
+     * Starts fetching the page of the feed after the pictures already shown
+     * 
+     * @return a future completed with the page
+     */
+    private CompletableFuture<Page<Picture>> fetchNextPage() {
+        return pictureController.getHomeFeedPageAsync(
+                sessionController.getCurrentUser().getUsername(), nextCursor, PAGE_SIZE);
+    }
+        
+    /**
+     * Appends a fetched page of the feed below the pictures already shown
+     * 
+     * @param page the page to append
+     */
+    private void appendPage(Page<Picture> page) {
+        feedModel.addAll(page.getItems());
+        nextCursor = page.getNextCursor();
+        if (feedModel.isEmpty()) {
+            scrollPane.setViewportView(createEmptyFeedMessage());
         }
     }
     
     /**
-     * Creates a panel for a single picture post
+     * Dispatches a click on the feed to the part of the post under the pointer.
+     * Cells are painted, not live components, so the renderer is laid out for the
+     * clicked post to find what was hit.
      * 
-     * @param picture the picture to display
-     * @return a panel containing the picture post
+     * @param point the click location in list coordinates
      */
-    private JPanel createPicturePanel(Picture picture) {
-        JPanel picturePanel = new JPanel();
-        picturePanel.setLayout(new BoxLayout(picturePanel, BoxLayout.Y_AXIS));
-        picturePanel.setBackground(Color.WHITE);
-        picturePanel.setBorder(BorderFactory.createEmptyBorder(5, 5, 5, 5));
-        
-        JLabel usernameLabel = new JLabel(picture.getUsername());
-        usernameLabel.setFont(new Font("Arial", Font.BOLD, 14));
-        usernameLabel.setAlignmentX(Component.LEFT_ALIGNMENT);
-        picturePanel.add(usernameLabel);
-        
-        ImageIcon imageIcon;
-        try {
-            ImageIcon originalIcon = new ImageIcon(picture.getImagePath());
-            Image scaledImage = originalIcon.getImage().getScaledInstance(
-                    IMAGE_WIDTH, IMAGE_HEIGHT, Image.SCALE_SMOOTH);
-            imageIcon = new ImageIcon(scaledImage);
-        } catch (Exception e) {
-            imageIcon = new ImageIcon();
+    private void handleFeedClick(Point point) {
+        int index = feedList.locationToIndex(point);
+        if (index < 0) {
+            return;
+        }
+        Rectangle cell = feedList.getCellBounds(index, index);
+        if (!cell.contains(point)) {
+            return;
         }
         
-        JLabel imageLabel = new JLabel(imageIcon);
-        imageLabel.setAlignmentX(Component.LEFT_ALIGNMENT);
-        imageLabel.setPreferredSize(new Dimension(IMAGE_WIDTH, IMAGE_HEIGHT));
-        imageLabel.setBorder(BorderFactory.createLineBorder(Color.LIGHT_GRAY));
-        
-        imageLabel.addMouseListener(new MouseAdapter() {
-            @Override
-            public void mouseClicked(MouseEvent e) {
-                displayFullImage(picture);
-            }
-        });
-        
-        picturePanel.add(imageLabel);
-        
-        JLabel captionLabel = new JLabel(picture.getCaption());
-        captionLabel.setAlignmentX(Component.LEFT_ALIGNMENT);
-        picturePanel.add(captionLabel);
-        
-        JLabel likesLabel = new JLabel("Likes: " + picture.getLikesCount());
-        likesLabel.setAlignmentX(Component.LEFT_ALIGNMENT);
-        picturePanel.add(likesLabel);
-        
-        JLabel timeLabel = new JLabel(getTimeAgo(picture.getTimestamp()));
-        timeLabel.setAlignmentX(Component.LEFT_ALIGNMENT);
-        timeLabel.setFont(new Font("Arial", Font.ITALIC, 10));
-        picturePanel.add(timeLabel);
-        
-        JButton likeButton = new JButton("❤");
-        likeButton.setAlignmentX(Component.LEFT_ALIGNMENT);
-        likeButton.setBackground(LIKE_BUTTON_COLOR);
-        likeButton.setOpaque(true);
-        likeButton.setBorderPainted(false);
-        likeButton.addActionListener(e -> {
-            if (sessionController.isLoggedIn()) {
-                pictureController.likePicture(
-                        sessionController.getCurrentUser().getUsername(),
-                        picture.getImageId());
-                likesLabel.setText("Likes: " + (picture.getLikesCount() + 1));
-            }
-        });
-        picturePanel.add(likeButton);
+        Picture picture = feedModel.get(index);
+        postRenderer.getListCellRendererComponent(feedList, picture, index, false, false);
+        postRenderer.setBounds(cell);
+        postRenderer.doLayout();
+        
+        Component hit = SwingUtilities.getDeepestComponentAt(postRenderer, point.x - cell.x, point.y - cell.y);
+        if (hit == postRenderer.imageLabel) {
+            displayFullImage(picture);
+        } else if (hit == postRenderer.likeButton && sessionController.isLoggedIn()) {
+            onEdt(pictureController.likePictureAsync(
+                    sessionController.getCurrentUser().getUsername(),
+                    picture.getImageId()), ignored -> { });
+            picture.like();
+            feedList.repaint(cell);
+        }
+    }
+    
+    /**
+     * Paints one picture post of the feed. A single instance is reused as a
+     * stamp for every visible cell.
+     */
+    private class PostRenderer extends JPanel implements ListCellRenderer<Picture> {
+        private final JLabel usernameLabel = new JLabel("Username");
+        private final JLabel imageLabel = new JLabel();
+        private final JLabel captionLabel = new JLabel("Caption");
+        private final JLabel likesLabel = new JLabel("Likes: 0");
+        private final JLabel timeLabel = new JLabel("Now");
+        private final JButton likeButton = new JButton("❤");
+        
+        PostRenderer() {
+            setLayout(new BoxLayout(this, BoxLayout.Y_AXIS));
+            setBackground(Color.WHITE);
+            // The bottom band separates consecutive posts
+            setBorder(BorderFactory.createCompoundBorder(
+                    BorderFactory.createMatteBorder(0, 0, 10, 0, SEPARATOR_COLOR),
+                    BorderFactory.createEmptyBorder(5, 5, 5, 5)));
+        
+            usernameLabel.setFont(new Font("Arial", Font.BOLD, 14));
+            usernameLabel.setAlignmentX(Component.LEFT_ALIGNMENT);
+            add(usernameLabel);
+        
+            imageLabel.setIcon(ImageLoader.getInstance().getPlaceholder(IMAGE_WIDTH, IMAGE_HEIGHT));
+            imageLabel.setAlignmentX(Component.LEFT_ALIGNMENT);
+            imageLabel.setPreferredSize(new Dimension(IMAGE_WIDTH, IMAGE_HEIGHT));
+            imageLabel.setBorder(BorderFactory.createLineBorder(Color.LIGHT_GRAY));
+            add(imageLabel);
+        
+            captionLabel.setAlignmentX(Component.LEFT_ALIGNMENT);
+            add(captionLabel);
+        
+            likesLabel.setAlignmentX(Component.LEFT_ALIGNMENT);
+            add(likesLabel);
+        
+            timeLabel.setAlignmentX(Component.LEFT_ALIGNMENT);
+            timeLabel.setFont(new Font("Arial", Font.ITALIC, 10));
+            add(timeLabel);
+        
+            likeButton.setAlignmentX(Component.LEFT_ALIGNMENT);
+            likeButton.setBackground(LIKE_BUTTON_COLOR);
+            likeButton.setOpaque(true);
+            likeButton.setBorderPainted(false);
+            add(likeButton);
+        }
         
-        return picturePanel;
+        @Override
+        public Component getListCellRendererComponent(JList<? extends Picture> list, Picture picture, int index,
+                                                      boolean isSelected, boolean cellHasFocus) {
+            usernameLabel.setText(picture.getUsername());
+            captionLabel.setText(picture.getCaption());
+            likesLabel.setText("Likes: " + picture.getLikesCount());
+            timeLabel.setText(getTimeAgo(picture.getTimestamp()));
+        
+            BufferedImage image = ImageLoader.getInstance().getForCell(
+                    picture.getImagePath(), IMAGE_WIDTH, IMAGE_HEIGHT, HomeView.this, list::repaint);
+            imageLabel.setIcon(image != null
+                    ? new ImageIcon(image)
+                    : ImageLoader.getInstance().getPlaceholder(IMAGE_WIDTH, IMAGE_HEIGHT));
+            return this;
+        }
     }
     
     /**
@@ -207,9 +299,9 @@ public class HomeView extends BaseView {
         JButton likeButton = new JButton("❤ Like");
         likeButton.addActionListener(e -> {
             if (sessionController.isLoggedIn()) {
-                pictureController.likePicture(
+                onEdt(pictureController.likePictureAsync(
                         sessionController.getCurrentUser().getUsername(),
-                        picture.getImageId());
+                        picture.getImageId()), ignored -> { });
                 likesLabel.setText("Likes: " + (picture.getLikesCount() + 1));
             }
         });
@@ -247,9 +339,11 @@ public class HomeView extends BaseView {
     }
     
     /**
-     * Displays a message when user is not logged in
+     * Creates the message shown when user is not logged in
+     * 
+     * @return a panel containing the message
      */
-    private void displayLoginPrompt() {
+    private JPanel createLoginPrompt() {
         JPanel messagePanel = new JPanel(new BorderLayout());
         messagePanel.setBorder(BorderFactory.createEmptyBorder(50, 20, 50, 20));
         
@@ -263,13 +357,15 @@ public class HomeView extends BaseView {
         messagePanel.add(messageLabel, BorderLayout.CENTER);
         messagePanel.add(signInButton, BorderLayout.SOUTH);
         
-        contentPanel.add(messagePanel);
+        return messagePanel;
     }
     
     /**
-     * Displays a message when feed is empty
+     * Creates the message shown when feed is empty
+     * 
+     * @return a panel containing the message
      */
-    private void displayEmptyFeedMessage() {
+    private JPanel createEmptyFeedMessage() {
         JPanel messagePanel = new JPanel(new BorderLayout());
         messagePanel.setBorder(BorderFactory.createEmptyBorder(50, 20, 50, 20));
         
@@ -283,6 +379,6 @@ public class HomeView extends BaseView {
         messagePanel.add(messageLabel, BorderLayout.CENTER);
         messagePanel.add(exploreButton, BorderLayout.SOUTH);
         
-        contentPanel.add(messagePanel);
+        return messagePanel;
     }
 }
\ No newline at end of file
@@ -3,6 +3,7 @@ package com.quackstagram.view;
 import com.quackstagram.controller.PictureController;
 import com.quackstagram.controller.SessionController;
 import com.quackstagram.util.ImageFilterUtil;
+import com.quackstagram.util.ImageLoader;
 import com.quackstagram.controller.NavigationController;
 
 import javax.imageio.ImageIO;
@@ -13,19 +14,33 @@ import java.awt.event.ActionEvent;
 import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 /**
  * View for uploading new images.
+ * Filters are previewed on a screen-sized proxy of the selected image;
+ * the full-resolution image is only decoded and filtered when it is posted.
  */
 public class ImageUploadView extends BaseView {
+    private static final int PREVIEW_WIDTH = WIDTH - 60;
+    private static final int PREVIEW_HEIGHT = HEIGHT / 3 - 20;
+    private static final int MAX_RADIUS = 10;
+    
     private final PictureController pictureController;
     private JLabel imagePreviewLabel;
     private JTextArea captionTextArea;
     private File selectedImageFile;
-    private BufferedImage originalImage;
-    private BufferedImage filteredImage;
+    private BufferedImage previewSource;
     private JComboBox<String> filterComboBox;
     private String currentFilter = "None";
+    private final List<String> stackedFilters = new ArrayList<>();
+    private JLabel stackLabel;
+    private JButton saveButton;
+    private int radius = ImageFilterUtil.DEFAULT_RADIUS;
 
     /**
      * Constructor for ImageUploadView
@@ -94,6 +109,42 @@ public class ImageUploadView extends BaseView {
             
             contentPanel.add(controlPanel);
             
+            JPanel stackPanel = new JPanel(new FlowLayout(FlowLayout.CENTER));
+            stackPanel.setMaximumSize(new Dimension(WIDTH - 20, 40));
+            stackPanel.setAlignmentX(Component.CENTER_ALIGNMENT);
+            
+            JButton stackButton = new JButton("Stack");
+            stackButton.setToolTipText("Keep the selected filter and add another on top of it");
+            stackButton.addActionListener(e -> stackCurrentFilter());
+            stackPanel.add(stackButton);
+            
+            JButton clearButton = new JButton("Clear");
+            clearButton.addActionListener(e -> clearStackedFilters());
+            stackPanel.add(clearButton);
+            
+            stackLabel = new JLabel();
+            stackPanel.add(stackLabel);
+            updateStackLabel();
+            
+            contentPanel.add(stackPanel);
+            
+            JPanel radiusPanel = new JPanel(new FlowLayout(FlowLayout.CENTER));
+            radiusPanel.setMaximumSize(new Dimension(WIDTH - 20, 40));
+            radiusPanel.setAlignmentX(Component.CENTER_ALIGNMENT);
+            
+            radiusPanel.add(new JLabel("Radius:"));
+            
+            JSlider radiusSlider = new JSlider(1, MAX_RADIUS, radius);
+            radiusSlider.setPreferredSize(new Dimension(WIDTH / 2, 30));
+            radiusSlider.setToolTipText("Strength of Blur and Sharpen");
+            radiusSlider.addChangeListener(e -> {
+                radius = radiusSlider.getValue();
+                applyCurrentFilter();
+            });
+            radiusPanel.add(radiusSlider);
+            
+            contentPanel.add(radiusPanel);
+            
             contentPanel.add(Box.createVerticalStrut(10));
             
             JPanel captionPanel = new JPanel();
@@ -124,7 +175,7 @@ public class ImageUploadView extends BaseView {
             saveButtonPanel.setMaximumSize(new Dimension(WIDTH - 20, 40));
             saveButtonPanel.setAlignmentX(Component.CENTER_ALIGNMENT);
             
-            JButton saveButton = new JButton("Post Image");
+            saveButton = new JButton("Post Image");
             saveButton.addActionListener(this::handleImagePost);
             saveButtonPanel.add(saveButton);
             
@@ -152,36 +203,71 @@ public class ImageUploadView extends BaseView {
     }
     
     /**
-     * Applies the currently selected filter to the image
+     * Keeps the form as the user left it; it shows no stored data that could change
+     */
+    @Override
+    protected void applyUpdates() {
+    }
+    
+    /**
+     * Applies the stacked filters and then the currently selected filter to the preview
      */
     private void applyCurrentFilter() {
-        if (originalImage == null) {
+        if (previewSource == null) {
             return;
         }
         
-        filteredImage = ImageFilterUtil.applyFilter(originalImage, currentFilter);
+        updatePreview(ImageFilterUtil.applyFilters(previewSource, getSelectedFilters(), radius));
+    }
+    
+    /**
+     * Gets the filters to apply, in order
+     * 
+     * @return the stacked filters followed by the selected filter
+     */
+    private List<String> getSelectedFilters() {
+        List<String> filters = new ArrayList<>(stackedFilters);
+        filters.add(currentFilter);
+        return filters;
+    }
+    
+    /**
+     * Keeps the selected filter in the stack so another filter can be chosen on top of it
+     */
+    private void stackCurrentFilter() {
+        if ("None".equals(currentFilter)) {
+            return;
+        }
         
-        updatePreview(filteredImage);
+        stackedFilters.add(currentFilter);
+        updateStackLabel();
+        // Selecting None re-applies the chain with the stacked filter kept
+        filterComboBox.setSelectedItem("None");
+    }
+    
+    /**
+     * Removes every stacked filter
+     */
+    private void clearStackedFilters() {
+        stackedFilters.clear();
+        updateStackLabel();
+        applyCurrentFilter();
+    }
+    
+    /**
+     * Shows the stacked filters next to the stack buttons
+     */
+    private void updateStackLabel() {
+        stackLabel.setText(stackedFilters.isEmpty() ? "No stacked filters" : String.join(" + ", stackedFilters));
     }
 
     /**
      * Updates the preview label with the provided image
      * 
-     * @param image the image to display
+     * @param image the preview-sized image to display
      */
     private void updatePreview(BufferedImage image) {
-        int previewWidth = WIDTH - 60;
-        int previewHeight = HEIGHT / 3 - 20;
-        
-        double widthRatio = (double) previewWidth / image.getWidth();
-        double heightRatio = (double) previewHeight / image.getHeight();
-        double scale = Math.min(widthRatio, heightRatio);
-        
-        int scaledWidth = (int) (image.getWidth() * scale);
-        int scaledHeight = (int) (image.getHeight() * scale);
-        
-        Image scaledImage = image.getScaledInstance(scaledWidth, scaledHeight, Image.SCALE_SMOOTH);
-        imagePreviewLabel.setIcon(new ImageIcon(scaledImage));
+        imagePreviewLabel.setIcon(new ImageIcon(image));
         imagePreviewLabel.setText("");
     }
 
@@ -203,8 +289,10 @@ public class ImageUploadView extends BaseView {
             selectedImageFile = fileChooser.getSelectedFile();
             
             try {
-                originalImage = ImageIO.read(selectedImageFile);
+                previewSource = ImageLoader.loadFitted(selectedImageFile, PREVIEW_WIDTH, PREVIEW_HEIGHT);
                 
+                stackedFilters.clear();
+                updateStackLabel();
                 filterComboBox.setSelectedItem("None");
                 currentFilter = "None";
                 
@@ -215,19 +303,20 @@ public class ImageUploadView extends BaseView {
                         "Error", JOptionPane.ERROR_MESSAGE);
                 imagePreviewLabel.setIcon(null);
                 imagePreviewLabel.setText("Error loading image");
-                originalImage = null;
-                filteredImage = null;
+                selectedImageFile = null;
+                previewSource = null;
             }
         }
     }
     
     /**
-     * Handles image post button click
+     * Handles image post button click. The full-resolution image is decoded,
+     * filtered and saved in the background; the button stays disabled until then.
      * 
      * @param event the action event
      */
     private void handleImagePost(ActionEvent event) {
-        if (originalImage == null) {
+        if (selectedImageFile == null) {
             JOptionPane.showMessageDialog(this, 
                     "Please select an image to upload", 
                     "No Image Selected", JOptionPane.WARNING_MESSAGE);
@@ -238,42 +327,89 @@ public class ImageUploadView extends BaseView {
         if (caption.trim().isEmpty()) {
             caption = "No caption";
         }
+        String postedCaption = caption;
+        String username = sessionController.getCurrentUser().getUsername();
+        File imageFile = selectedImageFile;
+        List<String> filters = getSelectedFilters();
+        int previewWidth = previewSource.getWidth();
+        int previewRadius = radius;
         
+        saveButton.setEnabled(false);
+        setCursor(Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR));
+        
+        CompletableFuture<Boolean> upload = CompletableFuture
+                .supplyAsync(() -> filterFullImage(imageFile, filters, previewWidth, previewRadius))
+                .thenCompose(filteredImage -> pictureController.savePictureAsync(username, filteredImage, postedCaption));
+        onEdt(upload.handle((success, error) -> {
+            if (error == null) {
+                return success ? null : "Failed to upload image. Please try again.";
+            }
+            Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+            if (cause instanceof UncheckedIOException) {
+                cause = cause.getCause();
+            }
+            return "Error processing image: " + cause.getMessage();
+        }), this::finishImagePost);
+    }
+    
+    /**
+     * Decodes and filters the image to post at full resolution.
+     * Runs off the Event Dispatch Thread.
+     * 
+     * @param imageFile the selected image file
+     * @param filters the filters to apply, in order
+     * @param previewWidth the width of the preview the filters were chosen on
+     * @param previewRadius the radius chosen on the preview
+     * @return the filtered image
+     */
+    private static BufferedImage filterFullImage(File imageFile, List<String> filters, int previewWidth, int previewRadius) {
         try {
-            File tempFile = File.createTempFile("filtered_", ".png");
-            ImageIO.write(filteredImage, "png", tempFile);
-            
-            boolean success = pictureController.savePicture(
-                    sessionController.getCurrentUser().getUsername(), 
-                    tempFile, 
-                    caption);
-            
-            if (success) {
-                JOptionPane.showMessageDialog(this, 
-                        "Image uploaded successfully!", 
-                        "Success", JOptionPane.INFORMATION_MESSAGE);
-                
-                selectedImageFile = null;
-                originalImage = null;
-                filteredImage = null;
-                imagePreviewLabel.setIcon(null);
-                imagePreviewLabel.setText("No image selected");
-                captionTextArea.setText("");
-                filterComboBox.setSelectedItem("None");
-                
-                navigateTo("home");
-            } else {
-                JOptionPane.showMessageDialog(this, 
-                        "Failed to upload image. Please try again.", 
-                        "Error", JOptionPane.ERROR_MESSAGE);
+            // Only the posted image is filtered at full resolution
+            BufferedImage fullImage = ImageIO.read(imageFile);
+            if (fullImage == null) {
+                throw new IOException("Unsupported image format");
             }
-            
-            tempFile.delete();
+            // The radius is chosen on the preview, so scale it up to look the same at full size
+            int fullRadius = Math.max(1, Math.round(previewRadius * (float) fullImage.getWidth() / previewWidth));
+            return ImageFilterUtil.applyFilters(fullImage, filters, fullRadius);
         } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+            
+    /**
+     * Resets the form and shows the home feed once an upload has finished
+     * 
+     * @param errorMessage why the upload failed, or null if it succeeded
+     */
+    private void finishImagePost(String errorMessage) {
+        setCursor(Cursor.getDefaultCursor());
+        saveButton.setEnabled(true);
+            
+        if (errorMessage != null) {
             JOptionPane.showMessageDialog(this, 
-                    "Error processing image: " + e.getMessage(), 
+                    errorMessage, 
                     "Error", JOptionPane.ERROR_MESSAGE);
+            return;
         }
+                
+        JOptionPane.showMessageDialog(this, 
+                "Image uploaded successfully!", 
+                "Success", JOptionPane.INFORMATION_MESSAGE);
+                
+        selectedImageFile = null;
+        previewSource = null;
+        imagePreviewLabel.setIcon(null);
+        imagePreviewLabel.setText("No image selected");
+        captionTextArea.setText("");
+        stackedFilters.clear();
+        updateStackLabel();
+        filterComboBox.setSelectedItem("None");
+        
+        // The new picture belongs at the top of these views
+        navigationController.markStale("explore");
+        navigationController.markStale("profile");
+        navigateTo("home");
     }
     
     /**
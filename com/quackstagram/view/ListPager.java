@@ -0,0 +1,104 @@
+package com.quackstagram.view;
+
+import com.quackstagram.model.Page;
+
+import javax.swing.*;
+import javax.swing.event.ChangeEvent;
+import javax.swing.event.ChangeListener;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Loads the next page of a list when the user scrolls within a few cells of its end,
+ * and keeps loading until the visible area is filled. Listens to the viewport, so it
+ * reacts to scrolling, resizing and new cells alike. Pages are fetched in the
+ * background and appended on the Event Dispatch Thread, one at a time.
+ * 
+ * @param <T> the type of the list entries
+ */
+final class ListPager<T> implements ChangeListener {
+    private final JList<?> list;
+    private final int prefetchCells;
+    private final Supplier<CompletableFuture<Page<T>>> fetchNextPage;
+    private final Consumer<Page<T>> appendPage;
+    private boolean hasMore;
+    private boolean loading;
+    // Bumped on every restart, so pages requested before it are dropped
+    private int generation;
+    
+    /**
+     * Constructor for ListPager
+     * 
+     * @param list the list whose model the pages are appended to
+     * @param scrollPane the scroll pane showing the list
+     * @param prefetchCells how close to the last cell the next page is requested
+     * @param fetchNextPage starts fetching the page after those already appended
+     * @param appendPage appends a fetched page to the list, called on the Event Dispatch Thread
+     */
+    ListPager(JList<?> list, JScrollPane scrollPane, int prefetchCells,
+              Supplier<CompletableFuture<Page<T>>> fetchNextPage, Consumer<Page<T>> appendPage) {
+        this.list = list;
+        this.prefetchCells = prefetchCells;
+        this.fetchNextPage = fetchNextPage;
+        this.appendPage = appendPage;
+        scrollPane.getViewport().addChangeListener(this);
+    }
+    
+    /**
+     * Starts paging again from the first page, after the list was cleared
+     */
+    void restart() {
+        generation++;
+        loading = false;
+        hasMore = true;
+        loadIfNeeded();
+    }
+    
+    /**
+     * Stops paging, dropping any page still being fetched
+     */
+    void stop() {
+        generation++;
+        loading = false;
+        hasMore = false;
+    }
+    
+    @Override
+    public void stateChanged(ChangeEvent e) {
+        loadIfNeeded();
+    }
+    
+    private void loadIfNeeded() {
+        if (!hasMore || loading) {
+            return;
+        }
+        
+        int size = list.getModel().getSize();
+        if (list.getLastVisibleIndex() < size - prefetchCells) {
+            return;
+        }
+        
+        loading = true;
+        int requested = generation;
+        fetchNextPage.get().whenComplete((page, error) -> SwingUtilities.invokeLater(() -> {
+            if (requested != generation) {
+                return;
+            }
+            loading = false;
+            if (error != null) {
+                // The next scroll tries again
+                Throwable cause = error instanceof CompletionException && error.getCause() != null
+                        ? error.getCause() : error;
+                System.err.println("Error loading page: " + cause.getMessage());
+                return;
+            }
+            
+            appendPage.accept(page);
+            hasMore = page.hasMore();
+            // The new cells may still not reach the bottom of the viewport
+            SwingUtilities.invokeLater(this::loadIfNeeded);
+        }));
+    }
+}
\ No newline at end of file
@@ -2,6 +2,7 @@ package com.quackstagram.view;
 
 import com.quackstagram.controller.NotificationController;
 import com.quackstagram.controller.SessionController;
+import com.quackstagram.model.FeedCursor;
 import com.quackstagram.model.Notification;
 import com.quackstagram.model.NotificationType;
 import com.quackstagram.controller.NavigationController;
@@ -9,15 +10,31 @@ import com.quackstagram.controller.NavigationController;
 import javax.swing.*;
 import java.awt.*;
 import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.time.LocalDateTime;
 
 /**
  * View for displaying user notifications.
  */
 public class NotificationsView extends BaseView {
+    private static final int PAGE_SIZE = 20;
+    
     private final NotificationController notificationController;
     private JPanel contentPanel;
+    private JButton olderButton;
+    private FeedCursor nextCursor;
+    // Newest timestamp shown, and the notifications shown with exactly that timestamp
+    private LocalDateTime newestShown;
+    private final Set<String> shownAtNewest = new HashSet<>();
+    // The panel showing each notification, by aggregation key, so a merged one can be replaced
+    private final Map<String, JPanel> panelsByKey = new HashMap<>();
+    // Counts the requests made, so only the answer to the latest one is shown
+    private int requestNumber;
 
     /**
      * Constructor for NotificationsView
@@ -73,27 +90,185 @@ public class NotificationsView extends BaseView {
     }
     
     /**
-     * Loads notifications for the current user
+     * Adds the notifications received since the list was loaded at its top, and marks
+     * them as read. A notification that was merged with new ones moves to the top with
+     * its new count.
+     */
+    @Override
+    protected void applyUpdates() {
+        if (!sessionController.isLoggedIn() || newestShown == null) {
+            refreshView();
+            return;
+        }
+        
+        int request = ++requestNumber;
+        onEdt(notificationController.getNotificationsAsync(
+                sessionController.getCurrentUser().getUsername(), null, PAGE_SIZE), page -> {
+            if (request != requestNumber) {
+                return;
+            }
+            List<Notification> notifications = new ArrayList<>();
+            for (Notification notification : page.getItems()) {
+                if (notification.getTimestamp().isBefore(newestShown)) {
+                    break;
+                }
+                if (!notification.getTimestamp().equals(newestShown)
+                        || !shownAtNewest.contains(shownKey(notification))) {
+                    notifications.add(notification);
+                }
+            }
+            
+            // A page of nothing but new notifications may leave a gap between them and those shown
+            if (notifications.size() == page.getItems().size() && page.hasMore()) {
+                refreshView();
+                return;
+            }
+            if (notifications.isEmpty()) {
+                return;
+            }
+        
+            for (int i = 0; i < notifications.size(); i++) {
+                Notification notification = notifications.get(i);
+                JPanel replaced = panelsByKey.remove(notification.getAggregationKey());
+                if (replaced != null) {
+                    contentPanel.remove(replaced);
+                }
+                contentPanel.add(createNotificationPanel(notification), i);
+            }
+            recordShown(notifications);
+            markShownAsRead();
+        
+            contentPanel.revalidate();
+            contentPanel.repaint();
+        });
+    }
+    
+    /**
+     * Loads the first page of notifications for the current user and marks them as read.
+     * They are read in the background and added once they arrive.
      */
     private void loadNotifications() {
+        newestShown = null;
+        shownAtNewest.clear();
+        panelsByKey.clear();
+        olderButton = null;
+        nextCursor = null;
+        int request = ++requestNumber;
+        
         if (!sessionController.isLoggedIn()) {
             displayLoginPrompt();
             return;
         }
         
-        List<Notification> notifications = notificationController.getNotifications(
-                sessionController.getCurrentUser().getUsername());
+        onEdt(notificationController.getNotificationsAsync(sessionController.getCurrentUser().getUsername(),
+                null, PAGE_SIZE), page -> {
+            if (request != requestNumber) {
+                return;
+            }
         
-        if (notifications.isEmpty()) {
-            displayEmptyNotificationsMessage();
+            if (page.getItems().isEmpty()) {
+                displayEmptyNotificationsMessage();
+                navigationController.showUnreadCount(0);
+            } else {
+                for (Notification notification : page.getItems()) {
+                    contentPanel.add(createNotificationPanel(notification));
+                }
+                recordShown(page.getItems());
+                showOlderButton(page.getNextCursor());
+                markShownAsRead();
+            }
+            contentPanel.revalidate();
+            contentPanel.repaint();
+        });
+    }
+    
+    /**
+     * Appends the next page of older notifications
+     */
+    private void loadOlderNotifications() {
+        JButton button = olderButton;
+        button.setEnabled(false);
+        
+        onEdt(notificationController.getNotificationsAsync(sessionController.getCurrentUser().getUsername(),
+                nextCursor, PAGE_SIZE), page -> {
+            // The list was reloaded meanwhile
+            if (button != olderButton) {
+                return;
+            }
+            
+            contentPanel.remove(button);
+            for (Notification notification : page.getItems()) {
+                // Shown already if it moved up after being merged with a newer one
+                if (!panelsByKey.containsKey(notification.getAggregationKey())) {
+                    contentPanel.add(createNotificationPanel(notification));
+                }
+            }
+            showOlderButton(page.getNextCursor());
+            
+            contentPanel.revalidate();
+            contentPanel.repaint();
+        });
+    }
+    
+    /**
+     * Puts the button that loads older notifications at the end of the list
+     * 
+     * @param cursor the position after the notifications shown, or null if there are no more
+     */
+    private void showOlderButton(FeedCursor cursor) {
+        nextCursor = cursor;
+        if (olderButton != null) {
+            contentPanel.remove(olderButton);
+            olderButton = null;
+        }
+        if (cursor == null) {
             return;
         }
         
+        olderButton = new JButton("Show older");
+        olderButton.setAlignmentX(Component.CENTER_ALIGNMENT);
+        olderButton.addActionListener(e -> loadOlderNotifications());
+        contentPanel.add(olderButton);
+    }
+    
+    /**
+     * Marks everything up to the newest notification shown as read, and shows how
+     * many notifications are still unread
+     */
+    private void markShownAsRead() {
+        onEdt(notificationController.markReadAsync(sessionController.getCurrentUser().getUsername(), newestShown),
+                navigationController::showUnreadCount);
+    }
+    
+    /**
+     * Moves the point from which updates are fetched past notifications now on screen
+     * 
+     * @param notifications the notifications just added
+     */
+    private void recordShown(List<Notification> notifications) {
         for (Notification notification : notifications) {
-            contentPanel.add(createNotificationPanel(notification));
+            LocalDateTime timestamp = notification.getTimestamp();
+            if (newestShown == null || timestamp.isAfter(newestShown)) {
+                newestShown = timestamp;
+                shownAtNewest.clear();
+            }
+            if (timestamp.equals(newestShown)) {
+                shownAtNewest.add(shownKey(notification));
+            }
         }
     }
     
+    /**
+     * Identifies a notification as shown, including its count, so that one merged
+     * with more notifications within the same second still counts as new
+     * 
+     * @param notification the notification
+     * @return the key it is recorded under
+     */
+    private String shownKey(Notification notification) {
+        return notification.getAggregationKey() + "#" + notification.getCount();
+    }
+    
     /**
      * Creates a panel for displaying a notification
      * 
@@ -133,6 +308,7 @@ public class NotificationsView extends BaseView {
         
         panel.add(messagePanel, BorderLayout.CENTER);
         
+        panelsByKey.put(notification.getAggregationKey(), panel);
         return panel;
     }
     
@@ -144,20 +320,41 @@ public class NotificationsView extends BaseView {
      */
     private String formatNotificationMessage(Notification notification) {
         String message;
+        String senders = formatSenders(notification);
         
         if (notification.getType() == NotificationType.LIKE) {
-            message = notification.getSenderUsername() + " liked your picture";
+            message = senders + " liked your picture";
         } else if (notification.getType() == NotificationType.FOLLOW) {
-            message = notification.getSenderUsername() + " followed you";
+            message = senders + " followed you";
         } else if (notification.getType() == NotificationType.COMMENT) {
-            message = notification.getSenderUsername() + " commented on your picture";
+            message = senders + " commented on your picture";
         } else {
-            message = "You have a new notification from " + notification.getSenderUsername();
+            message = "You have a new notification from " + senders;
         }
         
         return message;
     }
     
+    /**
+     * Names the sender of a notification, as "X and Y" or "X and N others" when
+     * several notifications were merged into it
+     * 
+     * @param notification the notification
+     * @return the senders part of the message
+     */
+    private String formatSenders(Notification notification) {
+        int others = notification.getCount() - 1;
+        List<String> recentSenders = notification.getRecentSenders();
+        
+        if (others <= 0) {
+            return notification.getSenderUsername();
+        }
+        if (others == 1 && recentSenders.size() == 2) {
+            return recentSenders.get(0) + " and " + recentSenders.get(1);
+        }
+        return notification.getSenderUsername() + " and " + others + " other" + (others > 1 ? "s" : "");
+    }
+    
     /**
      * Formats timestamp as "X days/hours/minutes ago"
      * 
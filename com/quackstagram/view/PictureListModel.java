@@ -0,0 +1,94 @@
+package com.quackstagram.view;
+
+import com.quackstagram.model.FeedCursor;
+import com.quackstagram.model.Page;
+import com.quackstagram.model.Picture;
+
+import javax.swing.*;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * List model of a newest-first picture feed that can be brought up to date in place,
+ * so a view keeps its list, scroll position and loaded pages when it is shown again.
+ */
+final class PictureListModel extends DefaultListModel<Picture> {
+    
+    /**
+     * Inserts the pictures posted since the newest one in the list
+     * 
+     * @param firstPage the current first page of the feed
+     * @return false if the page holds nothing but newer pictures, so there may be a gap
+     *         between them and the list and it must be reloaded instead
+     */
+    boolean prependNewer(Page<Picture> firstPage) {
+        if (isEmpty()) {
+            return firstPage.getItems().isEmpty();
+        }
+        
+        Picture newest = get(0);
+        FeedCursor shown = FeedCursor.after(newest);
+        List<Picture> newer = new ArrayList<>();
+        for (Picture picture : firstPage.getItems()) {
+            if (picture.getImageId().equals(newest.getImageId())
+                    || shown.precedes(picture.getTimestamp(), picture.getImageId())) {
+                break;
+            }
+            newer.add(picture);
+        }
+        
+        if (newer.size() == firstPage.getItems().size() && firstPage.hasMore()) {
+            return false;
+        }
+        for (int i = 0; i < newer.size(); i++) {
+            add(i, newer.get(i));
+        }
+        return true;
+    }
+    
+    /**
+     * Sets the likes count of the pictures that were looked up and drops those found deleted.
+     * The list may have changed while the counts were read, so pictures that were not
+     * looked up are left alone. An empty map leaves the list as it is, since a failed
+     * lookup also returns one.
+     * 
+     * @param imageIds the IDs that were looked up
+     * @param likesCounts the likes count by image ID, without the deleted pictures
+     */
+    void applyLikesCounts(Collection<String> imageIds, Map<String, Integer> likesCounts) {
+        if (likesCounts.isEmpty()) {
+            return;
+        }
+        Set<String> lookedUp = new HashSet<>(imageIds);
+        for (int i = size() - 1; i >= 0; i--) {
+            Picture picture = get(i);
+            Integer likesCount = likesCounts.get(picture.getImageId());
+            if (!lookedUp.contains(picture.getImageId())) {
+                continue;
+            }
+            if (likesCount == null) {
+                remove(i);
+            } else if (likesCount != picture.getLikesCount()) {
+                picture.setLikesCount(likesCount);
+                fireContentsChanged(this, i, i);
+            }
+        }
+    }
+    
+    /**
+     * Gets the IDs of the pictures in the list
+     * 
+     * @return the image IDs in list order
+     */
+    List<String> getImageIds() {
+        List<String> imageIds = new ArrayList<>(size());
+        for (int i = 0; i < size(); i++) {
+            imageIds.add(get(i).getImageId());
+        }
+        return imageIds;
+    }
+}
\ No newline at end of file
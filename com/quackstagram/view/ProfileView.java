@@ -5,26 +5,34 @@ import com.quackstagram.controller.SessionController;
 import com.quackstagram.controller.UserController;
 import com.quackstagram.model.Picture;
 import com.quackstagram.model.User;
+import com.quackstagram.util.ImageLoader;
+import com.quackstagram.util.ThumbnailStore;
 import com.quackstagram.controller.NavigationController;
 
 import javax.swing.*;
 import java.awt.*;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * View for displaying a user's profile.
  */
 public class ProfileView extends BaseView {
     private static final int PROFILE_IMAGE_SIZE = 80;
-    private static final int GRID_IMAGE_SIZE = WIDTH / 3;
+    private static final int GRID_GAP = 5;
+    private static final int GRID_IMAGE_SIZE = WIDTH / 3 - 2 * GRID_GAP;
     
     private final UserController userController;
     private final PictureController pictureController;
     
     private User displayedUser;
-    private JPanel contentPanel;
+    private String requestedProfile;
+    private final PictureListModel gridModel = new PictureListModel();
+    private JList<Picture> gridList;
     private JPanel headerPanel;
     
     /**
@@ -37,10 +45,11 @@ public class ProfileView extends BaseView {
      */
     public ProfileView(SessionController sessionController, NavigationController navigationController,UserController userController, PictureController pictureController) {
         super(sessionController, navigationController);
+        ThumbnailStore.getInstance().registerSize(GRID_IMAGE_SIZE, GRID_IMAGE_SIZE);
+        ThumbnailStore.getInstance().registerSize(PROFILE_IMAGE_SIZE, PROFILE_IMAGE_SIZE);
         this.userController = userController;
         this.pictureController = pictureController;
         
-        this.contentPanel = new JPanel();
         this.headerPanel = new JPanel();
         
         setTitle("Profile");
@@ -62,19 +71,11 @@ public class ProfileView extends BaseView {
      */
     @Override
     public void refreshView() {
-        if (sessionController.getTemporaryData("viewOwnProfile") != null) {
-            sessionController.removeTemporaryData("viewOwnProfile");
-            if (sessionController.isLoggedIn()) {
-                displayProfile(sessionController.getCurrentUser().getUsername());
-                return;
-            }
-        }
+        String username = requestedProfile != null ? requestedProfile : takeRequestedProfile();
+        requestedProfile = null;
         
-        Object profileUsername = sessionController.getTemporaryData("profileUsername");
-        if (profileUsername != null && profileUsername instanceof String) {
-            sessionController.removeTemporaryData("profileUsername");
-            
-            displayProfile((String) profileUsername);
+        if (username != null) {
+            displayProfile(username);
         } else if (displayedUser != null) {
             displayProfile(displayedUser.getUsername());
         } else if (sessionController.isLoggedIn()) {
@@ -83,24 +84,120 @@ public class ProfileView extends BaseView {
     }
     
     /**
-     * Displays a user's profile
+     * Shows the profile requested by the navigation, which is new content rather
+     * than an update of the profile on screen
+     */
+    @Override
+    public void onShow() {
+        String username = takeRequestedProfile();
+        if (username != null && (displayedUser == null || !username.equals(displayedUser.getUsername()))) {
+            requestedProfile = username;
+            requireReload();
+        }
+        super.onShow();
+    }
+    
+    /**
+     * Updates the header counts and the picture grid of the profile on screen
+     */
+    @Override
+    protected void applyUpdates() {
+        if (displayedUser == null) {
+            refreshView();
+            return;
+        }
+        
+        String username = displayedUser.getUsername();
+        onEdt(userController.getUserAsync(username), user -> {
+            if (user == null || !isDisplayed(username)) {
+                return;
+            }
+            displayedUser = user;
+        
+            getContentPane().remove(headerPanel);
+            headerPanel = createProfileHeaderPanel(user);
+            add(headerPanel, BorderLayout.NORTH);
+        
+            revalidate();
+            repaint();
+        });
+        
+        onEdt(pictureController.getUserPicturesAsync(username), pictures -> {
+            if (!isDisplayed(username)) {
+                return;
+            }
+            // The grid is only replaced when pictures were added or removed
+            Map<String, Integer> likesCounts = new LinkedHashMap<>();
+            for (Picture picture : pictures) {
+                likesCounts.put(picture.getImageId(), picture.getLikesCount());
+            }
+            if (new ArrayList<>(likesCounts.keySet()).equals(gridModel.getImageIds())) {
+                gridModel.applyLikesCounts(likesCounts.keySet(), likesCounts);
+            } else {
+                gridModel.clear();
+                gridModel.addAll(pictures);
+            }
+        });
+    }
+    
+    /**
+     * Checks whether a profile is still the one on screen when its data arrives
+     * 
+     * @param username the username of the profile
+     * @return true if the profile is displayed
+     */
+    private boolean isDisplayed(String username) {
+        return displayedUser != null && displayedUser.getUsername().equals(username);
+    }
+    
+    /**
+     * Takes the profile the navigation asked for out of the session
+     * 
+     * @return the username of the requested profile, or null if none was requested
+     */
+    private String takeRequestedProfile() {
+        Object viewOwnProfile = sessionController.getTemporaryData("viewOwnProfile");
+        Object profileUsername = sessionController.getTemporaryData("profileUsername");
+        sessionController.removeTemporaryData("viewOwnProfile");
+        sessionController.removeTemporaryData("profileUsername");
+        
+        if (viewOwnProfile != null && sessionController.isLoggedIn()) {
+            return sessionController.getCurrentUser().getUsername();
+        }
+        return profileUsername instanceof String ? (String) profileUsername : null;
+    }
+    
+    /**
+     * Displays a user's profile once it has been loaded in the background
      * 
      * @param username the username of the user to display
      */
     public void displayProfile(String username) {
-        User user = userController.getUser(username);
-        if (user == null) {
-            return;
-        }
+        onEdt(userController.getUserAsync(username), user -> {
+            if (user != null) {
+                showProfile(user);
+            }
+        });
+    }
         
+    /**
+     * Replaces the content of the view with a loaded profile
+     * 
+     * @param user the user to display
+     */
+    private void showProfile(User user) {
         this.displayedUser = user;
         
+        ImageLoader.getInstance().cancel(this);
         getContentPane().removeAll();
         
         headerPanel = createProfileHeaderPanel(user);
         
-        contentPanel = new JPanel(new GridLayout(0, 3, 5, 5));
-        JScrollPane scrollPane = new JScrollPane(contentPanel);
+        // One list serves every profile shown, so the model keeps a single listener
+        if (gridList == null) {
+            gridList = createPictureGrid();
+        }
+        JScrollPane scrollPane = new JScrollPane(gridList);
         scrollPane.setHorizontalScrollBarPolicy(JScrollPane.HORIZONTAL_SCROLLBAR_NEVER);
         scrollPane.setVerticalScrollBarPolicy(JScrollPane.VERTICAL_SCROLLBAR_AS_NEEDED);
         
@@ -114,6 +211,28 @@ public class ProfileView extends BaseView {
         repaint();
     }
     
+    /**
+     * Creates the grid of the user's pictures, which paints only the visible thumbnails
+     * 
+     * @return the list showing the grid model
+     */
+    private JList<Picture> createPictureGrid() {
+        JList<Picture> grid = new JList<>(gridModel);
+        ThumbnailCellRenderer.layoutAsGrid(grid, 3, GRID_IMAGE_SIZE + GRID_GAP);
+        grid.setCellRenderer(new ThumbnailCellRenderer(GRID_IMAGE_SIZE, GRID_GAP, this));
+        grid.setFocusable(false);
+        grid.addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                int index = grid.locationToIndex(e.getPoint());
+                if (index >= 0 && grid.getCellBounds(index, index).contains(e.getPoint())) {
+                    displayFullImage(gridModel.get(index));
+                }
+            }
+        });
+        return grid;
+    }
+    
     /**
      * Creates the profile header panel with user info
      * 
@@ -128,9 +247,9 @@ public class ProfileView extends BaseView {
         JPanel topHeaderPanel = new JPanel(new BorderLayout(10, 0));
         topHeaderPanel.setBackground(new Color(249, 249, 249));
         
-        ImageIcon profileIcon = new ImageIcon(new ImageIcon("img/storage/profile/" + user.getUsername() + ".png")
-                .getImage().getScaledInstance(PROFILE_IMAGE_SIZE, PROFILE_IMAGE_SIZE, Image.SCALE_SMOOTH));
-        JLabel profileImage = new JLabel(profileIcon);
+        JLabel profileImage = new JLabel();
+        ImageLoader.getInstance().loadInto(profileImage, "img/storage/profile/" + user.getUsername() + ".png",
+                                           PROFILE_IMAGE_SIZE, PROFILE_IMAGE_SIZE, this);
         profileImage.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
         topHeaderPanel.add(profileImage, BorderLayout.WEST);
         
@@ -149,15 +268,25 @@ public class ProfileView extends BaseView {
         if (isCurrentUser) {
             followButton = new JButton("Edit Profile");
         } else if (sessionController.isLoggedIn()) {
-            boolean isFollowing = userController.getFollowing(sessionController.getCurrentUser().getUsername())
-                                               .contains(user.getUsername());
-            followButton = new JButton(isFollowing ? "Following" : "Follow");
+            JButton button = new JButton("Follow");
+            followButton = button;
+            // Enabled once the current state is known
+            button.setEnabled(false);
+            onEdt(userController.isFollowingAsync(sessionController.getCurrentUser().getUsername(), user.getUsername()),
+                    isFollowing -> {
+                        button.setText(isFollowing ? "Following" : "Follow");
+                        button.setEnabled(true);
+                    });
             
-            followButton.addActionListener(e -> {
-                if (!isFollowing) {
-                    userController.followUser(sessionController.getCurrentUser().getUsername(), user.getUsername());
-                    followButton.setText("Following");
-                }
+            button.addActionListener(e -> {
+                button.setEnabled(false);
+                String currentUsername = sessionController.getCurrentUser().getUsername();
+                onEdt(userController.toggleFollowAsync(currentUsername, user.getUsername()), isFollowing -> {
+                    button.setText(isFollowing ? "Following" : "Follow");
+                    button.setEnabled(true);
+                    // Older posts enter or leave the feed, which only a reload can show
+                    navigationController.invalidate("home");
+                });
             });
         } else {
             followButton = new JButton("Follow");
@@ -204,31 +333,18 @@ public class ProfileView extends BaseView {
     }
     
     /**
-     * Loads the user's pictures into the grid
+     * Loads the user's pictures into the grid in the background
      * 
      * @param username the username of the user
      */
     private void loadUserPictures(String username) {
-        contentPanel.removeAll();
-        
-        List<Picture> pictures = pictureController.getUserPictures(username);
-        for (Picture picture : pictures) {
-            ImageIcon imageIcon = new ImageIcon(new ImageIcon(picture.getImagePath())
-                    .getImage().getScaledInstance(GRID_IMAGE_SIZE, GRID_IMAGE_SIZE, Image.SCALE_SMOOTH));
-            JLabel imageLabel = new JLabel(imageIcon);
-            
-            imageLabel.addMouseListener(new MouseAdapter() {
-                @Override
-                public void mouseClicked(MouseEvent e) {
-                    displayFullImage(picture);
-                }
-            });
-            
-            contentPanel.add(imageLabel);
-        }
-        
-        contentPanel.revalidate();
-        contentPanel.repaint();
+        gridModel.clear();
+        onEdt(pictureController.getUserPicturesAsync(username), pictures -> {
+            if (isDisplayed(username)) {
+                gridModel.clear();
+                gridModel.addAll(pictures);
+            }
+        });
     }
     
     /**
@@ -253,10 +369,10 @@ public class ProfileView extends BaseView {
         JButton likeButton = new JButton("Like");
         likeButton.addActionListener(e -> {
             if (sessionController.isLoggedIn()) {
-                pictureController.likePicture(sessionController.getCurrentUser().getUsername(), 
-                                            picture.getImageId());
                 dialog.dispose();
-                refreshView();
+                onEdt(pictureController.likePictureAsync(sessionController.getCurrentUser().getUsername(),
+                                                         picture.getImageId()),
+                      ignored -> refreshView());
             }
         });
         
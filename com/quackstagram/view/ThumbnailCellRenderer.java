@@ -0,0 +1,68 @@
+package com.quackstagram.view;
+
+import com.quackstagram.model.Picture;
+import com.quackstagram.util.ImageLoader;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.ComponentAdapter;
+import java.awt.event.ComponentEvent;
+import java.awt.image.BufferedImage;
+
+/**
+ * Paints one square thumbnail of a picture grid. A single instance is reused as a
+ * stamp for every visible cell.
+ */
+final class ThumbnailCellRenderer extends JLabel implements ListCellRenderer<Picture> {
+    private final int size;
+    private final Object owner;
+    
+    /**
+     * Constructor for ThumbnailCellRenderer
+     * 
+     * @param size the width and height of the thumbnails
+     * @param gap the space left below and to the right of each thumbnail
+     * @param owner the view whose image loads the thumbnails belong to
+     */
+    ThumbnailCellRenderer(int size, int gap, Object owner) {
+        this.size = size;
+        this.owner = owner;
+        setBorder(BorderFactory.createEmptyBorder(0, 0, gap, gap));
+    }
+    
+    /**
+     * Lays a list out as a grid with a fixed number of columns, whose cells share
+     * the width of the viewport
+     * 
+     * @param list the list to lay out
+     * @param columns the number of thumbnails per row
+     * @param cellHeight the height of every row
+     */
+    static void layoutAsGrid(JList<Picture> list, int columns, int cellHeight) {
+        list.setLayoutOrientation(JList.HORIZONTAL_WRAP);
+        list.setVisibleRowCount(-1);
+        list.setFixedCellWidth(cellHeight);
+        list.setFixedCellHeight(cellHeight);
+        // The list tracks the viewport width, so this runs whenever the scroll bar comes or goes
+        list.addComponentListener(new ComponentAdapter() {
+            @Override
+            public void componentResized(ComponentEvent e) {
+                int cellWidth = Math.max(1, list.getWidth() / columns);
+                if (cellWidth != list.getFixedCellWidth()) {
+                    list.setFixedCellWidth(cellWidth);
+                }
+            }
+        });
+    }
+    
+    @Override
+    public Component getListCellRendererComponent(JList<? extends Picture> list, Picture picture, int index,
+                                                  boolean isSelected, boolean cellHasFocus) {
+        BufferedImage image = ImageLoader.getInstance().getForCell(
+                picture.getImagePath(), size, size, owner, list::repaint);
+        setIcon(image != null
+                ? new ImageIcon(image)
+                : ImageLoader.getInstance().getPlaceholder(size, size));
+        return this;
+    }
+}
\ No newline at end of file
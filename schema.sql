@@ -12,9 +12,14 @@ FLUSH PRIVILEGES;
 -- 3NF compliant
 
 -- Drop existing tables if they exist
+DROP TABLE IF EXISTS Blobs;
+DROP TABLE IF EXISTS ImageSequences;
+DROP TABLE IF EXISTS TrimmedTimelines;
+DROP TABLE IF EXISTS Timeline;
 DROP TABLE IF EXISTS FollowerHistory;
 DROP TABLE IF EXISTS Comments;
 DROP TABLE IF EXISTS Likes;
+DROP TABLE IF EXISTS NotificationsArchive;
 DROP TABLE IF EXISTS Notifications;
 DROP TABLE IF EXISTS Pictures;
 DROP TABLE IF EXISTS Follows;
@@ -26,7 +31,15 @@ CREATE TABLE Users (
     bio TEXT,
     passwordHash VARCHAR(255) NOT NULL,
     salt VARCHAR(50) NOT NULL,
-    profileImagePath VARCHAR(255) DEFAULT 'img/logos/DACS.png'
+    profileImagePath VARCHAR(255) DEFAULT 'img/logos/DACS.png',
+    -- Denormalized counters, maintained by the triggers in triggers.sql
+    postsCount INT NOT NULL DEFAULT 0,
+    followersCount INT NOT NULL DEFAULT 0,
+    followingCount INT NOT NULL DEFAULT 0,
+    -- Notifications newer than notificationsSeenAt are unread; the triggers keep
+    -- unreadNotifications counting them so the badge costs a primary key lookup
+    notificationsSeenAt DATETIME,
+    unreadNotifications INT NOT NULL DEFAULT 0
 );
 
 -- Create Pictures table
@@ -36,6 +49,9 @@ CREATE TABLE Pictures (
     imagePath VARCHAR(255) NOT NULL,
     caption TEXT,
     timestamp DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    -- Denormalized counters, maintained by the triggers in triggers.sql
+    likesCount INT NOT NULL DEFAULT 0,
+    commentsCount INT NOT NULL DEFAULT 0,
     FOREIGN KEY (username) REFERENCES Users(username) ON DELETE CASCADE
 );
 
@@ -50,18 +66,54 @@ CREATE TABLE Follows (
 );
 
 -- Create Notifications table
+-- Notifications of one type about one picture received on the same day share a row:
+-- inserting another hits uq_notifications_aggregate, and INSERT ... ON DUPLICATE KEY UPDATE
+-- adds it to aggregateCount. senderUsername and timestamp are those of the newest one,
+-- recentSenders holds the last few senders (NULL means senderUsername alone).
+-- Follows have no imageId and, since NULLs never collide, keep a row each.
+-- The table is partitioned by the month of bucketStart, which unlike timestamp never
+-- changes when a row is merged. archive_notification_partitions in triggers.sql moves
+-- months past retention to NotificationsArchive by dropping whole partitions.
+-- Partitioned tables cannot have foreign keys: the DAOs and triggers delete the
+-- notifications of deleted users and pictures instead.
 CREATE TABLE Notifications (
-    notificationId INT AUTO_INCREMENT PRIMARY KEY,
+    notificationId INT AUTO_INCREMENT,
     receiverUsername VARCHAR(50) NOT NULL,
     senderUsername VARCHAR(50) NOT NULL,
     imageId VARCHAR(100),
     timestamp DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP,
     type ENUM('LIKE', 'COMMENT', 'FOLLOW') NOT NULL,
-    FOREIGN KEY (receiverUsername) REFERENCES Users(username) ON DELETE CASCADE,
-    FOREIGN KEY (senderUsername) REFERENCES Users(username) ON DELETE CASCADE,
-    FOREIGN KEY (imageId) REFERENCES Pictures(imageId) ON DELETE SET NULL
+    bucketStart DATE NOT NULL,
+    aggregateCount INT NOT NULL DEFAULT 1,
+    recentSenders VARCHAR(255),
+    UNIQUE KEY uq_notifications_aggregate (receiverUsername, type, bucketStart, imageId),
+    -- Every unique key of a partitioned table must contain the partitioning column
+    PRIMARY KEY (notificationId, bucketStart),
+    -- Covers the keyset pages and the unread count, which read only these columns
+    INDEX idx_notifications_receiver (receiverUsername, timestamp, notificationId)
+)
+PARTITION BY RANGE COLUMNS (bucketStart) (
+    -- add_notification_partitions splits pmax into a partition per month up to the months ahead
+    PARTITION p2023_12 VALUES LESS THAN ('2024-01-01'),
+    PARTITION pmax VALUES LESS THAN (MAXVALUE)
 );
 
+-- Create NotificationsArchive table
+-- Compressed, with one index, as it is only read for exports and audits
+CREATE TABLE NotificationsArchive (
+    notificationId INT NOT NULL,
+    receiverUsername VARCHAR(50) NOT NULL,
+    senderUsername VARCHAR(50) NOT NULL,
+    imageId VARCHAR(100),
+    timestamp DATETIME NOT NULL,
+    type ENUM('LIKE', 'COMMENT', 'FOLLOW') NOT NULL,
+    bucketStart DATE NOT NULL,
+    aggregateCount INT NOT NULL,
+    recentSenders VARCHAR(255),
+    PRIMARY KEY (notificationId, bucketStart),
+    INDEX idx_archive_receiver (receiverUsername, bucketStart)
+) ROW_FORMAT=COMPRESSED;
+
 -- Create Likes table
 CREATE TABLE Likes (
     username VARCHAR(50) NOT NULL,
@@ -92,6 +144,47 @@ CREATE TABLE FollowerHistory (
     FOREIGN KEY (username) REFERENCES Users(username) ON DELETE CASCADE
 );
 
+-- Create Timeline table
+-- Materialized home feed: one row per picture per follower, written when the
+-- picture is posted. The primary key serves a feed page as one range scan.
+CREATE TABLE Timeline (
+    owner VARCHAR(50) NOT NULL,
+    timestamp DATETIME NOT NULL,
+    imageId VARCHAR(100) NOT NULL,
+    author VARCHAR(50) NOT NULL,
+    PRIMARY KEY (owner, timestamp, imageId),
+    INDEX idx_timeline_owner_author (owner, author),
+    FOREIGN KEY (owner) REFERENCES Users(username) ON DELETE CASCADE,
+    FOREIGN KEY (imageId) REFERENCES Pictures(imageId) ON DELETE CASCADE
+);
+
+-- Create TrimmedTimelines table
+-- Owners whose timeline dropped its oldest entries to stay within the cap. Their
+-- home feed continues with the join over Follows and Pictures once the timeline
+-- runs out; every other timeline is complete.
+CREATE TABLE TrimmedTimelines (
+    owner VARCHAR(50) PRIMARY KEY,
+    FOREIGN KEY (owner) REFERENCES Users(username) ON DELETE CASCADE
+);
+
+-- Create ImageSequences table
+-- Last image number allocated per user; pictures are named username_n. A single
+-- INSERT ... ON DUPLICATE KEY UPDATE increments it atomically for each upload.
+CREATE TABLE ImageSequences (
+    username VARCHAR(50) PRIMARY KEY,
+    lastId INT NOT NULL,
+    FOREIGN KEY (username) REFERENCES Users(username) ON DELETE CASCADE
+);
+
+-- Create Blobs table
+-- Uploaded images are stored once per content under img/blobs/, named by their
+-- SHA-256; Pictures.imagePath points at the blob. refCount is the number of
+-- pictures sharing the blob, and the file is deleted when it drops to zero.
+CREATE TABLE Blobs (
+    hash CHAR(64) PRIMARY KEY,
+    refCount INT NOT NULL
+);
+
 -- Insert test data
 
 -- Insert test users
@@ -160,24 +253,29 @@ INSERT INTO Comments (username, imageId, content, timestamp) VALUES
 ('Zara', 'Mystar_2', 'Extra protein!', '2023-12-17 20:07:00');
 
 -- Insert notifications
-INSERT INTO Notifications (receiverUsername, senderUsername, imageId, timestamp, type) VALUES
-('Lorin', 'Xylo', 'Lorin_1', '2023-12-17 19:40:00', 'LIKE'),
-('Lorin', 'Xylo', 'Lorin_2', '2023-12-17 19:41:00', 'LIKE'),
-('Lorin', 'Zara', 'Lorin_1', '2023-12-17 19:42:00', 'LIKE'),
-('Lorin', 'Mystar', 'Lorin_1', '2023-12-17 19:43:00', 'LIKE'),
-('Xylo', 'Lorin', 'Xylo_1', '2023-12-17 19:44:00', 'LIKE'),
-('Xylo', 'Lorin', 'Xylo_2', '2023-12-17 19:45:00', 'LIKE'),
-('Xylo', 'Mystar', 'Xylo_2', '2023-12-17 19:46:00', 'LIKE'),
-('Xylo', 'Zara', 'Xylo_2', '2023-12-17 19:47:00', 'LIKE'),
-('Mystar', 'Lorin', 'Mystar_1', '2023-12-17 19:48:00', 'LIKE'),
-('Mystar', 'Xylo', 'Mystar_1', '2023-12-17 19:49:00', 'LIKE'),
-('Mystar', 'Zara', 'Mystar_1', '2023-12-17 19:50:00', 'LIKE'),
-('Lorin', 'Xylo', 'Lorin_1', '2023-12-17 20:00:00', 'COMMENT'),
-('Lorin', 'Zara', 'Lorin_1', '2023-12-17 20:01:00', 'COMMENT'),
-('Lorin', 'Mystar', 'Lorin_2', '2023-12-17 20:02:00', 'COMMENT'),
-('Lorin', 'Xylo', NULL, '2023-12-17 18:30:00', 'FOLLOW'),
-('Mystar', 'Xylo', NULL, '2023-12-17 18:31:00', 'FOLLOW'),
-('Lorin', 'Zara', NULL, '2023-12-17 18:32:00', 'FOLLOW');
+INSERT INTO Notifications (receiverUsername, senderUsername, imageId, timestamp, type, bucketStart) VALUES
+('Lorin', 'Xylo', 'Lorin_1', '2023-12-17 19:40:00', 'LIKE', '2023-12-17'),
+('Lorin', 'Xylo', 'Lorin_2', '2023-12-17 19:41:00', 'LIKE', '2023-12-17'),
+('Lorin', 'Zara', 'Lorin_1', '2023-12-17 19:42:00', 'LIKE', '2023-12-17'),
+('Lorin', 'Mystar', 'Lorin_1', '2023-12-17 19:43:00', 'LIKE', '2023-12-17'),
+('Xylo', 'Lorin', 'Xylo_1', '2023-12-17 19:44:00', 'LIKE', '2023-12-17'),
+('Xylo', 'Lorin', 'Xylo_2', '2023-12-17 19:45:00', 'LIKE', '2023-12-17'),
+('Xylo', 'Mystar', 'Xylo_2', '2023-12-17 19:46:00', 'LIKE', '2023-12-17'),
+('Xylo', 'Zara', 'Xylo_2', '2023-12-17 19:47:00', 'LIKE', '2023-12-17'),
+('Mystar', 'Lorin', 'Mystar_1', '2023-12-17 19:48:00', 'LIKE', '2023-12-17'),
+('Mystar', 'Xylo', 'Mystar_1', '2023-12-17 19:49:00', 'LIKE', '2023-12-17'),
+('Mystar', 'Zara', 'Mystar_1', '2023-12-17 19:50:00', 'LIKE', '2023-12-17'),
+('Lorin', 'Xylo', 'Lorin_1', '2023-12-17 20:00:00', 'COMMENT', '2023-12-17'),
+('Lorin', 'Zara', 'Lorin_1', '2023-12-17 20:01:00', 'COMMENT', '2023-12-17'),
+('Lorin', 'Mystar', 'Lorin_2', '2023-12-17 20:02:00', 'COMMENT', '2023-12-17'),
+('Lorin', 'Xylo', NULL, '2023-12-17 18:30:00', 'FOLLOW', '2023-12-17'),
+('Mystar', 'Xylo', NULL, '2023-12-17 18:31:00', 'FOLLOW', '2023-12-17'),
+('Lorin', 'Zara', NULL, '2023-12-17 18:32:00', 'FOLLOW', '2023-12-17') AS new
+ON DUPLICATE KEY UPDATE
+    recentSenders = SUBSTRING_INDEX(CONCAT_WS(',', new.senderUsername, IFNULL(recentSenders, senderUsername)), ',', 3),
+    senderUsername = new.senderUsername,
+    aggregateCount = aggregateCount + 1,
+    timestamp = GREATEST(timestamp, new.timestamp);
 
 -- Insert follower history
 INSERT INTO FollowerHistory (username, followerCount, timestamp) VALUES
@@ -187,4 +285,16 @@ INSERT INTO FollowerHistory (username, followerCount, timestamp) VALUES
 ('Xylo', 1, '2023-12-17 18:33:00'),
 ('Xylo', 2, '2023-12-17 18:36:00'),
 ('Mystar', 1, '2023-12-17 18:37:00'),
-('Zara', 1, '2023-12-17 18:35:00');
\ No newline at end of file
+('Zara', 1, '2023-12-17 18:35:00');
+
+-- Fill the timelines for the test follows
+INSERT INTO Timeline (owner, timestamp, imageId, author)
+SELECT f.follower, p.timestamp, p.imageId, p.username
+FROM Follows f
+JOIN Pictures p ON p.username = f.followed;
+
+-- Continue each user's sequence after their test pictures
+INSERT INTO ImageSequences (username, lastId)
+SELECT username, MAX(CAST(SUBSTRING(imageId, LENGTH(username) + 2) AS UNSIGNED))
+FROM Pictures
+GROUP BY username;
\ No newline at end of file
@@ -2,6 +2,7 @@ DELIMITER $$
 
 -- Procedure: Create notification
 -- This procedure creates notifications for different user actions
+-- A like or comment on a picture that already has one from today is counted into that row
 CREATE PROCEDURE create_notification(
     IN p_receiver VARCHAR(50),
     IN p_sender VARCHAR(50),
@@ -11,8 +12,13 @@ CREATE PROCEDURE create_notification(
 BEGIN
     -- Don't create notification if user is interacting with their own content
     IF p_receiver <> p_sender THEN
-        INSERT INTO Notifications (receiverUsername, senderUsername, imageId, timestamp, type)
-        VALUES (p_receiver, p_sender, p_image_id, NOW(), p_type);
+        INSERT INTO Notifications (receiverUsername, senderUsername, imageId, timestamp, type, bucketStart)
+        VALUES (p_receiver, p_sender, p_image_id, NOW(), p_type, CURDATE()) AS new
+        ON DUPLICATE KEY UPDATE
+            recentSenders = SUBSTRING_INDEX(CONCAT_WS(',', new.senderUsername, IFNULL(recentSenders, senderUsername)), ',', 3),
+            senderUsername = new.senderUsername,
+            aggregateCount = aggregateCount + 1,
+            timestamp = GREATEST(timestamp, new.timestamp);
     END IF;
 END$$
 
@@ -26,14 +32,9 @@ BEGIN
     DECLARE likes_count INT;
     DECLARE comments_count INT;
     
-    -- Get like count
-    SELECT COUNT(*) INTO likes_count
-    FROM Likes
-    WHERE imageId = p_image_id;
-    
-    -- Get comment count
-    SELECT COUNT(*) INTO comments_count
-    FROM Comments
+    -- Read the like and comment counters
+    SELECT likesCount, commentsCount INTO likes_count, comments_count
+    FROM Pictures
     WHERE imageId = p_image_id;
     
     -- Calculate score (likes + comments*2)
@@ -53,6 +54,8 @@ BEGIN
     FROM Pictures
     WHERE imageId = NEW.imageId;
     
+    UPDATE Pictures SET likesCount = likesCount + 1 WHERE imageId = NEW.imageId;
+    
     -- Create notification using the stored procedure
     CALL create_notification(picture_owner, NEW.username, NEW.imageId, 'LIKE');
 END$$
@@ -63,22 +66,25 @@ CREATE TRIGGER after_follow_insert
 AFTER INSERT ON Follows
 FOR EACH ROW
 BEGIN
+    DECLARE follower_count INT;
+    DECLARE recent_picture VARCHAR(100);
+    DECLARE engagement_score INT DEFAULT 0;
+    
+    -- Keep the denormalized counters in step
+    UPDATE Users SET followingCount = followingCount + 1 WHERE username = NEW.follower;
+    UPDATE Users SET followersCount = followersCount + 1 WHERE username = NEW.followed;
+    
     -- Create a follow notification
     CALL create_notification(NEW.followed, NEW.follower, NULL, 'FOLLOW');
     
     -- Update follower history
-    -- First calculate current follower count
-    DECLARE follower_count INT;
-    
-    SELECT COUNT(*) INTO follower_count
-    FROM Follows
-    WHERE followed = NEW.followed;
+    -- Read the current follower count from the counter column
+    SELECT followersCount INTO follower_count
+    FROM Users
+    WHERE username = NEW.followed;
     
     -- Also get the engagement score of the user's most recent picture
     -- (just as an example of using the function)
-    DECLARE recent_picture VARCHAR(100);
-    DECLARE engagement_score INT DEFAULT 0;
-    
     -- Get most recent picture from the followed user
     SELECT imageId INTO recent_picture
     FROM Pictures
@@ -96,4 +102,232 @@ BEGIN
     VALUES (NEW.followed, follower_count, NOW());
 END$$
 
-DELIMITER ;
\ No newline at end of file
+-- Trigger: After a follow relationship is removed
+CREATE TRIGGER after_follow_delete
+AFTER DELETE ON Follows
+FOR EACH ROW
+BEGIN
+    UPDATE Users SET followingCount = GREATEST(followingCount - 1, 0) WHERE username = OLD.follower;
+    UPDATE Users SET followersCount = GREATEST(followersCount - 1, 0) WHERE username = OLD.followed;
+END$$
+
+-- Trigger: After a picture is posted
+CREATE TRIGGER after_picture_insert
+AFTER INSERT ON Pictures
+FOR EACH ROW
+BEGIN
+    UPDATE Users SET postsCount = postsCount + 1 WHERE username = NEW.username;
+END$$
+
+-- Trigger: After a picture is deleted
+CREATE TRIGGER after_picture_delete
+AFTER DELETE ON Pictures
+FOR EACH ROW
+BEGIN
+    UPDATE Users SET postsCount = GREATEST(postsCount - 1, 0) WHERE username = OLD.username;
+    -- Notifications has no foreign keys, being partitioned. Notifications about a
+    -- picture go to its owner, so the receiver narrows the delete to an index range
+    DELETE FROM Notifications WHERE receiverUsername = OLD.username AND imageId = OLD.imageId;
+END$$
+
+-- Trigger: After a like is removed
+CREATE TRIGGER after_like_delete
+AFTER DELETE ON Likes
+FOR EACH ROW
+BEGIN
+    UPDATE Pictures SET likesCount = GREATEST(likesCount - 1, 0) WHERE imageId = OLD.imageId;
+END$$
+
+-- Trigger: After a comment is added
+CREATE TRIGGER after_comment_insert
+AFTER INSERT ON Comments
+FOR EACH ROW
+BEGIN
+    UPDATE Pictures SET commentsCount = commentsCount + 1 WHERE imageId = NEW.imageId;
+END$$
+
+-- Trigger: After a comment is removed
+CREATE TRIGGER after_comment_delete
+AFTER DELETE ON Comments
+FOR EACH ROW
+BEGIN
+    UPDATE Pictures SET commentsCount = GREATEST(commentsCount - 1, 0) WHERE imageId = OLD.imageId;
+END$$
+
+-- Trigger: After a notification is created
+-- Counts it as unread unless the receiver has already seen past its timestamp
+CREATE TRIGGER after_notification_insert
+AFTER INSERT ON Notifications
+FOR EACH ROW
+BEGIN
+    UPDATE Users SET unreadNotifications = unreadNotifications + 1
+    WHERE username = NEW.receiverUsername
+      AND (notificationsSeenAt IS NULL OR NEW.timestamp > notificationsSeenAt);
+END$$
+
+-- Trigger: After a notification is merged with a newer one
+-- A seen notification that moves past the receiver's mark is unread again
+CREATE TRIGGER after_notification_update
+AFTER UPDATE ON Notifications
+FOR EACH ROW
+BEGIN
+    UPDATE Users SET unreadNotifications = unreadNotifications + 1
+    WHERE username = NEW.receiverUsername
+      AND OLD.timestamp <= notificationsSeenAt
+      AND NEW.timestamp > notificationsSeenAt;
+END$$
+
+-- Trigger: After a notification is removed
+CREATE TRIGGER after_notification_delete
+AFTER DELETE ON Notifications
+FOR EACH ROW
+BEGIN
+    UPDATE Users SET unreadNotifications = GREATEST(unreadNotifications - 1, 0)
+    WHERE username = OLD.receiverUsername
+      AND (notificationsSeenAt IS NULL OR OLD.timestamp > notificationsSeenAt);
+END$$
+
+-- Procedure: Reconcile denormalized counters
+-- Rows removed by ON DELETE CASCADE do not fire triggers (e.g. deleting a user
+-- drops their follows and likes), so the counters can drift. This recomputes
+-- them and only rewrites the rows that are actually wrong.
+CREATE PROCEDURE reconcile_counters()
+BEGIN
+    UPDATE Users u
+    LEFT JOIN (SELECT username, COUNT(*) AS cnt FROM Pictures GROUP BY username) p
+        ON p.username = u.username
+    LEFT JOIN (SELECT followed, COUNT(*) AS cnt FROM Follows GROUP BY followed) fr
+        ON fr.followed = u.username
+    LEFT JOIN (SELECT follower, COUNT(*) AS cnt FROM Follows GROUP BY follower) fg
+        ON fg.follower = u.username
+    SET u.postsCount = COALESCE(p.cnt, 0),
+        u.followersCount = COALESCE(fr.cnt, 0),
+        u.followingCount = COALESCE(fg.cnt, 0)
+    WHERE u.postsCount <> COALESCE(p.cnt, 0)
+       OR u.followersCount <> COALESCE(fr.cnt, 0)
+       OR u.followingCount <> COALESCE(fg.cnt, 0);
+    
+    UPDATE Pictures pic
+    LEFT JOIN (SELECT imageId, COUNT(*) AS cnt FROM Likes GROUP BY imageId) l
+        ON l.imageId = pic.imageId
+    LEFT JOIN (SELECT imageId, COUNT(*) AS cnt FROM Comments GROUP BY imageId) c
+        ON c.imageId = pic.imageId
+    SET pic.likesCount = COALESCE(l.cnt, 0),
+        pic.commentsCount = COALESCE(c.cnt, 0)
+    WHERE pic.likesCount <> COALESCE(l.cnt, 0)
+       OR pic.commentsCount <> COALESCE(c.cnt, 0);
+    
+    -- A range read on idx_notifications_receiver per user
+    UPDATE Users u
+    SET u.unreadNotifications = (
+        SELECT COUNT(*) FROM Notifications n
+        WHERE n.receiverUsername = u.username
+          AND (u.notificationsSeenAt IS NULL OR n.timestamp > u.notificationsSeenAt))
+    WHERE u.unreadNotifications <> (
+        SELECT COUNT(*) FROM Notifications n
+        WHERE n.receiverUsername = u.username
+          AND (u.notificationsSeenAt IS NULL OR n.timestamp > u.notificationsSeenAt));
+END$$
+
+-- Procedure: Add notification partitions
+-- Splits the catch-all partition pmax so that every month from the last partition up
+-- to p_months_ahead months from now has its own. Run ahead of time, pmax is still
+-- empty and the split copies nothing.
+CREATE PROCEDURE add_notification_partitions(IN p_months_ahead INT)
+BEGIN
+    DECLARE next_month DATE;
+    DECLARE last_month DATE;
+    DECLARE new_partitions TEXT DEFAULT '';
+    
+    -- Partitions are named pYYYY_MM after the month they hold
+    SELECT MAX(STR_TO_DATE(CONCAT(SUBSTRING(PARTITION_NAME, 2), '_01'), '%Y_%m_%d')) INTO last_month
+    FROM INFORMATION_SCHEMA.PARTITIONS
+    WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'Notifications' AND PARTITION_NAME <> 'pmax';
+    
+    SET next_month = COALESCE(last_month + INTERVAL 1 MONTH, DATE_FORMAT(CURDATE(), '%Y-%m-01'));
+    WHILE next_month <= DATE_FORMAT(CURDATE(), '%Y-%m-01') + INTERVAL p_months_ahead MONTH DO
+        SET new_partitions = CONCAT(new_partitions,
+            'PARTITION p', DATE_FORMAT(next_month, '%Y_%m'),
+            ' VALUES LESS THAN (''', next_month + INTERVAL 1 MONTH, '''), ');
+        SET next_month = next_month + INTERVAL 1 MONTH;
+    END WHILE;
+    
+    IF new_partitions <> '' THEN
+        SET @partition_sql = CONCAT('ALTER TABLE Notifications REORGANIZE PARTITION pmax INTO (',
+                                    new_partitions, 'PARTITION pmax VALUES LESS THAN (MAXVALUE))');
+        PREPARE partition_stmt FROM @partition_sql;
+        EXECUTE partition_stmt;
+        DEALLOCATE PREPARE partition_stmt;
+    END IF;
+END$$
+
+-- Procedure: Archive notification partitions
+-- Drops the partitions of the months before the last p_retention_months whole months,
+-- first copying them to NotificationsArchive when p_keep_archive is set. Dropping a
+-- partition frees its space at once, where a DELETE would remove row by row.
+CREATE PROCEDURE archive_notification_partitions(IN p_retention_months INT, IN p_keep_archive BOOLEAN)
+BEGIN
+    DECLARE expired_partition VARCHAR(64);
+    DECLARE archived INT DEFAULT 0;
+    
+    archive_loop: LOOP
+        SET expired_partition = NULL;
+        SELECT PARTITION_NAME INTO expired_partition
+        FROM INFORMATION_SCHEMA.PARTITIONS
+        WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'Notifications' AND PARTITION_NAME <> 'pmax'
+          AND STR_TO_DATE(CONCAT(SUBSTRING(PARTITION_NAME, 2), '_01'), '%Y_%m_%d')
+              < DATE_FORMAT(CURDATE(), '%Y-%m-01') - INTERVAL p_retention_months MONTH
+        ORDER BY PARTITION_ORDINAL_POSITION
+        LIMIT 1;
+        
+        IF expired_partition IS NULL THEN
+            LEAVE archive_loop;
+        END IF;
+        
+        IF p_keep_archive THEN
+            SET @archive_sql = CONCAT(
+                'INSERT INTO NotificationsArchive (notificationId, receiverUsername, senderUsername, imageId, ',
+                'timestamp, type, bucketStart, aggregateCount, recentSenders) ',
+                'SELECT notificationId, receiverUsername, senderUsername, imageId, ',
+                'timestamp, type, bucketStart, aggregateCount, recentSenders ',
+                'FROM Notifications PARTITION (', expired_partition, ')');
+            PREPARE archive_stmt FROM @archive_sql;
+            EXECUTE archive_stmt;
+            DEALLOCATE PREPARE archive_stmt;
+        END IF;
+        
+        SET @drop_sql = CONCAT('ALTER TABLE Notifications DROP PARTITION ', expired_partition);
+        PREPARE drop_stmt FROM @drop_sql;
+        EXECUTE drop_stmt;
+        DEALLOCATE PREPARE drop_stmt;
+        SET archived = archived + 1;
+    END LOOP;
+    
+    -- Dropped partitions fire no delete triggers, so unread counts may include their rows
+    IF archived > 0 THEN
+        CALL reconcile_counters();
+    END IF;
+END$$
+
+-- Event: Rotate notification partitions once a day
+-- Keeps two months of empty partitions ahead and twelve whole months behind
+CREATE EVENT rotate_notification_partitions_daily
+ON SCHEDULE EVERY 1 DAY
+DO BEGIN
+    CALL add_notification_partitions(2);
+    CALL archive_notification_partitions(12, TRUE);
+END$$
+
+-- Event: Repair counter drift once a day
+-- Requires the event scheduler (SET GLOBAL event_scheduler = ON)
+CREATE EVENT reconcile_counters_daily
+ON SCHEDULE EVERY 1 DAY
+DO CALL reconcile_counters()$$
+
+DELIMITER ;
+
+-- Seed data in schema.sql is inserted before these triggers exist
+CALL reconcile_counters();
+
+-- schema.sql only creates the partition of the seed data's month
+CALL add_notification_partitions(2);
\ No newline at end of file
@@ -0,0 +1,207 @@
+package com.quackstagram.util;
+
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Colour filters computed on SIMD lanes of packed ARGB pixels with the incubating Vector API.
+ * Lives in its own source root, compiled only where the incubator module exists, so the
+ * application builds without it. Only instantiated through ColorFilterBackend.vector(),
+ * so the class is never loaded unless the JVM runs with {@code --add-modules jdk.incubator.vector}.
+ * 
+ * Results are identical to ScalarColorFilters. The weighted sums of Grayscale and Sepia
+ * are computed exactly in integer thousandths; where a sum is a whole number the scalar
+ * double arithmetic may land just below it, so those rare lanes are redone with the scalar code.
+ * Each filter keeps its own loop with the lane arithmetic written out: once a loop grows past
+ * the JIT's inlining budget, vector operations stop being intrinsified and every vector is boxed.
+ */
+final class VectorColorFilters implements ColorFilterBackend {
+    private static final VectorSpecies<Integer> SPECIES = IntVector.SPECIES_PREFERRED;
+    // ((n >>> 3) * 67109) >>> 23 is exactly n / 1000 for every sum the filters produce
+    private static final int DIVIDE_BY_125 = 67109;
+    
+    @Override
+    public String getName() {
+        return "Vector API, " + SPECIES.length() + " lanes";
+    }
+    
+    @Override
+    public ColorFilter grayscale() {
+        return filter(ScalarColorFilters::grayscale, VectorColorFilters::grayscale);
+    }
+    
+    @Override
+    public ColorFilter sepia() {
+        return filter(ScalarColorFilters::sepia, VectorColorFilters::sepia);
+    }
+    
+    @Override
+    public ColorFilter invert() {
+        return filter(ScalarColorFilters::invert, VectorColorFilters::invert);
+    }
+    
+    @Override
+    public ColorFilter warm() {
+        return filter(ScalarColorFilters::warm, VectorColorFilters::warm);
+    }
+    
+    @Override
+    public ColorFilter cool() {
+        return filter(ScalarColorFilters::cool, VectorColorFilters::cool);
+    }
+    
+    private static ColorFilter filter(ColorFilter scalar, RangeOp vector) {
+        return new ColorFilter() {
+            @Override
+            public int applyAsInt(int argb) {
+                return scalar.applyAsInt(argb);
+            }
+            
+            @Override
+            public void applyTo(int[] pixels, int from, int to) {
+                vector.apply(pixels, from, to);
+            }
+        };
+    }
+    
+    private static void grayscale(int[] pixels, int from, int to) {
+        int[] original = new int[SPECIES.length()];
+        int[] remainders = new int[SPECIES.length()];
+        int i = from;
+        for (int end = from + SPECIES.loopBound(to - from); i < end; i += SPECIES.length()) {
+            IntVector pixel = IntVector.fromArray(SPECIES, pixels, i);
+            IntVector r = pixel.lanewise(VectorOperators.LSHR, 16).and(0xff);
+            IntVector g = pixel.lanewise(VectorOperators.LSHR, 8).and(0xff);
+            IntVector b = pixel.and(0xff);
+            
+            IntVector thousandths = r.mul(299).add(g.mul(587)).add(b.mul(114));
+            IntVector gray = thousandths.lanewise(VectorOperators.LSHR, 3).mul(DIVIDE_BY_125).lanewise(VectorOperators.LSHR, 23);
+            
+            pixel.and(0xff000000)
+                    .or(gray.lanewise(VectorOperators.LSHL, 16))
+                    .or(gray.lanewise(VectorOperators.LSHL, 8))
+                    .or(gray)
+                    .intoArray(pixels, i);
+            
+            IntVector remainder = thousandths.sub(gray.mul(1000)).or(isBlack(pixel));
+            if (remainder.eq(0).anyTrue()) {
+                pixel.intoArray(original, 0);
+                remainder.intoArray(remainders, 0);
+                for (int lane = 0; lane < remainders.length; lane++) {
+                    if (remainders[lane] == 0) {
+                        pixels[i + lane] = ScalarColorFilters.grayscale(original[lane]);
+                    }
+                }
+            }
+        }
+        for (; i < to; i++) {
+            pixels[i] = ScalarColorFilters.grayscale(pixels[i]);
+        }
+    }
+    
+    private static void sepia(int[] pixels, int from, int to) {
+        int[] original = new int[SPECIES.length()];
+        int[] remainders = new int[SPECIES.length()];
+        int i = from;
+        for (int end = from + SPECIES.loopBound(to - from); i < end; i += SPECIES.length()) {
+            IntVector pixel = IntVector.fromArray(SPECIES, pixels, i);
+            IntVector r = pixel.lanewise(VectorOperators.LSHR, 16).and(0xff);
+            IntVector g = pixel.lanewise(VectorOperators.LSHR, 8).and(0xff);
+            IntVector b = pixel.and(0xff);
+            
+            IntVector redThousandths = r.mul(393).add(g.mul(769)).add(b.mul(189));
+            IntVector greenThousandths = r.mul(349).add(g.mul(686)).add(b.mul(168));
+            IntVector blueThousandths = r.mul(272).add(g.mul(534)).add(b.mul(131));
+            IntVector newR = redThousandths.lanewise(VectorOperators.LSHR, 3).mul(DIVIDE_BY_125).lanewise(VectorOperators.LSHR, 23);
+            IntVector newG = greenThousandths.lanewise(VectorOperators.LSHR, 3).mul(DIVIDE_BY_125).lanewise(VectorOperators.LSHR, 23);
+            IntVector newB = blueThousandths.lanewise(VectorOperators.LSHR, 3).mul(DIVIDE_BY_125).lanewise(VectorOperators.LSHR, 23);
+            
+            pixel.and(0xff000000)
+                    .or(newR.min(255).lanewise(VectorOperators.LSHL, 16))
+                    .or(newG.min(255).lanewise(VectorOperators.LSHL, 8))
+                    .or(newB.min(255))
+                    .intoArray(pixels, i);
+            
+            // Zero in a lane where any channel sum is whole
+            IntVector remainder = redThousandths.sub(newR.mul(1000))
+                    .min(greenThousandths.sub(newG.mul(1000)))
+                    .min(blueThousandths.sub(newB.mul(1000)))
+                    .or(isBlack(pixel));
+            if (remainder.eq(0).anyTrue()) {
+                pixel.intoArray(original, 0);
+                remainder.intoArray(remainders, 0);
+                for (int lane = 0; lane < remainders.length; lane++) {
+                    if (remainders[lane] == 0) {
+                        pixels[i + lane] = ScalarColorFilters.sepia(original[lane]);
+                    }
+                }
+            }
+        }
+        for (; i < to; i++) {
+            pixels[i] = ScalarColorFilters.sepia(pixels[i]);
+        }
+    }
+    
+    private static void invert(int[] pixels, int from, int to) {
+        int i = from;
+        for (int end = from + SPECIES.loopBound(to - from); i < end; i += SPECIES.length()) {
+            IntVector.fromArray(SPECIES, pixels, i)
+                    .lanewise(VectorOperators.XOR, 0x00ffffff)
+                    .intoArray(pixels, i);
+        }
+        for (; i < to; i++) {
+            pixels[i] = ScalarColorFilters.invert(pixels[i]);
+        }
+    }
+    
+    private static void warm(int[] pixels, int from, int to) {
+        int i = from;
+        for (int end = from + SPECIES.loopBound(to - from); i < end; i += SPECIES.length()) {
+            IntVector pixel = IntVector.fromArray(SPECIES, pixels, i);
+            IntVector r = pixel.lanewise(VectorOperators.LSHR, 16).and(0xff).add(30).min(255);
+            IntVector b = pixel.and(0xff).sub(20).max(0);
+            
+            pixel.and(0xff00ff00)
+                    .or(r.lanewise(VectorOperators.LSHL, 16))
+                    .or(b)
+                    .intoArray(pixels, i);
+        }
+        for (; i < to; i++) {
+            pixels[i] = ScalarColorFilters.warm(pixels[i]);
+        }
+    }
+    
+    private static void cool(int[] pixels, int from, int to) {
+        int i = from;
+        for (int end = from + SPECIES.loopBound(to - from); i < end; i += SPECIES.length()) {
+            IntVector pixel = IntVector.fromArray(SPECIES, pixels, i);
+            IntVector r = pixel.lanewise(VectorOperators.LSHR, 16).and(0xff).sub(20).max(0);
+            IntVector b = pixel.and(0xff).add(30).min(255);
+            
+            pixel.and(0xff00ff00)
+                    .or(r.lanewise(VectorOperators.LSHL, 16))
+                    .or(b)
+                    .intoArray(pixels, i);
+        }
+        for (; i < to; i++) {
+            pixels[i] = ScalarColorFilters.cool(pixels[i]);
+        }
+    }
+    
+    /**
+     * Gives 1 in the lanes holding black pixels and 0 elsewhere.
+     * Black sums to exactly zero, which the scalar code never rounds down, so it needs no redo.
+     */
+    private static IntVector isBlack(IntVector pixel) {
+        return pixel.and(0x00ffffff).sub(1).lanewise(VectorOperators.LSHR, 31);
+    }
+    
+    /**
+     * A filter over a range of a pixel buffer
+     */
+    @FunctionalInterface
+    private interface RangeOp {
+        void apply(int[] pixels, int from, int to);
+    }
+}
\ No newline at end of file
@@ -6,13 +6,17 @@ CREATE INDEX idx_likes_imageId ON Likes(imageId);
 -- Improves performance of the daily_activity view
 CREATE INDEX idx_pictures_timestamp ON Pictures(timestamp);
 
+-- Index 3: Serve keyset-paginated feeds (timestamp, imageId) per author
+-- Lets the home feed read each followed user's newest pictures in order
+CREATE INDEX idx_pictures_username_timestamp ON Pictures(username, timestamp, imageId);
+
 CREATE VIEW user_engagement AS
 SELECT 
     u.username,
-    (SELECT COUNT(*) FROM Pictures WHERE username = u.username) AS post_count,
+    u.postsCount AS post_count,
     (SELECT COUNT(*) FROM Likes WHERE username = u.username) AS likes_given,
     (SELECT COUNT(*) FROM Comments WHERE username = u.username) AS comments_made,
-    (SELECT COUNT(*) FROM Follows WHERE follower = u.username) AS following_count
+    u.followingCount AS following_count
 FROM 
     Users u
 GROUP BY 
@@ -28,14 +32,13 @@ SELECT
     p.username,
     p.caption,
     p.timestamp,
-    (SELECT COUNT(*) FROM Likes l WHERE l.imageId = p.imageId) AS likes_count,
-    (SELECT COUNT(*) FROM Comments c WHERE c.imageId = p.imageId) AS comments_count,
-    ((SELECT COUNT(*) FROM Likes l WHERE l.imageId = p.imageId) + 
-     (SELECT COUNT(*) FROM Comments c WHERE c.imageId = p.imageId)) AS engagement_score
+    p.likesCount AS likes_count,
+    p.commentsCount AS comments_count,
+    (p.likesCount + p.commentsCount) AS engagement_score
 FROM 
     Pictures p
 WHERE 
-    (SELECT COUNT(*) FROM Likes l WHERE l.imageId = p.imageId) > 0
+    p.likesCount > 0
 ORDER BY 
     engagement_score DESC;
 